@@ -6,10 +6,16 @@ import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
 import androidx.room.TypeConverters;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 
 import com.example.appppple.data.converter.UriConverter;
+import com.example.appppple.data.dao.BookTextDao;
 import com.example.appppple.data.dao.BookmarkDao;
 import com.example.appppple.data.dao.ReadingProgressDao;
+import com.example.appppple.data.entity.BookTextChunkEntity;
+import com.example.appppple.data.entity.BookTextEntity;
+import com.example.appppple.data.entity.BookTextStateEntity;
 import com.example.appppple.data.entity.BookmarkEntity;
 import com.example.appppple.data.entity.ReadingProgressEntity;
 
@@ -19,9 +25,12 @@ import com.example.appppple.data.entity.ReadingProgressEntity;
 @Database(
     entities = {
         BookmarkEntity.class,
-        ReadingProgressEntity.class
+        ReadingProgressEntity.class,
+        BookTextChunkEntity.class,
+        BookTextEntity.class,
+        BookTextStateEntity.class
     },
-    version = 1,
+    version = 4,
     exportSchema = false
 )
 @TypeConverters({UriConverter.class})
@@ -29,8 +38,63 @@ public abstract class AppDatabase extends RoomDatabase {
     private static final String DATABASE_NAME = "appppple.db";
     private static volatile AppDatabase instance;
 
+    /**
+     * 1 -> 2：阅读进度增加流式模式下的字节位置
+     */
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE reading_progress ADD COLUMN byteOffset INTEGER NOT NULL DEFAULT 0");
+        }
+    };
+
+    /**
+     * 2 -> 3：阅读进度增加非流式模式下的字符位置
+     */
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE reading_progress ADD COLUMN charOffset INTEGER NOT NULL DEFAULT -1");
+        }
+    };
+
+    /**
+     * 3 -> 4：增加书库全文检索的文本块表、以其为外部内容的全文检索表及各书的索引进度
+     */
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `book_text_chunk` (`id` INTEGER NOT NULL, "
+                    + "`chapterIndex` INTEGER NOT NULL, `chapterTitle` TEXT, `startOffset` INTEGER NOT NULL, "
+                    + "`text` TEXT, `terms` TEXT, "
+                    + "PRIMARY KEY(`id`))");
+            database.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `book_text` USING FTS4("
+                    + "`terms` TEXT, content=`book_text_chunk`)");
+            // 与 Room 为外部内容表生成的同步触发器相同
+            database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_book_text_BEFORE_UPDATE "
+                    + "BEFORE UPDATE ON `book_text_chunk` BEGIN DELETE FROM `book_text` "
+                    + "WHERE `docid`=OLD.`rowid`; END");
+            database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_book_text_BEFORE_DELETE "
+                    + "BEFORE DELETE ON `book_text_chunk` BEGIN DELETE FROM `book_text` "
+                    + "WHERE `docid`=OLD.`rowid`; END");
+            database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_book_text_AFTER_UPDATE "
+                    + "AFTER UPDATE ON `book_text_chunk` BEGIN INSERT INTO `book_text`(`docid`, `terms`) "
+                    + "VALUES (NEW.`rowid`, NEW.`terms`); END");
+            database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_book_text_AFTER_INSERT "
+                    + "AFTER INSERT ON `book_text_chunk` BEGIN INSERT INTO `book_text`(`docid`, `terms`) "
+                    + "VALUES (NEW.`rowid`, NEW.`terms`); END");
+            database.execSQL("CREATE TABLE IF NOT EXISTS `book_text_state` ("
+                    + "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `bookUri` TEXT NOT NULL, `bookName` TEXT, "
+                    + "`fingerprint` TEXT, `chapterCount` INTEGER NOT NULL, `indexedChapters` INTEGER NOT NULL, "
+                    + "`updatedTime` INTEGER NOT NULL)");
+            database.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_book_text_state_bookUri` "
+                    + "ON `book_text_state` (`bookUri`)");
+        }
+    };
+
     public abstract BookmarkDao bookmarkDao();
     public abstract ReadingProgressDao readingProgressDao();
+    public abstract BookTextDao bookTextDao();
 
     public static synchronized AppDatabase getInstance(Context context) {
         if (instance == null) {
@@ -38,7 +102,8 @@ public abstract class AppDatabase extends RoomDatabase {
                 context.getApplicationContext(),
                 AppDatabase.class,
                 DATABASE_NAME
-            ).build();
+            ).addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4)
+             .build();
         }
         return instance;
     }
@@ -0,0 +1,68 @@
+package com.example.appppple.data.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import com.example.appppple.data.entity.BookTextChunkEntity;
+import com.example.appppple.data.entity.BookTextStateEntity;
+
+import java.util.List;
+
+/**
+ * 书库全文检索数据访问对象
+ */
+@Dao
+public interface BookTextDao {
+    @Query("SELECT * FROM book_text_state WHERE bookUri = :bookUri")
+    BookTextStateEntity getState(String bookUri);
+
+    @Query("SELECT * FROM book_text_state")
+    List<BookTextStateEntity> getAllStates();
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    long insertState(BookTextStateEntity state);
+
+    /**
+     * 写入文本块，触发器同时把检索列写入全文检索表
+     */
+    @Insert
+    void insertChunks(List<BookTextChunkEntity> chunks);
+
+    /**
+     * 删除编号在 [minId, maxId) 中的文本块，即一本书的全部文本块，触发器同时从全文检索表中删除
+     */
+    @Query("DELETE FROM book_text_chunk WHERE id >= :minId AND id < :maxId")
+    void deleteChunks(long minId, long maxId);
+
+    /**
+     * @return 编号在 [minId, maxId) 中的最大值，没有时返回 null
+     */
+    @Query("SELECT max(id) FROM book_text_chunk WHERE id >= :minId AND id < :maxId")
+    Long getMaxChunkId(long minId, long maxId);
+
+    /**
+     * 写入一个章节的文本块并更新索引进度
+     */
+    @Transaction
+    default void insertChapter(List<BookTextChunkEntity> chunks, BookTextStateEntity state) {
+        insertChunks(chunks);
+        insertState(state);
+    }
+
+    /**
+     * 每本书中第一个候选文本块，只按编号分组，只读取各书第一块的外部内容
+     */
+    @Query("SELECT * FROM book_text_chunk WHERE id IN (SELECT min(rowid) FROM book_text "
+            + "WHERE book_text MATCH :query GROUP BY rowid >> " + BookTextChunkEntity.CHUNK_BITS + ") ORDER BY id")
+    List<BookTextChunkEntity> matchFirstChunks(String query);
+
+    /**
+     * 编号不小于 fromId 的候选文本块，按编号顺序即按书籍和章节顺序
+     */
+    @Query("SELECT * FROM book_text_chunk WHERE id IN (SELECT rowid FROM book_text WHERE book_text MATCH :query "
+            + "AND rowid >= :fromId LIMIT :limit) ORDER BY id")
+    List<BookTextChunkEntity> matchChunks(String query, long fromId, int limit);
+}
@@ -0,0 +1,90 @@
+package com.example.appppple.data.entity;
+
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * 书库全文检索的文本块
+ * 每本书按章节切成固定长度的文本块，相邻的块有少量重叠，跨越块边界的关键词也能在前一块中找到；
+ * 保存块的原文和 FtsTokenizer 切分出的词，候选块直接用原文核对并截取上下文，检索时不必打开书籍。
+ * 编号的高位为书籍编号，低位为书内的块序号，同一本书的块连续存放，按书籍分组时只需读取编号
+ */
+@Entity(tableName = "book_text_chunk")
+public class BookTextChunkEntity {
+    // 编号中块序号所占的位数
+    public static final int CHUNK_BITS = 24;
+
+    @PrimaryKey
+    private long id;
+
+    private int chapterIndex;
+
+    private String chapterTitle;
+
+    // 文本块在章节分片正文中的起点
+    private int startOffset;
+
+    // 文本块的原文，含与下一块重叠的部分
+    private String text;
+
+    // 检索用的词，全文检索表 book_text 从这里读取
+    private String terms;
+
+    public BookTextChunkEntity(long id, int chapterIndex, String chapterTitle, int startOffset, String text,
+                               String terms) {
+        this.id = id;
+        this.chapterIndex = chapterIndex;
+        this.chapterTitle = chapterTitle;
+        this.startOffset = startOffset;
+        this.text = text;
+        this.terms = terms;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public int getChapterIndex() {
+        return chapterIndex;
+    }
+
+    public void setChapterIndex(int chapterIndex) {
+        this.chapterIndex = chapterIndex;
+    }
+
+    public String getChapterTitle() {
+        return chapterTitle;
+    }
+
+    public void setChapterTitle(String chapterTitle) {
+        this.chapterTitle = chapterTitle;
+    }
+
+    public int getStartOffset() {
+        return startOffset;
+    }
+
+    public void setStartOffset(int startOffset) {
+        this.startOffset = startOffset;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    public String getTerms() {
+        return terms;
+    }
+
+    public void setTerms(String terms) {
+        this.terms = terms;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.appppple.data.entity;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.PrimaryKey;
+
+/**
+ * 书库全文检索表
+ * 以 book_text_chunk 为外部内容，本身只保存检索列 terms 的倒排索引，原文保存在文本块表中；
+ * 写入和删除文本块时由 Room 生成的触发器同步。rowid 即文本块的编号
+ */
+@Fts4(contentEntity = BookTextChunkEntity.class)
+@Entity(tableName = "book_text")
+public class BookTextEntity {
+    @PrimaryKey
+    @ColumnInfo(name = "rowid")
+    private long rowid;
+
+    private String terms;
+
+    public BookTextEntity(long rowid, String terms) {
+        this.rowid = rowid;
+        this.terms = terms;
+    }
+
+    public long getRowid() {
+        return rowid;
+    }
+
+    public void setRowid(long rowid) {
+        this.rowid = rowid;
+    }
+
+    public String getTerms() {
+        return terms;
+    }
+
+    public void setTerms(String terms) {
+        this.terms = terms;
+    }
+}
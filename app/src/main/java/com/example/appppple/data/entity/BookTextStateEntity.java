@@ -0,0 +1,100 @@
+package com.example.appppple.data.entity;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * 书库全文检索中一本书的索引进度
+ * 按章节逐步写入，indexedChapters 之前的章节已经写入；书籍指纹变化后删除旧的文本块重新写入
+ */
+@Entity(tableName = "book_text_state", indices = {@Index(value = "bookUri", unique = true)})
+public class BookTextStateEntity {
+    @PrimaryKey(autoGenerate = true)
+    private long id;
+
+    @NonNull
+    private String bookUri;
+
+    private String bookName;
+
+    // 书籍内容的指纹，与解析缓存使用的相同
+    private String fingerprint;
+
+    private int chapterCount;
+    private int indexedChapters;
+    private long updatedTime;
+
+    public BookTextStateEntity(@NonNull String bookUri, String bookName, String fingerprint, int chapterCount) {
+        this.bookUri = bookUri;
+        this.bookName = bookName;
+        this.fingerprint = fingerprint;
+        this.chapterCount = chapterCount;
+        this.updatedTime = System.currentTimeMillis();
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    @NonNull
+    public String getBookUri() {
+        return bookUri;
+    }
+
+    public void setBookUri(@NonNull String bookUri) {
+        this.bookUri = bookUri;
+    }
+
+    public String getBookName() {
+        return bookName;
+    }
+
+    public void setBookName(String bookName) {
+        this.bookName = bookName;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    public int getChapterCount() {
+        return chapterCount;
+    }
+
+    public void setChapterCount(int chapterCount) {
+        this.chapterCount = chapterCount;
+    }
+
+    public int getIndexedChapters() {
+        return indexedChapters;
+    }
+
+    public void setIndexedChapters(int indexedChapters) {
+        this.indexedChapters = indexedChapters;
+    }
+
+    public long getUpdatedTime() {
+        return updatedTime;
+    }
+
+    public void setUpdatedTime(long updatedTime) {
+        this.updatedTime = updatedTime;
+    }
+
+    /**
+     * @return 全部章节是否已经写入
+     */
+    public boolean isComplete() {
+        return indexedChapters >= chapterCount;
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.appppple.data.entity;
 
+import androidx.room.ColumnInfo;
 import androidx.room.Entity;
 import androidx.room.PrimaryKey;
 import androidx.room.TypeConverters;
@@ -23,6 +24,14 @@ public class ReadingProgressEntity {
     private int totalPages;
     private long lastReadTime;
 
+    // 流式模式下的阅读位置（文件字节偏移）
+    @ColumnInfo(defaultValue = "0")
+    private long byteOffset;
+
+    // 非流式模式下的阅读位置（源文件正文中的字符位置），未知时为 -1
+    @ColumnInfo(defaultValue = "-1")
+    private long charOffset = -1;
+
     public ReadingProgressEntity(String bookName, android.net.Uri bookUri, int currentPage, int totalPages) {
         this.bookName = bookName;
         this.bookUri = bookUri;
@@ -78,4 +87,20 @@ public class ReadingProgressEntity {
     public void setLastReadTime(long lastReadTime) {
         this.lastReadTime = lastReadTime;
     }
-} 
\ No newline at end of file
+
+    public long getByteOffset() {
+        return byteOffset;
+    }
+
+    public void setByteOffset(long byteOffset) {
+        this.byteOffset = byteOffset;
+    }
+
+    public long getCharOffset() {
+        return charOffset;
+    }
+
+    public void setCharOffset(long charOffset) {
+        this.charOffset = charOffset;
+    }
+}
@@ -0,0 +1,315 @@
+package com.example.appppple.data.repository;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.util.Log;
+
+import com.example.appppple.data.AppDatabase;
+import com.example.appppple.data.dao.BookTextDao;
+import com.example.appppple.data.entity.BookTextChunkEntity;
+import com.example.appppple.data.entity.BookTextStateEntity;
+import com.example.appppple.domain.parser.BookCache;
+import com.example.appppple.domain.parser.FileProbe;
+import com.example.appppple.domain.search.FtsTokenizer;
+import com.example.appppple.domain.search.KeywordMatcher;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 书库全文检索仓库
+ * 打开书籍后在后台把各章节切成文本块写入全文检索表，每写完一章提交一次，中断后下次打开时从中断的章节继续；
+ * 文本块表保存原文，检索表只保存各块的词。查询时由检索表给出每本书中第一个同时含有各个词的文本块，
+ * 在块的原文中核对后得到命中在章节分片正文中的准确位置，检索时不打开任何书籍；
+ * 各词分散出现而关键词并未连续出现时，再按编号顺序逐页读取这些书后面的候选块核对，直到找到命中或候选块用完。
+ * 书籍在写入后可能已经变化，结果显示出来时再用 isCurrent 与源文件核对
+ */
+public class LibrarySearchRepository {
+    private static final String TAG = "LibrarySearchRepository";
+    private static final int CHUNK_CHARS = 2000; // 每个文本块的字符数
+    private static final int CHUNK_OVERLAP = 64; // 与下一块重叠的字符数，更长的关键词跨块时找不到
+    private static final int CANDIDATE_PAGE = 128; // 每次读取的候选块数
+
+    private static LibrarySearchRepository instance;
+    private final Context context;
+    private final BookTextDao bookTextDao;
+
+    /**
+     * 书库检索结果
+     */
+    public static class Hit {
+        private final Uri bookUri;
+        private final String bookName;
+        private final int chapterIndex;
+        private final String chapterTitle;
+        private final int position;
+        private final String snippet;
+        private final String fingerprint;
+
+        Hit(Uri bookUri, String bookName, int chapterIndex, String chapterTitle, int position, String snippet,
+            String fingerprint) {
+            this.bookUri = bookUri;
+            this.bookName = bookName;
+            this.chapterIndex = chapterIndex;
+            this.chapterTitle = chapterTitle;
+            this.position = position;
+            this.snippet = snippet;
+            this.fingerprint = fingerprint;
+        }
+
+        public Uri getBookUri() {
+            return bookUri;
+        }
+
+        public String getBookName() {
+            return bookName;
+        }
+
+        public int getChapterIndex() {
+            return chapterIndex;
+        }
+
+        public String getChapterTitle() {
+            return chapterTitle;
+        }
+
+        /**
+         * @return 命中在章节分片正文中的位置
+         */
+        public int getPosition() {
+            return position;
+        }
+
+        public String getSnippet() {
+            return snippet;
+        }
+    }
+
+    private LibrarySearchRepository(Context context) {
+        this.context = context;
+        bookTextDao = AppDatabase.getInstance(context).bookTextDao();
+    }
+
+    public static synchronized LibrarySearchRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new LibrarySearchRepository(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * 一本书的文本写入器，章节按顺序交给 addChapter，每写完一章提交一次，已经提交的章节直接跳过
+     */
+    public class BookTextWriter {
+        private final BookTextStateEntity state;
+        private long nextId;
+
+        private BookTextWriter(BookTextStateEntity state) {
+            this.state = state;
+            long bookId = state.getId();
+            // 块序号接着已提交的章节继续
+            Long lastId = bookTextDao.getMaxChunkId(minRowid(bookId), minRowid(bookId + 1));
+            this.nextId = lastId != null ? lastId + 1 : minRowid(bookId);
+        }
+
+        /**
+         * @return 已经写入的章节数，之前的章节不必再读取
+         */
+        public int getIndexedChapters() {
+            return state.getIndexedChapters();
+        }
+
+        /**
+         * 写入一章并提交
+         * @param chapter 章节索引，必须紧接已写入的章节，更早的章节忽略
+         * @param title 章节标题，显示在检索结果中
+         * @param text 章节的分片正文，命中位置以其为准
+         */
+        public void addChapter(int chapter, String title, String text) {
+            if (chapter < state.getIndexedChapters()) {
+                return;
+            }
+            if (chapter > state.getIndexedChapters()) {
+                throw new IllegalArgumentException("章节没有按顺序写入: " + chapter);
+            }
+            List<BookTextChunkEntity> chunks = new ArrayList<>();
+            for (int start = 0; start < text.length(); start += CHUNK_CHARS) {
+                int end = Math.min(text.length(), start + CHUNK_CHARS + CHUNK_OVERLAP);
+                String chunk = text.substring(start, end);
+                chunks.add(new BookTextChunkEntity(nextId++, chapter, title, start, chunk,
+                        FtsTokenizer.indexTerms(chunk)));
+            }
+            state.setIndexedChapters(chapter + 1);
+            state.setUpdatedTime(System.currentTimeMillis());
+            bookTextDao.insertChapter(chunks, state);
+        }
+    }
+
+    /**
+     * 开始写入一本书的文本，上次中断时从未写完的章节继续，只能在后台线程调用
+     * @param fingerprint 书籍内容的指纹，与上次不同时删除旧的文本块重新写入
+     * @param chapterCount 章节数
+     * @return 写入器；已经完整写入且内容没有变化时返回 null
+     */
+    public BookTextWriter openWriter(Uri bookUri, String bookName, String fingerprint, int chapterCount) {
+        String uri = bookUri.toString();
+        BookTextStateEntity state = bookTextDao.getState(uri);
+        if (state != null && fingerprint.equals(state.getFingerprint())
+                && state.getChapterCount() == chapterCount) {
+            if (state.isComplete()) {
+                return null;
+            }
+        } else {
+            if (state != null) {
+                // 内容已经变化，删除旧的文本块
+                bookTextDao.deleteChunks(minRowid(state.getId()), minRowid(state.getId() + 1));
+            }
+            state = new BookTextStateEntity(uri, bookName, fingerprint, chapterCount);
+            state.setId(bookTextDao.insertState(state));
+        }
+        return new BookTextWriter(state);
+    }
+
+    /**
+     * 查找提到关键词的书，每本书给出第一处命中，只能在后台线程调用
+     * @param maxResults 最多返回的结果数
+     * @param signal 取消信号，每核对一本书和每读取一页候选块前检查
+     * @return 按书籍排序的结果
+     * @throws OperationCanceledException 已取消
+     */
+    public List<Hit> search(String keyword, int maxResults, CancellationSignal signal) {
+        List<Hit> hits = new ArrayList<>();
+        String query = FtsTokenizer.matchQuery(keyword);
+        if (query == null) {
+            return hits;
+        }
+
+        long startTime = System.currentTimeMillis();
+        Map<Long, BookTextStateEntity> books = new HashMap<>();
+        for (BookTextStateEntity state : bookTextDao.getAllStates()) {
+            books.put(state.getId(), state);
+        }
+        KeywordMatcher matcher = new KeywordMatcher(keyword);
+        List<BookTextChunkEntity> firstChunks = bookTextDao.matchFirstChunks(query);
+        Hit[] found = new Hit[firstChunks.size()];
+        int[] pending = new int[firstChunks.size()];
+        int pendingCount = 0;
+        for (int i = 0; i < firstChunks.size(); i++) {
+            signal.throwIfCanceled();
+            BookTextChunkEntity chunk = firstChunks.get(i);
+            BookTextStateEntity state = books.get(bookId(chunk.getId()));
+            if (state == null) {
+                continue;
+            }
+            found[i] = verify(state, chunk, matcher);
+            if (found[i] == null) {
+                pending[pendingCount++] = i;
+            }
+        }
+        if (pendingCount > 0) {
+            findLaterHits(books, query, matcher, firstChunks, pending, pendingCount, found, signal);
+        }
+        for (Hit hit : found) {
+            if (hit != null) {
+                hits.add(hit);
+                if (hits.size() >= maxResults) {
+                    break;
+                }
+            }
+        }
+        Log.d(TAG, String.format("书库检索 %s: %d 本候选，%d 本需要继续核对，%d 个结果，耗时 %dms", keyword,
+                firstChunks.size(), pendingCount, hits.size(), System.currentTimeMillis() - startTime));
+        return hits;
+    }
+
+    /**
+     * 第一个候选块中没有关键词的书，按编号顺序逐页读取其后的候选块核对，直到找到命中或候选块用完；
+     * 同一本书的块连续存放，一页可以核对多本书，已经找到命中的书跳过
+     * @param pending 需要继续核对的书在 firstChunks 中的位置，按编号顺序排列
+     * @param found 找到的命中按书在 firstChunks 中的位置写入
+     */
+    private void findLaterHits(Map<Long, BookTextStateEntity> books, String query, KeywordMatcher matcher,
+                               List<BookTextChunkEntity> firstChunks, int[] pending, int pendingCount, Hit[] found,
+                               CancellationSignal signal) {
+        int next = 0;
+        long from = firstChunks.get(pending[0]).getId() + 1;
+        while (next < pendingCount) {
+            signal.throwIfCanceled();
+            List<BookTextChunkEntity> candidates = bookTextDao.matchChunks(query, from, CANDIDATE_PAGE);
+            for (BookTextChunkEntity chunk : candidates) {
+                long bookId = bookId(chunk.getId());
+                // 之前的书已经没有候选块
+                while (next < pendingCount && bookId(firstChunks.get(pending[next]).getId()) < bookId) {
+                    next++;
+                }
+                if (next == pendingCount) {
+                    return;
+                }
+                if (bookId(firstChunks.get(pending[next]).getId()) != bookId) {
+                    continue;
+                }
+                signal.throwIfCanceled();
+                Hit hit = verify(books.get(bookId), chunk, matcher);
+                if (hit != null) {
+                    found[pending[next++]] = hit;
+                }
+            }
+            if (next == pendingCount || candidates.size() < CANDIDATE_PAGE) {
+                return;
+            }
+            // 下一本待核对的书的第一个候选块已经核对过
+            from = Math.max(candidates.get(candidates.size() - 1).getId(), firstChunks.get(pending[next]).getId()) + 1;
+        }
+    }
+
+    /**
+     * 在候选块的原文中查找关键词
+     * @return 块中的第一处命中，没有时返回 null
+     */
+    private static Hit verify(BookTextStateEntity state, BookTextChunkEntity chunk, KeywordMatcher matcher) {
+        String text = chunk.getText();
+        int index = text != null ? matcher.indexOf(text, 0) : -1;
+        if (index < 0) {
+            return null;
+        }
+        return new Hit(Uri.parse(state.getBookUri()), state.getBookName(), chunk.getChapterIndex(),
+                chunk.getChapterTitle(), chunk.getStartOffset() + index, snippet(text, index),
+                state.getFingerprint());
+    }
+
+    /**
+     * 核对结果所在的书籍是否仍与写入检索表时相同，只对显示出来的结果调用，只能在后台线程调用
+     * @return 书籍没有变化时返回 true；文件已无法读取或内容已经变化时返回 false，再次打开该书时会重新写入
+     */
+    public boolean isCurrent(Hit hit) {
+        try {
+            String fingerprint = BookCache.fingerprint(context, FileProbe.probe(context, hit.getBookUri()));
+            return fingerprint != null && fingerprint.equals(hit.fingerprint);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "读取书籍失败: " + hit.getBookName(), e);
+            return false;
+        }
+    }
+
+    private static long bookId(long chunkId) {
+        return chunkId >>> BookTextChunkEntity.CHUNK_BITS;
+    }
+
+    private static long minRowid(long bookId) {
+        return bookId << BookTextChunkEntity.CHUNK_BITS;
+    }
+
+    private static String snippet(String text, int index) {
+        // 获取包含关键词的上下文
+        int start = Math.max(0, index - 20);
+        int end = Math.min(text.length(), start + 60);
+        String snippet = text.substring(start, end);
+        if (start > 0) snippet = "..." + snippet;
+        if (end < text.length()) snippet = snippet + "...";
+        return snippet;
+    }
+}
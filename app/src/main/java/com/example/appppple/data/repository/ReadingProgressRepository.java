@@ -45,7 +45,9 @@ public class ReadingProgressRepository {
                 entity.getBookName(),
                 entity.getBookUri(),
                 entity.getCurrentPage(),
-                entity.getTotalPages()
+                entity.getTotalPages(),
+                entity.getByteOffset(),
+                entity.getCharOffset()
             ));
         } else {
             result.postValue(null);
@@ -54,7 +56,34 @@ public class ReadingProgressRepository {
     return result;
 }
 
+    /**
+     * 同步读取阅读进度，只能在后台线程调用
+     */
+    public ReadingProgress getProgressSync(Uri bookUri) {
+        ReadingProgressEntity entity = readingProgressDao.getProgress(bookUri.toString());
+        if (entity == null) {
+            return null;
+        }
+        return new ReadingProgress(
+            entity.getBookName(),
+            entity.getBookUri(),
+            entity.getCurrentPage(),
+            entity.getTotalPages(),
+            entity.getByteOffset(),
+            entity.getCharOffset()
+        );
+    }
+
     public LiveData<Boolean> saveProgress(String bookName, Uri bookUri, int currentPage, int totalPages) {
+        return saveProgress(bookName, bookUri, currentPage, totalPages, 0);
+    }
+
+    public LiveData<Boolean> saveProgress(String bookName, Uri bookUri, int currentPage, int totalPages, long byteOffset) {
+        return saveProgress(bookName, bookUri, currentPage, totalPages, byteOffset, -1);
+    }
+
+    public LiveData<Boolean> saveProgress(String bookName, Uri bookUri, int currentPage, int totalPages,
+                                          long byteOffset, long charOffset) {
         MutableLiveData<Boolean> result = new MutableLiveData<>();
         executorService.execute(() -> {
             try {
@@ -68,6 +97,8 @@ public class ReadingProgressRepository {
                     currentPage,
                     totalPages
                 );
+                entity.setByteOffset(byteOffset);
+                entity.setCharOffset(charOffset);
                 readingProgressDao.insert(entity);
                 result.postValue(true);
             } catch (Exception e) {
@@ -87,7 +118,9 @@ public class ReadingProgressRepository {
                     entity.getBookName(),
                     entity.getBookUri(),
                     entity.getCurrentPage(),
-                    entity.getTotalPages()
+                    entity.getTotalPages(),
+                    entity.getByteOffset(),
+                    entity.getCharOffset()
                 ));
             }
             result.postValue(progressList);
@@ -104,7 +137,9 @@ public class ReadingProgressRepository {
                     entity.getBookName(),
                     entity.getBookUri(),
                     entity.getCurrentPage(),
-                    entity.getTotalPages()
+                    entity.getTotalPages(),
+                    entity.getByteOffset(),
+                    entity.getCharOffset()
                 ));
             } else {
                 result.postValue(null);
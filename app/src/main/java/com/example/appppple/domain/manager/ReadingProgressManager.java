@@ -26,6 +26,13 @@ public class ReadingProgressManager {
         return repository.getProgress(bookUri);
     }
 
+    /**
+     * 同步读取阅读进度，用于打开书籍时在后台线程中先于解析读取保存的位置
+     */
+    public ReadingProgress getProgressSync(Uri bookUri) {
+        return repository.getProgressSync(bookUri);
+    }
+
     public static ReadingProgressManager getInstance(Context context) {
         if (instance == null) {
             instance = new ReadingProgressManager(context.getApplicationContext());
@@ -39,13 +46,26 @@ public class ReadingProgressManager {
         private final int currentPage;
         private final int totalPages;
         private final long lastReadTime;
+        private final long byteOffset;
+        private final long charOffset;
 
         public ReadingProgress(String bookName, Uri bookUri, int currentPage, int totalPages) {
+            this(bookName, bookUri, currentPage, totalPages, 0);
+        }
+
+        public ReadingProgress(String bookName, Uri bookUri, int currentPage, int totalPages, long byteOffset) {
+            this(bookName, bookUri, currentPage, totalPages, byteOffset, -1);
+        }
+
+        public ReadingProgress(String bookName, Uri bookUri, int currentPage, int totalPages,
+                               long byteOffset, long charOffset) {
             this.bookName = bookName;
             this.bookUri = bookUri;
             this.currentPage = currentPage;
             this.totalPages = totalPages;
             this.lastReadTime = System.currentTimeMillis();
+            this.byteOffset = byteOffset;
+            this.charOffset = charOffset;
         }
 
         public String getBookName() {
@@ -67,13 +87,34 @@ public class ReadingProgressManager {
         public long getLastReadTime() {
             return lastReadTime;
         }
+
+        /**
+         * 流式模式下的阅读位置（文件字节偏移），普通模式为 0
+         */
+        public long getByteOffset() {
+            return byteOffset;
+        }
+
+        /**
+         * 非流式模式下的阅读位置（源文件正文中的字符位置），未知时为 -1
+         */
+        public long getCharOffset() {
+            return charOffset;
+        }
     }
 
     /**
      * 保存阅读进度
      */
     public LiveData<Boolean> saveProgress(String bookName, Uri bookUri, int currentPage, int totalPages) {
-        LiveData<Boolean> result = repository.saveProgress(bookName, bookUri, currentPage, totalPages);
+        return saveProgress(bookName, bookUri, currentPage, totalPages, 0);
+    }
+
+    /**
+     * 保存阅读进度，同时记录流式模式下的字节位置
+     */
+    public LiveData<Boolean> saveProgress(String bookName, Uri bookUri, int currentPage, int totalPages, long byteOffset) {
+        LiveData<Boolean> result = repository.saveProgress(bookName, bookUri, currentPage, totalPages, byteOffset);
         result.observeForever(success -> {
             if (success) {
                 Log.d(TAG, String.format("保存阅读进度 - 书名: %s, 当前页: %d/%d", 
@@ -83,6 +124,22 @@ public class ReadingProgressManager {
         return result;
     }
 
+    /**
+     * 保存阅读进度，同时记录与分页无关的字节位置和字符位置
+     */
+    public LiveData<Boolean> saveProgress(String bookName, Uri bookUri, int currentPage, int totalPages,
+                                          long byteOffset, long charOffset) {
+        LiveData<Boolean> result = repository.saveProgress(bookName, bookUri, currentPage, totalPages,
+                byteOffset, charOffset);
+        result.observeForever(success -> {
+            if (success) {
+                Log.d(TAG, String.format("保存阅读进度 - 书名: %s, 当前页: %d/%d",
+                    bookName, currentPage, totalPages));
+            }
+        });
+        return result;
+    }
+
     /**
      * 获取所有阅读进度
      */
@@ -2,8 +2,15 @@ package com.example.appppple.domain.model;
 
 import android.net.Uri;
 import android.util.Log;
+
+import com.example.appppple.domain.pagination.PageBreaker;
+import com.example.appppple.domain.pagination.PaginationSession;
+import com.example.appppple.domain.parser.MappedTextSource;
+
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.List;
-import java.util.ArrayList;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -13,8 +20,9 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public class Book {
     private static final String TAG = "Book";
-    private static final int BUFFER_SIZE = 8192; // 8KB 缓冲区
-    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+    // 所有书籍共用的分页线程池，不同书籍的分页互不排队
+    private static final ExecutorService executor =
+            Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors() / 2));
 
     private String mTitle;
     private List<Chapter> mChapters;
@@ -24,11 +32,21 @@ public class Book {
     private int mLastReadPosition;
     private Uri mUri;
     private String mFileName;
-    private List<String> mPages;
+    private volatile PageIndex mPages;
     private AtomicInteger mTotalPages;
-    private boolean mIsPaginating;
+    // 分页代数，每次发起分页加一，只有当前代的结果才会写入 mPages
+    private int mGeneration;
+    private PaginationSession mSession;
+    // 流式模式下的内存映射文本源及当前解码窗口
+    private MappedTextSource mTextSource;
+    private MappedTextSource.Window mWindow;
+    // 延迟加载章节所依赖的文件（如 EPUB 归档），关闭书籍时释放
+    private Closeable mContentSource;
 
     public interface PaginationListener {
+        /**
+         * 每排 10 页回调一次，在分页线程中调用；调用很频繁，界面应按显示帧合并后再刷新
+         */
         void onPaginationProgress(int currentPage, int totalPages);
         void onPaginationComplete(List<String> pages);
         void onPaginationError(Exception e);
@@ -37,9 +55,8 @@ public class Book {
     public Book() {
         mLastReadTime = System.currentTimeMillis();
         mLastReadPosition = 0;
-        mPages = new ArrayList<>();
+        mPages = PageIndex.empty();
         mTotalPages = new AtomicInteger(0);
-        mIsPaginating = false;
     }
 
     public String getTitle() {
@@ -106,7 +123,10 @@ public class Book {
         this.mFileName = fileName;
     }
 
-    public List<String> getPages() {
+    /**
+     * @return 分页索引，页面文本在读取时才从正文中截取
+     */
+    public PageIndex getPages() {
         return mPages;
     }
 
@@ -114,15 +134,108 @@ public class Book {
         return mTotalPages.get();
     }
 
-    public boolean isPaginating() {
-        return mIsPaginating;
+    public synchronized boolean isPaginating() {
+        return mSession != null && !mSession.isDone();
+    }
+
+    /**
+     * 取消正在进行的分页
+     */
+    public synchronized void cancelPagination() {
+        if (mSession != null) {
+            mSession.cancel();
+        }
+    }
+
+    public MappedTextSource getTextSource() {
+        return mTextSource;
+    }
+
+    public void setTextSource(MappedTextSource textSource) {
+        this.mTextSource = textSource;
+    }
+
+    /**
+     * 是否为流式模式（正文按窗口从内存映射中解码）
+     */
+    public boolean isStreaming() {
+        return mTextSource != null;
+    }
+
+    /**
+     * 章节内容是否按需从可随机访问的文件（如 EPUB 归档）中加载
+     */
+    public boolean isLazy() {
+        return mContentSource != null;
+    }
+
+    /**
+     * 设置延迟加载章节所依赖的文件
+     */
+    public void setContentSource(Closeable contentSource) {
+        this.mContentSource = contentSource;
+    }
+
+    /**
+     * 取消分页并释放书籍打开的文件
+     */
+    public void close() throws IOException {
+        cancelPagination();
+        try {
+            if (mTextSource != null) {
+                mTextSource.close();
+            }
+        } finally {
+            if (mContentSource != null) {
+                mContentSource.close();
+            }
+        }
+    }
+
+    public MappedTextSource.Window getWindow() {
+        return mWindow;
+    }
+
+    /**
+     * 设置流式模式下当前解码的窗口，之后的 getContent 和 paginate 只针对该窗口
+     */
+    public void setWindow(MappedTextSource.Window window) {
+        this.mWindow = window;
+    }
+
+    /**
+     * 按字节位置二分查找所在章节，章节需按文件顺序排列且带有字节位置
+     * @param byteOffset 文件中的字节位置
+     * @return 章节索引，没有章节或位于第一个章节之前时返回 -1
+     */
+    public int findChapterIndexByByteOffset(long byteOffset) {
+        if (mChapters == null || mChapters.isEmpty()) {
+            return -1;
+        }
+        int low = 0;
+        int high = mChapters.size() - 1;
+        int result = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (mChapters.get(mid).getByteOffset() <= byteOffset) {
+                result = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return result;
     }
 
     /**
      * 获取书籍内容
-     * @return 所有章节内容的组合
+     * @return 所有章节内容的组合；流式模式下为当前窗口的内容
      */
     public String getContent() {
+        if (isStreaming()) {
+            return mWindow != null ? mWindow.getText() : "";
+        }
+
         if (mChapters == null || mChapters.isEmpty()) {
             return "";
         }
@@ -130,88 +243,139 @@ public class Book {
         StringBuilder content = new StringBuilder();
         for (Chapter chapter : mChapters) {
             content.append(chapter.getTitle()).append("\n\n");
-            content.append(chapter.getContent()).append("\n\n");
+            String chapterContent = chapter.getContent();
+            content.append(chapterContent != null ? chapterContent : "").append("\n\n");
         }
         return content.toString();
     }
 
     /**
-     * 将书籍内容分页
+     * 将书籍内容按字符数分页
      * @param charsPerPage 每页的字符数
      * @param listener 分页进度监听器
+     * @return 分页任务的句柄
      */
-    public void paginate(int charsPerPage, PaginationListener listener) {
+    public PaginationSession paginate(int charsPerPage, PaginationListener listener) {
         if (charsPerPage <= 0) {
             throw new IllegalArgumentException("每页字符数必须大于0");
         }
+        return paginate((content, start) -> findPageEnd(content, start, charsPerPage), listener);
+    }
+
+    /**
+     * 将书籍内容分页，正在进行的上一次分页会被取消
+     * @param pageBreaker 分页断点计算，在后台线程中调用
+     * @param listener 分页进度监听器，在分页线程中回调；任务取消或被新的分页取代后不再回调
+     * @return 分页任务的句柄
+     */
+    public PaginationSession paginate(PageBreaker pageBreaker, PaginationListener listener) {
+        if (pageBreaker == null) {
+            throw new IllegalArgumentException("分页断点计算不能为空");
+        }
 
-        if (mIsPaginating) {
-            Log.w(TAG, "分页正在进行中，忽略新的分页请求");
-            return;
+        PaginationSession session;
+        synchronized (this) {
+            if (mSession != null && !mSession.isDone()) {
+                Log.d(TAG, "取消上一次分页");
+                mSession.cancel();
+            }
+            session = new PaginationSession(++mGeneration);
+            mSession = session;
         }
+        session.setFuture(executor.submit(() -> runPagination(session, pageBreaker, listener)));
+        return session;
+    }
 
-        mIsPaginating = true;
-        executor.execute(() -> {
-            try {
-                String content = getContent();
-                if (content.isEmpty()) {
-                    mPages.clear();
-                    mTotalPages.set(0);
-                    if (listener != null) {
-                        listener.onPaginationComplete(mPages);
-                    }
-                    return;
+    private void runPagination(PaginationSession session, PageBreaker pageBreaker, PaginationListener listener) {
+        try {
+            session.checkCancelled();
+            String content = getContent();
+            if (content.isEmpty()) {
+                if (publish(session, PageIndex.empty()) && listener != null) {
+                    listener.onPaginationComplete(PageIndex.empty());
                 }
+                return;
+            }
 
-                List<String> newPages = new ArrayList<>();
-                int length = content.length();
-                int start = 0;
-                int pageCount = 0;
-
-                while (start < length) {
-                    int end = Math.min(start + charsPerPage, length);
-                    
-                    // 如果不是最后一页，尝试在合适的位置分页
-                    if (end < length) {
-                        // 查找最后一个换行符或空格
-                        int lastNewline = content.lastIndexOf('\n', end);
-                        int lastSpace = content.lastIndexOf(' ', end);
-                        
-                        // 选择最接近分页点的位置
-                        if (lastNewline > start && lastNewline > lastSpace) {
-                            end = lastNewline;
-                        } else if (lastSpace > start) {
-                            end = lastSpace;
-                        }
-                    }
-                    
-                    String page = content.substring(start, end).trim();
-                    newPages.add(page);
-                    pageCount++;
-                    
-                    // 每处理10页通知一次进度
-                    if (pageCount % 10 == 0 && listener != null) {
-                        final int currentPage = pageCount;
-                        listener.onPaginationProgress(currentPage, (int) Math.ceil((double) length / charsPerPage));
+            // 只记录每页的起止位置，不复制页面文本
+            int length = content.length();
+            int start = 0;
+            PageIndex.Builder newPages = new PageIndex.Builder(content, 16);
+
+            while (start < length) {
+                session.checkCancelled();
+                int end = Math.max(start + 1, pageBreaker.findPageEnd(content, start));
+                newPages.add(start, end);
+                int pageCount = newPages.size();
+
+                // 每处理10页通知一次进度，总页数按已分页部分的平均每页字符数估算
+                if (pageCount % 10 == 0) {
+                    int estimatedTotal = (int) Math.ceil((double) length * pageCount / end);
+                    session.updateProgress(pageCount, estimatedTotal);
+                    if (listener != null) {
+                        listener.onPaginationProgress(pageCount, estimatedTotal);
                     }
-                    
-                    start = end + 1;
                 }
 
-                mPages = newPages;
-                mTotalPages.set(pageCount);
-                
-                if (listener != null) {
-                    listener.onPaginationComplete(mPages);
-                }
-            } catch (Exception e) {
-                Log.e(TAG, "分页过程发生错误", e);
-                if (listener != null) {
-                    listener.onPaginationError(e);
-                }
-            } finally {
-                mIsPaginating = false;
+                // 下一页紧接着本页终点开始，页首的空白在建立索引时去掉
+                start = end;
+            }
+
+            PageIndex pages = newPages.build();
+            if (publish(session, pages) && listener != null) {
+                listener.onPaginationComplete(pages);
+            }
+        } catch (CancellationException e) {
+            Log.d(TAG, "分页已取消");
+        } catch (Exception e) {
+            Log.e(TAG, "分页过程发生错误", e);
+            if (listener != null && !session.isCancelled()) {
+                listener.onPaginationError(e);
             }
-        });
+        } finally {
+            session.finish();
+        }
     }
-} 
\ No newline at end of file
+
+    /**
+     * 只有当前代且未取消的分页结果才写入书籍
+     * @return 结果是否已采用
+     */
+    private synchronized boolean publish(PaginationSession session, PageIndex pages) {
+        if (session.isCancelled() || session.getGeneration() != mGeneration) {
+            Log.d(TAG, "丢弃过期的分页结果");
+            return false;
+        }
+        mPages = pages;
+        mTotalPages.set(pages.size());
+        session.updateProgress(pages.size(), pages.size());
+        return true;
+    }
+
+    /**
+     * 计算从 start 开始的一页的结束位置，尽量在换行符或空格处分页
+     * @param content 全部内容
+     * @param start 页起点
+     * @param charsPerPage 每页的字符数
+     */
+    public static int findPageEnd(String content, int start, int charsPerPage) {
+        int length = content.length();
+        int end = Math.min(start + charsPerPage, length);
+
+        // 如果不是最后一页，尝试在合适的位置分页
+        if (end < length) {
+            // 查找最后一个换行符或空格
+            int lastNewline = content.lastIndexOf('\n', end);
+            int lastSpace = content.lastIndexOf(' ', end);
+
+            // 选择最接近分页点的位置
+            if (lastNewline > start && lastNewline > lastSpace) {
+                end = lastNewline;
+            } else if (lastSpace > start) {
+                end = lastSpace;
+            }
+        }
+        return end;
+    }
+
+}
@@ -1,17 +1,54 @@
 package com.example.appppple.domain.model;
 
+import android.util.Log;
+
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+
 /**
  * 章节模型类
  */
 public class Chapter {
+    private static final String TAG = "Chapter";
+
     private String mTitle;
     private String mContent;
+    // 延迟加载：内容在第一次读取时才解压解析，内存紧张时可被回收，之后重新加载
+    private ContentLoader mContentLoader;
+    private SoftReference<String> mLoadedContent;
+    private long mByteOffset = -1; // 章节在源文件中的字节位置，未知时为 -1
+    private long mCharOffset = -1; // 章节在正文中的字符位置，未知时为 -1
+    private long mContentCharOffset = -1; // 章节内容第一个字符在正文中的字符位置，未知时为 -1
+    private long mLengthHint = -1; // 内容未加载时对其字符数的估计，未知时为 -1
 
     public Chapter(String title, String content) {
         this.mTitle = title;
         this.mContent = content;
     }
 
+    /**
+     * 章节内容加载器
+     */
+    public interface ContentLoader {
+        String load() throws IOException;
+    }
+
+    /**
+     * 创建延迟加载的章节
+     * @param title 章节标题
+     * @param loader 内容加载器，在第一次调用 getContent 时执行
+     */
+    public Chapter(String title, ContentLoader loader) {
+        this.mTitle = title;
+        this.mContentLoader = loader;
+    }
+
+    public Chapter(String title, String content, long byteOffset, long charOffset) {
+        this(title, content);
+        this.mByteOffset = byteOffset;
+        this.mCharOffset = charOffset;
+    }
+
     public String getTitle() {
         return mTitle;
     }
@@ -20,12 +57,85 @@ public class Chapter {
         this.mTitle = title;
     }
 
+    /**
+     * 获取章节内容，延迟加载的章节在第一次读取时加载
+     * @return 章节内容；加载失败时返回 null，不把失败当作空章节，之后再次调用会重新加载
+     */
     public String getContent() {
-        return mContent;
+        if (mContent != null || mContentLoader == null) {
+            return mContent;
+        }
+        return loadContent();
+    }
+
+    private synchronized String loadContent() {
+        String content = mLoadedContent != null ? mLoadedContent.get() : null;
+        if (content == null) {
+            try {
+                content = mContentLoader.load();
+            } catch (IOException e) {
+                Log.e(TAG, "加载章节失败: " + mTitle, e);
+                return null;
+            }
+            mLoadedContent = new SoftReference<>(content);
+        }
+        return content;
+    }
+
+    /**
+     * 是否为延迟加载且内容尚未读取
+     */
+    public boolean isContentLoaded() {
+        if (mContent != null || mContentLoader == null) {
+            return true;
+        }
+        return mLoadedContent != null && mLoadedContent.get() != null;
+    }
+
+    /**
+     * 内容的字符数，内容未加载时返回加载前的估计值，用于在分页前估算页数
+     * @return 字符数，未加载且没有估计值时返回 -1
+     */
+    public long getEstimatedLength() {
+        if (mContent != null) {
+            return mContent.length();
+        }
+        String loaded = mLoadedContent != null ? mLoadedContent.get() : null;
+        return loaded != null ? loaded.length() : mLengthHint;
+    }
+
+    public void setLengthHint(long lengthHint) {
+        this.mLengthHint = lengthHint;
     }
 
     public void setContent(String content) {
         this.mContent = content;
+        this.mContentLoader = null;
+        this.mLoadedContent = null;
+    }
+
+    public long getByteOffset() {
+        return mByteOffset;
+    }
+
+    public void setByteOffset(long byteOffset) {
+        this.mByteOffset = byteOffset;
+    }
+
+    public long getCharOffset() {
+        return mCharOffset;
+    }
+
+    public void setCharOffset(long charOffset) {
+        this.mCharOffset = charOffset;
+    }
+
+    public long getContentCharOffset() {
+        return mContentCharOffset;
+    }
+
+    public void setContentCharOffset(long contentCharOffset) {
+        this.mContentCharOffset = contentCharOffset;
     }
 
     /**
@@ -33,10 +143,7 @@ public class Chapter {
      * @param content 要追加的内容
      */
     public void appendContent(String content) {
-        if (mContent == null) {
-            mContent = content;
-        } else {
-            mContent += content;
-        }
+        String current = getContent();
+        setContent(current == null ? content : current + content);
     }
 } 
\ No newline at end of file
@@ -0,0 +1,182 @@
+package com.example.appppple.domain.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * 分页索引
+ * 以 int 数组保存每页在正文中的起止位置，页面文本在读取时才从正文中截取，
+ * 不再为每一页保留一份字符串副本。作为 List 使用时 get 返回去掉首尾空白的页面文本
+ */
+public class PageIndex extends AbstractList<String> implements RandomAccess {
+    private static final PageIndex EMPTY = new PageIndex("", new int[0], 0);
+
+    private final String mText;
+    // 第 i 页为 [mOffsets[2i], mOffsets[2i+1])，按起点递增
+    private final int[] mOffsets;
+    private final int mCount;
+
+    private PageIndex(String text, int[] offsets, int count) {
+        this.mText = text;
+        this.mOffsets = offsets;
+        this.mCount = count;
+    }
+
+    public static PageIndex empty() {
+        return EMPTY;
+    }
+
+    /**
+     * 由保存的页起止位置恢复分页索引
+     * @param text 正文，须与保存时分页所依据的正文相同
+     * @param offsets 依次为每页的起点和终点
+     * @throws IllegalArgumentException 位置越界或不是按页递增
+     */
+    public static PageIndex fromOffsets(String text, int[] offsets) {
+        if (offsets.length % 2 != 0) {
+            throw new IllegalArgumentException("页起止位置的个数必须为偶数");
+        }
+        int previousEnd = 0;
+        for (int i = 0; i < offsets.length; i += 2) {
+            if (offsets[i] < previousEnd || offsets[i + 1] <= offsets[i] || offsets[i + 1] > text.length()) {
+                throw new IllegalArgumentException("页起止位置无效: " + offsets[i] + "-" + offsets[i + 1]);
+            }
+            previousEnd = offsets[i + 1];
+        }
+        return new PageIndex(text, offsets.clone(), offsets.length / 2);
+    }
+
+    /**
+     * 页面文本
+     * @param index 页码
+     */
+    @Override
+    public String get(int index) {
+        checkIndex(index);
+        return mText.substring(mOffsets[2 * index], mOffsets[2 * index + 1]);
+    }
+
+    @Override
+    public int size() {
+        return mCount;
+    }
+
+    /**
+     * @return 页面在正文中的起点
+     */
+    public int getStart(int index) {
+        checkIndex(index);
+        return mOffsets[2 * index];
+    }
+
+    /**
+     * @return 页面在正文中的终点（不含）
+     */
+    public int getEnd(int index) {
+        checkIndex(index);
+        return mOffsets[2 * index + 1];
+    }
+
+    /**
+     * 分页所依据的正文
+     */
+    public String getText() {
+        return mText;
+    }
+
+    /**
+     * 二分查找字符位置所在的页
+     * @param charOffset 正文中的字符位置
+     * @return 起点不大于该位置的最后一页，没有页时返回 -1
+     */
+    public int findPage(int charOffset) {
+        if (mCount == 0) {
+            return -1;
+        }
+        int low = 0;
+        int high = mCount - 1;
+        int result = 0;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (mOffsets[2 * mid] <= charOffset) {
+                result = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return result;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= mCount) {
+            throw new IndexOutOfBoundsException("页码越界: " + index + ", 总页数: " + mCount);
+        }
+    }
+
+    /**
+     * 按顺序追加页面，构建分页索引
+     */
+    public static class Builder {
+        private final String mText;
+        private int[] mOffsets;
+        private int mCount;
+
+        /**
+         * @param text 正文
+         * @param expectedPages 预计的页数，用于确定初始容量
+         */
+        public Builder(String text, int expectedPages) {
+            this.mText = text;
+            this.mOffsets = new int[2 * Math.max(16, expectedPages)];
+        }
+
+        /**
+         * 追加一页，首尾空白不计入页面，与 String.trim 的规则一致；只有空白的范围不产生新页
+         * @param start 页起点
+         * @param end 页终点（不含）
+         */
+        public Builder add(int start, int end) {
+            while (start < end && mText.charAt(start) <= ' ') {
+                start++;
+            }
+            while (end > start && mText.charAt(end - 1) <= ' ') {
+                end--;
+            }
+            if (start == end) {
+                return this;
+            }
+            if (2 * mCount == mOffsets.length) {
+                mOffsets = Arrays.copyOf(mOffsets, mOffsets.length * 2);
+            }
+            mOffsets[2 * mCount] = start;
+            mOffsets[2 * mCount + 1] = end;
+            mCount++;
+            return this;
+        }
+
+        /**
+         * 追加另一个基于同一正文的分页索引中的全部页
+         */
+        public Builder addAll(PageIndex pages) {
+            if (pages.mText != mText) {
+                throw new IllegalArgumentException("分页索引的正文不同");
+            }
+            if (2 * (mCount + pages.mCount) > mOffsets.length) {
+                mOffsets = Arrays.copyOf(mOffsets, Math.max(mOffsets.length * 2, 2 * (mCount + pages.mCount)));
+            }
+            System.arraycopy(pages.mOffsets, 0, mOffsets, 2 * mCount, 2 * pages.mCount);
+            mCount += pages.mCount;
+            return this;
+        }
+
+        public int size() {
+            return mCount;
+        }
+
+        public PageIndex build() {
+            return new PageIndex(mText, Arrays.copyOf(mOffsets, 2 * mCount), mCount);
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package com.example.appppple.domain.pagination;
+
+import android.util.Log;
+
+import com.example.appppple.domain.model.Book;
+import com.example.appppple.domain.model.PageIndex;
+import com.example.appppple.util.ComputePool;
+import com.example.appppple.util.FrameCoalescer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 大文本多线程分块分页
+ * 文本在段落开头处切块，各块在共用的 ComputePool 中并行计算断点，再按顺序拼接并修正块之间的接缝，
+ * 结果与 Book.paginate 逐页顺序分页完全一致：
+ * 按行分页（LinePageBreaker）时各块只并行断行，拼接时按全书行号每隔固定行数切页；
+ * 其他分页方式下各块从块起点试探分页，拼接时从上一块溢出的位置顺序分页，直到与试探结果重合
+ */
+public class ConcurrentPaginator {
+    private static final String TAG = "ConcurrentPaginator";
+    private static final int DEFAULT_BLOCK_SIZE = 64 * 1024; // 默认每块字符数
+
+    /**
+     * 分块分页完成的回调接口，在主线程中按块的顺序回调；同一帧内完成的多个块在下一帧一并回调
+     */
+    public interface OnBlockReadyListener {
+        /**
+         * 某个块的接缝修正完成时回调
+         * @param blockIndex 块索引
+         * @param pages      本块新确定的页，跨越多个块的页归入其结束所在的块
+         */
+        void onBlockReady(int blockIndex, List<String> pages);
+
+        /**
+         * 全部块分页完成时回调
+         * @param allPages 所有页合并后的结果
+         */
+        void onAllBlocksReady(List<String> allPages);
+    }
+
+    // 原始待分页文本
+    private final String rawText;
+    // 分页断点计算
+    private final PageBreaker pageBreaker;
+    // 各块在原始文本中的起点，均为段落开头
+    private final int[] blockStarts;
+    // 待回调的分块结果，每帧在主线程中统一取出回调
+    private final ConcurrentLinkedQueue<Runnable> pendingCallbacks = new ConcurrentLinkedQueue<>();
+    // 按帧向主线程投递回调，只在 startPaging 时创建，同步分页不需要
+    private volatile FrameCoalescer callbackDispatcher;
+    // 分块完成回调
+    private volatile OnBlockReadyListener blockReadyListener;
+    // 是否已停止分页
+    private volatile boolean cancelled = false;
+
+    /**
+     * 按字符数分页，断点规则与 Book.findPageEnd 相同
+     * @param rawText      原始文本
+     * @param charsPerPage 单页字符数
+     * @param blockSize    单块字符数
+     */
+    public ConcurrentPaginator(String rawText, int charsPerPage, int blockSize) {
+        this(rawText, (text, start) -> Book.findPageEnd(text, start, charsPerPage), blockSize);
+        if (charsPerPage <= 0) {
+            throw new IllegalArgumentException("每页字符数必须大于0");
+        }
+    }
+
+    public ConcurrentPaginator(String rawText, PageBreaker pageBreaker) {
+        this(rawText, pageBreaker, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * 构造方法
+     * @param rawText     原始文本
+     * @param pageBreaker 分页断点计算，会在多个线程中同时调用
+     * @param blockSize   单块的大致字符数，实际在其后的第一个段落开头处切块
+     */
+    public ConcurrentPaginator(String rawText, PageBreaker pageBreaker, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("块大小必须大于0");
+        }
+        this.rawText = rawText;
+        this.pageBreaker = pageBreaker;
+        this.blockStarts = splitTextToBlocks(rawText, blockSize);
+    }
+
+    /**
+     * 设置分块分页完成的回调
+     * @param listener 回调接口
+     */
+    public void setOnBlockReadyListener(OnBlockReadyListener listener) {
+        this.blockReadyListener = listener;
+    }
+
+    /**
+     * @return 块总数
+     */
+    public int getBlockCount() {
+        return blockStarts.length;
+    }
+
+    /**
+     * 在后台启动并发分页，进度和结果通过 OnBlockReadyListener 回调
+     */
+    public void startPaging() {
+        callbackDispatcher = new FrameCoalescer(this::dispatchCallbacks);
+        ComputePool.get().execute(new PaginateTask(true));
+    }
+
+    /**
+     * 同步分页，阻塞到全部完成，不回调监听器
+     * @return 完整的分页索引
+     * @throws CancellationException 分页已停止
+     */
+    public PageIndex paginate() {
+        return ComputePool.get().invoke(new PaginateTask(false));
+    }
+
+    /**
+     * 停止分页，已提交的任务在下一行或下一页处退出
+     */
+    public void shutdown() {
+        cancelled = true;
+        FrameCoalescer dispatcher = callbackDispatcher;
+        if (dispatcher != null) {
+            dispatcher.cancel();
+        }
+        pendingCallbacks.clear();
+    }
+
+    /**
+     * 在后台线程中提交回调，合并到下一帧执行
+     */
+    private void postCallback(Runnable callback) {
+        pendingCallbacks.add(callback);
+        callbackDispatcher.request();
+    }
+
+    private void dispatchCallbacks() {
+        Runnable callback;
+        while (!cancelled && (callback = pendingCallbacks.poll()) != null) {
+            callback.run();
+        }
+    }
+
+    /**
+     * 在段落开头处将文本切分为多个块
+     * @param text      原始文本
+     * @param blockSize 单块大小
+     * @return 各块的起点
+     */
+    private static int[] splitTextToBlocks(String text, int blockSize) {
+        int len = text.length();
+        if (len == 0) {
+            return new int[0];
+        }
+        int[] starts = new int[len / blockSize + 1];
+        int count = 0;
+        starts[count++] = 0;
+        int position = blockSize;
+        while (position < len) {
+            int newline = text.indexOf('\n', position);
+            if (newline < 0 || newline + 1 >= len) {
+                break;
+            }
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+            }
+            starts[count++] = newline + 1;
+            position = newline + 1 + blockSize;
+        }
+        return Arrays.copyOf(starts, count);
+    }
+
+    private int blockEnd(int index) {
+        return index + 1 < blockStarts.length ? blockStarts[index + 1] : rawText.length();
+    }
+
+    private void checkCancelled() {
+        if (cancelled) {
+            throw new CancellationException("分页已停止");
+        }
+    }
+
+    /**
+     * 分页主任务：并行计算各块的断点，再在当前线程中按顺序拼接
+     */
+    private class PaginateTask extends RecursiveTask<PageIndex> {
+        private final boolean notifyListener;
+
+        PaginateTask(boolean notifyListener) {
+            this.notifyListener = notifyListener;
+        }
+
+        @Override
+        protected PageIndex compute() {
+            try {
+                PageIndex allPages = stitch(scanBlocks());
+                OnBlockReadyListener listener = blockReadyListener;
+                if (notifyListener && listener != null && !cancelled) {
+                    postCallback(() -> listener.onAllBlocksReady(allPages));
+                }
+                return allPages;
+            } catch (CancellationException e) {
+                Log.d(TAG, "分页已停止");
+                throw e;
+            } catch (RuntimeException e) {
+                Log.e(TAG, "分页过程发生错误", e);
+                throw e;
+            }
+        }
+
+        private List<ScanTask> scanBlocks() {
+            boolean byLine = pageBreaker instanceof LinePageBreaker;
+            List<ScanTask> tasks = new ArrayList<>(blockStarts.length);
+            for (int i = 0; i < blockStarts.length; i++) {
+                tasks.add(new ScanTask(i, byLine));
+            }
+            // 倒序提交，当前线程拼接时先取到靠前的块，空闲线程从队列另一端窃取靠后的块
+            for (int i = tasks.size() - 1; i >= 0; i--) {
+                tasks.get(i).fork();
+            }
+            return tasks;
+        }
+
+        private PageIndex stitch(List<ScanTask> tasks) {
+            PageIndex.Builder allPages = new PageIndex.Builder(rawText, 16);
+            if (pageBreaker instanceof LinePageBreaker) {
+                int linesPerPage = Math.max(1, ((LinePageBreaker) pageBreaker).getLinesPerPage());
+                int lineCount = 0;
+                int pageStart = -1;
+                for (int i = 0; i < tasks.size(); i++) {
+                    int[] lineStarts = tasks.get(i).join();
+                    checkCancelled();
+                    PageIndex.Builder blockPages = new PageIndex.Builder(rawText, lineStarts.length / linesPerPage + 1);
+                    // 全书的第 0、L、2L... 行是页的起点
+                    for (int lineStart : lineStarts) {
+                        if (lineCount % linesPerPage == 0) {
+                            if (pageStart >= 0) {
+                                blockPages.add(pageStart, lineStart);
+                            }
+                            pageStart = lineStart;
+                        }
+                        lineCount++;
+                    }
+                    if (i == tasks.size() - 1 && pageStart >= 0) {
+                        blockPages.add(pageStart, rawText.length());
+                    }
+                    onBlockStitched(i, blockPages.build(), allPages);
+                }
+            } else {
+                int position = 0;
+                for (int i = 0; i < tasks.size(); i++) {
+                    int[] bounds = tasks.get(i).join();
+                    int end = blockEnd(i);
+                    PageIndex.Builder blockPages = new PageIndex.Builder(rawText, bounds.length);
+                    while (position < end) {
+                        checkCancelled();
+                        int match = Arrays.binarySearch(bounds, 0, bounds.length - 1, position);
+                        if (match >= 0) {
+                            // 与试探分页重合，此后的断点完全相同
+                            for (int j = match; j < bounds.length - 1; j++) {
+                                blockPages.add(bounds[j], bounds[j + 1]);
+                            }
+                            position = bounds[bounds.length - 1];
+                            break;
+                        }
+                        int pageEnd = Math.max(position + 1, pageBreaker.findPageEnd(rawText, position));
+                        blockPages.add(position, pageEnd);
+                        position = pageEnd;
+                    }
+                    onBlockStitched(i, blockPages.build(), allPages);
+                }
+            }
+            return allPages.build();
+        }
+
+        private void onBlockStitched(int index, PageIndex blockPages, PageIndex.Builder allPages) {
+            allPages.addAll(blockPages);
+            OnBlockReadyListener listener = blockReadyListener;
+            if (notifyListener && listener != null) {
+                postCallback(() -> listener.onBlockReady(index, blockPages));
+            }
+        }
+    }
+
+    /**
+     * 计算单个块内的断点
+     * 按行分页时为块内每一行的起点；否则为从块起点开始试探分页得到的各页起点，
+     * 最后一个元素是越过块终点的第一页终点
+     */
+    private class ScanTask extends RecursiveTask<int[]> {
+        private final int index;
+        private final boolean byLine;
+
+        ScanTask(int index, boolean byLine) {
+            this.index = index;
+            this.byLine = byLine;
+        }
+
+        @Override
+        protected int[] compute() {
+            int start = blockStarts[index];
+            int end = blockEnd(index);
+            int[] bounds = new int[64];
+            int count = 0;
+            int position = start;
+            while (position < end) {
+                checkCancelled();
+                if (count == bounds.length) {
+                    bounds = Arrays.copyOf(bounds, count * 2);
+                }
+                bounds[count++] = position;
+                position = byLine
+                        ? Math.max(position + 1, ((LinePageBreaker) pageBreaker).findLineEnd(rawText, position))
+                        : Math.max(position + 1, pageBreaker.findPageEnd(rawText, position));
+            }
+            if (!byLine) {
+                if (count == bounds.length) {
+                    bounds = Arrays.copyOf(bounds, count + 1);
+                }
+                bounds[count++] = position;
+            }
+            return Arrays.copyOf(bounds, count);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.appppple.domain.pagination;
+
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.os.LocaleList;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 字形宽度缓存
+ * 中日韩文字和全角标点的宽度与上下文无关，测量一次后保存在按高位字节分页的 float 表中，
+ * 之后排版一行时在 Java 层累加宽度，不再逐行调用 Paint。
+ * 同一字体、字号、字间距等参数共享一个缓存，可以在多个线程中同时使用
+ */
+public class GlyphAdvanceCache {
+    private static final int PAGE_SHIFT = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final Map<Key, GlyphAdvanceCache> CACHES = new ConcurrentHashMap<>();
+
+    // 按字符高 8 位分页，只为实际出现过的区段分配 256 个 float，未测量的位置为 NaN
+    private final AtomicReferenceArray<float[]> mPages = new AtomicReferenceArray<>(PAGE_SIZE);
+
+    private GlyphAdvanceCache() {
+    }
+
+    /**
+     * 获取与画笔参数对应的缓存
+     * @param paint 画笔，只读取字体相关的参数
+     */
+    public static GlyphAdvanceCache forPaint(Paint paint) {
+        Key key = new Key(paint);
+        GlyphAdvanceCache cache = CACHES.get(key);
+        if (cache == null) {
+            cache = new GlyphAdvanceCache();
+            GlyphAdvanceCache existing = CACHES.putIfAbsent(key, cache);
+            if (existing != null) {
+                cache = existing;
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * 字符的宽度是否与前后文无关，可以缓存后直接累加
+     * 拉丁字母存在字偶距调整，复杂文字存在连写，这些字符仍交给 Paint 整行测量
+     */
+    public static boolean isCacheable(char c) {
+        return (c >= 0x4E00 && c <= 0x9FFF)     // 中日韩统一表意文字
+                || (c >= 0x3400 && c <= 0x4DBF) // 扩展 A
+                || (c >= 0x3000 && c <= 0x30FF) // 中日韩符号和标点、平假名、片假名
+                || (c >= 0xFF01 && c <= 0xFF5E) // 全角 ASCII
+                || (c >= 0x2010 && c <= 0x2027) // 破折号、引号、省略号
+                || (c >= 0xAC00 && c <= 0xD7A3); // 韩文音节
+    }
+
+    /**
+     * 计算从 start 开始一行最多能放下的字符数，规则与 Paint.breakText 向前测量一致
+     * @param paint 当前线程的画笔，缓存未命中时用于测量
+     * @param text 文本
+     * @param start 行起点
+     * @param end 最远可以到达的位置
+     * @param maxWidth 行宽
+     * @return 能放下的字符数；遇到不可缓存的字符而无法确定时返回 -1
+     */
+    public int fitChars(Paint paint, String text, int start, int end, float maxWidth) {
+        float width = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (!isCacheable(c)) {
+                return -1;
+            }
+            width += advance(paint, c);
+            if (width > maxWidth) {
+                return i - start;
+            }
+        }
+        return end - start;
+    }
+
+    private float advance(Paint paint, char c) {
+        int pageIndex = c >>> PAGE_SHIFT;
+        float[] page = mPages.get(pageIndex);
+        if (page == null) {
+            float[] newPage = new float[PAGE_SIZE];
+            Arrays.fill(newPage, Float.NaN);
+            page = mPages.compareAndSet(pageIndex, null, newPage) ? newPage : mPages.get(pageIndex);
+        }
+        float advance = page[c & (PAGE_SIZE - 1)];
+        if (Float.isNaN(advance)) {
+            // 多个线程同时测量同一字符时结果相同，重复写入无害
+            advance = paint.measureText(String.valueOf(c));
+            page[c & (PAGE_SIZE - 1)] = advance;
+        }
+        return advance;
+    }
+
+    /**
+     * 影响字形宽度的画笔参数
+     */
+    private static final class Key {
+        private final Typeface mTypeface;
+        private final float mTextSize;
+        private final float mTextScaleX;
+        private final float mTextSkewX;
+        private final float mLetterSpacing;
+        private final int mFlags;
+        private final LocaleList mLocales;
+
+        Key(Paint paint) {
+            this.mTypeface = paint.getTypeface();
+            this.mTextSize = paint.getTextSize();
+            this.mTextScaleX = paint.getTextScaleX();
+            this.mTextSkewX = paint.getTextSkewX();
+            this.mLetterSpacing = paint.getLetterSpacing();
+            this.mFlags = paint.getFlags() & (Paint.FAKE_BOLD_TEXT_FLAG | Paint.LINEAR_TEXT_FLAG
+                    | Paint.SUBPIXEL_TEXT_FLAG);
+            this.mLocales = paint.getTextLocales();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return mTypeface == other.mTypeface
+                    && mTextSize == other.mTextSize
+                    && mTextScaleX == other.mTextScaleX
+                    && mTextSkewX == other.mTextSkewX
+                    && mLetterSpacing == other.mLetterSpacing
+                    && mFlags == other.mFlags
+                    && Objects.equals(mLocales, other.mLocales);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(mTypeface), mTextSize, mTextScaleX, mTextSkewX,
+                    mLetterSpacing, mFlags, mLocales);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.appppple.domain.pagination;
+
+import com.example.appppple.domain.model.PageIndex;
+
+/**
+ * 以阅读位置为锚点的增量分页
+ * 正文很长时先从锚点之前不远的段落开头试排锚点附近的一段，立即回调这些页用于显示；
+ * 再由 ConcurrentPaginator 分块并行排完全文，各分块的接缝从上一块的最后一页起重排，直到与已排的页起点重合。
+ * 完整结果与从头逐页顺序分页一致，与锚点的位置无关；试排的页只用于预览，页起点可能与完整结果不同
+ */
+public class IncrementalPaginator {
+    private static final int PARALLEL_CHARS = 128 * 1024; // 正文超过该长度时先试排锚点附近再并行分页
+    private static final int PREVIEW_CHARS = 32 * 1024; // 锚点前后各试排的大致字符数
+
+    private final String mText;
+    private final PageBreaker mPageBreaker;
+    private final int mAnchor;
+
+    /**
+     * 分页进度监听器，在分页线程中回调
+     */
+    public interface Listener {
+        /**
+         * 锚点附近的页已试排好
+         * @param pages 试排的连续页
+         * @param anchorIndex 锚点所在的页在 pages 中的位置
+         * @param estimatedAnchorPage 按试排部分的平均每页字符数估算的锚点页码
+         * @param estimatedTotalPages 估算的总页数
+         */
+        void onPagesReady(PageIndex pages, int anchorIndex, int estimatedAnchorPage, int estimatedTotalPages);
+    }
+
+    /**
+     * @param text 正文
+     * @param pageBreaker 分页断点计算，正文很长时会在多个线程中同时调用
+     * @param anchor 锚点在正文中的位置，只决定先试排哪一段，不影响分页结果
+     */
+    public IncrementalPaginator(String text, PageBreaker pageBreaker, int anchor) {
+        this.mText = text;
+        this.mPageBreaker = pageBreaker;
+        this.mAnchor = Math.max(0, Math.min(anchor, text.length()));
+    }
+
+    /**
+     * 执行分页
+     * @param listener 锚点附近的页试排好时回调，正文不长时不回调，可以为 null
+     * @return 完整的分页索引
+     */
+    public PageIndex run(Listener listener) {
+        if (mText.length() <= PARALLEL_CHARS) {
+            return paginate(0, mText.length());
+        }
+        if (listener != null) {
+            notifyPreview(listener);
+        }
+        return new ConcurrentPaginator(mText, mPageBreaker).paginate();
+    }
+
+    /**
+     * 从锚点之前约 PREVIEW_CHARS 处的段落开头试排到锚点之后约 PREVIEW_CHARS 处
+     */
+    private void notifyPreview(Listener listener) {
+        int start = mAnchor <= PREVIEW_CHARS ? 0 : mText.lastIndexOf('\n', mAnchor - PREVIEW_CHARS) + 1;
+        PageIndex pages = paginate(start, Math.min(mText.length(), mAnchor + PREVIEW_CHARS));
+        if (pages.isEmpty()) {
+            return;
+        }
+        int anchorIndex = ShardedPaginator.findPage(pages, mAnchor);
+        int pagedChars = pages.getEnd(pages.size() - 1) - start;
+        double charsPerPage = Math.max(1.0, (double) pagedChars / pages.size());
+        int estimatedAnchorPage = (int) (start / charsPerPage) + anchorIndex;
+        int estimatedTotalPages = Math.max(estimatedAnchorPage + pages.size() - anchorIndex,
+                (int) Math.ceil(mText.length() / charsPerPage));
+        listener.onPagesReady(pages, anchorIndex, estimatedAnchorPage, estimatedTotalPages);
+    }
+
+    /**
+     * 从 start 起逐页顺序分页，直到越过 end，最后一页不在 end 处截断
+     */
+    private PageIndex paginate(int start, int end) {
+        PageIndex.Builder builder = new PageIndex.Builder(mText, 16);
+        int position = start;
+        while (position < end) {
+            int pageEnd = Math.max(position + 1, mPageBreaker.findPageEnd(mText, position));
+            builder.add(position, pageEnd);
+            position = pageEnd;
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.appppple.domain.pagination;
+
+/**
+ * 按行分页的断点计算
+ * 每页固定为若干行，一行的断点只取决于行起点，段落开头总是一行的起点。
+ * 因此各段落可以独立断行，再按全书的行号每隔固定行数切页，结果与逐页调用 findPageEnd 一致
+ */
+public interface LinePageBreaker extends PageBreaker {
+    /**
+     * @return 每页的行数
+     */
+    int getLinesPerPage();
+
+    /**
+     * 计算从 start 开始的一行的结束位置
+     * @param text 全部内容
+     * @param start 行起点
+     * @return 下一行的起点，行在段落末尾结束时跳过换行符；start 小于文本长度时必须大于 start
+     */
+    int findLineEnd(String text, int start);
+}
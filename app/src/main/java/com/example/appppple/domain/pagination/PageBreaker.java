@@ -0,0 +1,15 @@
+package com.example.appppple.domain.pagination;
+
+/**
+ * 分页断点计算
+ * 实现需要可以在多个线程中同时调用
+ */
+public interface PageBreaker {
+    /**
+     * 计算从 start 开始的一页的结束位置
+     * @param text 全部内容
+     * @param start 页起点
+     * @return 页终点（不含），start 小于文本长度时必须大于 start
+     */
+    int findPageEnd(String text, int start);
+}
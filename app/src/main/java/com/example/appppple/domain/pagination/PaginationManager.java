@@ -1,104 +1,244 @@
 // domain/pagination/PaginationManager.java
 package com.example.appppple.domain.pagination;
 
-import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.os.Build;
+import android.text.Layout;
+import android.text.StaticLayout;
 import android.text.TextPaint;
-import android.text.TextUtils;
-
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * 文本分页管理器
+ * 按显示区域的实际宽高和字体逐行测量文本，计算每页能容纳的内容。
+ * 换行规则与 TextView 的 BREAK_STRATEGY_SIMPLE 保持一致：西文不在单词中间断开，
+ * 行首不出现闭合标点，行尾不出现开启标点，行尾空格不占宽度。
+ * 中日韩文字的宽度取自 GlyphAdvanceCache 在 Java 层累加，只有缓存未命中和含西文等复杂文字的行才调用 Paint。
+ * 每个线程使用独立的 TextPaint 副本，可以在多个后台线程中同时分页
  */
-public class PaginationManager {
+public class PaginationManager implements LinePageBreaker {
+    // 不能出现在行首的标点
+    private static final String LINE_START_FORBIDDEN = "，。、；：？！）》」』】〕〉”’…—,.;:?!)]}%";
+    // 不能出现在行尾的标点
+    private static final String LINE_END_FORBIDDEN = "（《「『【〔〈“‘([{";
+    // 兜底留出的宽度，吸收测量与实际绘制之间的舍入误差
+    private static final float WIDTH_MARGIN = 1f;
+
     private final TextPaint mPaint;
-    private final int mPageWidth;
-    private final int mPageHeight;
-    private final float mLineSpacingExtra;
-    private final float mLineSpacingMultiplier;
+    private final float mPageWidth;
+    private final int mLinesPerPage;
+    private final int mMaxLineChars;
+    private final GlyphAdvanceCache mAdvanceCache;
+    private final String mLayoutKey;
+    private volatile boolean mAdvanceCacheEnabled = true;
+    private final ThreadLocal<TextPaint> mWorkerPaint = new ThreadLocal<TextPaint>() {
+        @Override
+        protected TextPaint initialValue() {
+            return new TextPaint(mPaint);
+        }
+    };
 
     public PaginationManager(TextPaint paint, int pageWidth, int pageHeight) {
         this(paint, pageWidth, pageHeight, 0, 1.0f);
     }
 
-    public PaginationManager(TextPaint paint, int pageWidth, int pageHeight, 
+    public PaginationManager(TextPaint paint, int pageWidth, int pageHeight,
                            float lineSpacingExtra, float lineSpacingMultiplier) {
-        this.mPaint = paint;
-        this.mPageWidth = pageWidth;
-        this.mPageHeight = pageHeight;
-        this.mLineSpacingExtra = lineSpacingExtra;
-        this.mLineSpacingMultiplier = lineSpacingMultiplier;
+        this(paint, pageWidth, pageHeight, lineSpacingExtra, lineSpacingMultiplier, true, false);
     }
 
     /**
-     * 将文本分页
-     * @param text 要分页的文本
-     * @return 分页后的文本列表
+     * @param paint 显示文本所用的画笔，会复制一份，之后对原画笔的修改不影响分页
+     * @param pageWidth 可用于文字的宽度（已去掉内边距）
+     * @param pageHeight 可用于文字的高度（已去掉内边距）
+     * @param lineSpacingExtra 行间距
+     * @param lineSpacingMultiplier 行距倍数
+     * @param includeFontPadding 与 TextView 的 includeFontPadding 一致
+     * @param fallbackLineSpacing 与 TextView 的 fallbackLineSpacing 一致
      */
-    public List<String> paginate(String text) {
-        if (TextUtils.isEmpty(text)) {
-            return new ArrayList<>();
+    public PaginationManager(TextPaint paint, int pageWidth, int pageHeight,
+                             float lineSpacingExtra, float lineSpacingMultiplier,
+                             boolean includeFontPadding, boolean fallbackLineSpacing) {
+        if (pageWidth <= 0 || pageHeight <= 0) {
+            throw new IllegalArgumentException("页面尺寸必须大于0");
         }
+        this.mPaint = new TextPaint(paint);
+        this.mPageWidth = Math.max(1f, pageWidth - WIDTH_MARGIN);
+        this.mLinesPerPage = measureLinesPerPage(mPaint, pageWidth, pageHeight,
+                lineSpacingExtra, lineSpacingMultiplier, includeFontPadding, fallbackLineSpacing);
+        // 每次测量只复制一行可能容纳的最多字符，避免把整段文字交给 breakText
+        float narrowest = Math.max(1f, mPaint.measureText("."));
+        this.mMaxLineChars = Math.max(16, (int) Math.ceil(mPageWidth / narrowest) + 1);
+        this.mAdvanceCache = GlyphAdvanceCache.forPaint(mPaint);
+        this.mLayoutKey = layoutKey(mPaint, pageWidth, pageHeight, lineSpacingExtra, lineSpacingMultiplier,
+                includeFontPadding, fallbackLineSpacing);
+    }
 
-        List<String> pages = new ArrayList<>();
-        StringBuilder currentPage = new StringBuilder();
-        float currentHeight = 0;
-        float lineHeight = mPaint.getFontMetrics(null) * mLineSpacingMultiplier + mLineSpacingExtra;
-
-        // 按行分割文本
-        String[] lines = text.split("\n");
-        for (String line : lines) {
-            // 如果当前行是空行，直接添加
-            if (line.trim().isEmpty()) {
-                currentPage.append("\n");
-                currentHeight += lineHeight;
-                continue;
-            }
+    /**
+     * 影响断点的全部排版参数：字号、字体、字距、行距和页面尺寸
+     */
+    private static String layoutKey(TextPaint paint, int width, int height, float spacingExtra,
+                                    float spacingMultiplier, boolean includePad, boolean fallbackLineSpacing) {
+        Typeface typeface = paint.getTypeface();
+        String font = typeface == null ? "default" : String.valueOf(typeface.getStyle());
+        if (typeface != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            font += "/" + typeface.getWeight();
+        }
+        return "size=" + paint.getTextSize()
+                + ",font=" + font
+                + ",bold=" + paint.isFakeBoldText()
+                + ",scaleX=" + paint.getTextScaleX()
+                + ",skewX=" + paint.getTextSkewX()
+                + ",letterSpacing=" + paint.getLetterSpacing()
+                + ",locale=" + paint.getTextLocale()
+                + ",spacing=" + spacingExtra + "x" + spacingMultiplier
+                + ",pad=" + includePad
+                + ",fallback=" + fallbackLineSpacing
+                + ",page=" + width + "x" + height;
+    }
 
-            // 测量当前行的宽度
-            float lineWidth = mPaint.measureText(line);
-            
-            // 如果行宽度超过页面宽度，需要换行
-            if (lineWidth > mPageWidth) {
-                // 计算每行可以容纳的字符数
-                int charsPerLine = (int) (mPageWidth / mPaint.measureText("中")); // 使用中文字符作为基准
-                
-                // 将长行分割成多行
-                int start = 0;
-                while (start < line.length()) {
-                    int end = Math.min(start + charsPerLine, line.length());
-                    String subLine = line.substring(start, end);
-                    
-                    // 检查是否需要换页
-                    if (currentHeight + lineHeight > mPageHeight) {
-                        pages.add(currentPage.toString());
-                        currentPage = new StringBuilder();
-                        currentHeight = 0;
-                    }
-                    
-                    currentPage.append(subLine).append("\n");
-                    currentHeight += lineHeight;
-                    start = end;
-                }
-            } else {
-                // 检查是否需要换页
-                if (currentHeight + lineHeight > mPageHeight) {
-                    pages.add(currentPage.toString());
-                    currentPage = new StringBuilder();
-                    currentHeight = 0;
-                }
-                
-                currentPage.append(line).append("\n");
-                currentHeight += lineHeight;
+    /**
+     * 排版参数的标识，参数相同时分页结果相同，用作分页缓存的键
+     */
+    public String getLayoutKey() {
+        return mLayoutKey;
+    }
+
+    /**
+     * 是否使用字形宽度缓存，默认开启；关闭后每行都由 Paint 测量，用于对比和排查
+     */
+    public void setAdvanceCacheEnabled(boolean enabled) {
+        this.mAdvanceCacheEnabled = enabled;
+    }
+
+    /**
+     * 用一段三行的样例文本按 TextView 相同的参数排版，得到首行、中间行和末行的高度，
+     * 再计算页面能容纳的行数。样例同时包含中西文，启用回退字体行高时按较高的中文字体计算
+     */
+    private static int measureLinesPerPage(TextPaint paint, int width, int height, float spacingExtra,
+                                           float spacingMultiplier, boolean includePad, boolean fallbackLineSpacing) {
+        String sample = "中Ag\n中Ag\n中Ag";
+        StaticLayout.Builder builder = StaticLayout.Builder.obtain(sample, 0, sample.length(), paint, width)
+                .setLineSpacing(spacingExtra, spacingMultiplier)
+                .setIncludePad(includePad)
+                .setBreakStrategy(Layout.BREAK_STRATEGY_SIMPLE);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            builder.setUseLineSpacingFromFallbacks(fallbackLineSpacing);
+        }
+        StaticLayout layout = builder.build();
+
+        int first = layout.getLineTop(1);
+        int middle = layout.getLineTop(2) - layout.getLineTop(1);
+        int last = layout.getHeight() - layout.getLineTop(2);
+        if (height < first + last) {
+            return 1;
+        }
+        return 2 + (height - first - last) / Math.max(1, middle);
+    }
+
+    @Override
+    public int getLinesPerPage() {
+        return mLinesPerPage;
+    }
+
+    /**
+     * 估算每页的字符数（按满行中文计算），用于流式模式下页码与位置的换算
+     */
+    public int estimateCharsPerPage() {
+        float charWidth = Math.max(1f, mPaint.measureText("中"));
+        return Math.max(1, mLinesPerPage * Math.max(1, (int) (mPageWidth / charWidth)));
+    }
+
+    @Override
+    public int findPageEnd(String text, int start) {
+        TextPaint paint = mWorkerPaint.get();
+        int length = text.length();
+        int position = start;
+        int lines = 0;
+        while (position < length && lines < mLinesPerPage) {
+            position = nextLine(paint, text, position);
+            lines++;
+        }
+        return position;
+    }
+
+    @Override
+    public int findLineEnd(String text, int start) {
+        return nextLine(mWorkerPaint.get(), text, start);
+    }
+
+    /**
+     * @return 下一行的起点，空段落也占一行
+     */
+    private int nextLine(TextPaint paint, String text, int position) {
+        int length = text.length();
+        int paragraphEnd = text.indexOf('\n', position);
+        if (paragraphEnd < 0) {
+            paragraphEnd = length;
+        }
+        if (paragraphEnd > position) {
+            position = breakLine(paint, text, position, paragraphEnd);
+        }
+        if (position == paragraphEnd && position < length) {
+            // 段落结束，跳过换行符
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * 计算一行的结束位置
+     * @param start 行起点
+     * @param paragraphEnd 所在段落的终点
+     * @return 行终点，下一行从这里开始
+     */
+    private int breakLine(TextPaint paint, String text, int start, int paragraphEnd) {
+        int measureEnd = Math.min(paragraphEnd, start + mMaxLineChars);
+        int count = mAdvanceCacheEnabled
+                ? mAdvanceCache.fitChars(paint, text, start, measureEnd, mPageWidth) : -1;
+        if (count < 0) {
+            count = paint.breakText(text, start, measureEnd, true, mPageWidth, null);
+        }
+        if (count == measureEnd - start && measureEnd < paragraphEnd) {
+            // 含有大量零宽字符时一行可能超过预估的字符数，改为测量整段
+            count = paint.breakText(text, start, paragraphEnd, true, mPageWidth, null);
+        }
+
+        int end = start + Math.max(1, count);
+        if (end >= paragraphEnd) {
+            return paragraphEnd;
+        }
+
+        // 不拆开代理对
+        if (Character.isHighSurrogate(text.charAt(end - 1)) && end - 1 > start) {
+            end--;
+        }
+
+        char last = text.charAt(end - 1);
+        char next = text.charAt(end);
+        if (isWordChar(last) && isWordChar(next)) {
+            // 西文单词整体移到下一行，单词比一行还长时才在中间断开
+            int wordStart = end - 1;
+            while (wordStart > start && isWordChar(text.charAt(wordStart - 1))) {
+                wordStart--;
+            }
+            if (wordStart > start) {
+                end = wordStart;
             }
+        } else if (end - 1 > start && (LINE_START_FORBIDDEN.indexOf(next) >= 0
+                || LINE_END_FORBIDDEN.indexOf(last) >= 0)) {
+            // 标点禁则：把上一个字符一起移到下一行
+            end--;
         }
 
-        // 添加最后一页
-        if (currentPage.length() > 0) {
-            pages.add(currentPage.toString());
+        // 行尾的空格不占宽度，下一行从空格之后开始
+        while (end < paragraphEnd && text.charAt(end) == ' ') {
+            end++;
         }
+        return end;
+    }
 
-        return pages;
+    private static boolean isWordChar(char c) {
+        // 只对拼音文字按单词换行，中日韩文字可以在任意字符间断开
+        return c < 0x2E80 && (Character.isLetterOrDigit(c) || c == '\'' || c == '-');
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,111 @@
+package com.example.appppple.domain.pagination;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一次分页任务的句柄，可以查询进度、等待完成或取消
+ * 每个任务带有发起时书籍的分页代数，书籍发起新的分页后旧任务随即取消，
+ * 即使旧任务已经算完，代数不一致的结果也会被丢弃，不会覆盖新的分页
+ */
+public class PaginationSession {
+    private final int mGeneration;
+    private final CountDownLatch mDone = new CountDownLatch(1);
+    private volatile boolean mCancelled;
+    private volatile Future<?> mFuture;
+    private volatile int mPagedPages;
+    private volatile int mEstimatedTotalPages;
+
+    public PaginationSession(int generation) {
+        this.mGeneration = generation;
+    }
+
+    /**
+     * @return 发起任务时书籍的分页代数
+     */
+    public int getGeneration() {
+        return mGeneration;
+    }
+
+    /**
+     * 取消分页，正在执行的任务在下一页处退出，尚未开始的任务不再执行；取消后不再回调监听器
+     */
+    public void cancel() {
+        mCancelled = true;
+        Future<?> future = mFuture;
+        if (future != null && future.cancel(false)) {
+            // 任务还没有开始，不会再调用 finish
+            finish();
+        }
+    }
+
+    public boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * @return 任务是否已结束，包括完成、出错和取消
+     */
+    public boolean isDone() {
+        return mDone.getCount() == 0;
+    }
+
+    /**
+     * 等待任务结束
+     * @return 超时前任务是否已结束
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        return mDone.await(timeout, unit);
+    }
+
+    /**
+     * @return 已排好的页数
+     */
+    public int getPagedPages() {
+        return mPagedPages;
+    }
+
+    /**
+     * @return 按已分页部分估算的总页数，完成后为精确值
+     */
+    public int getEstimatedTotalPages() {
+        return mEstimatedTotalPages;
+    }
+
+    /**
+     * 记录提交到线程池后的任务，用于取消尚未开始的任务
+     */
+    public void setFuture(Future<?> future) {
+        this.mFuture = future;
+        if (mCancelled) {
+            cancel();
+        }
+    }
+
+    /**
+     * 在分页线程中更新进度
+     */
+    public void updateProgress(int pagedPages, int estimatedTotalPages) {
+        this.mPagedPages = pagedPages;
+        this.mEstimatedTotalPages = estimatedTotalPages;
+    }
+
+    /**
+     * 在分页线程中检查是否已取消
+     * @throws CancellationException 任务已取消
+     */
+    public void checkCancelled() {
+        if (mCancelled) {
+            throw new CancellationException("分页已取消");
+        }
+    }
+
+    /**
+     * 任务结束时在分页线程中调用
+     */
+    public void finish() {
+        mDone.countDown();
+    }
+}
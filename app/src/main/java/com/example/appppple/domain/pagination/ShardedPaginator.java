@@ -0,0 +1,402 @@
+package com.example.appppple.domain.pagination;
+
+import com.example.appppple.domain.model.Chapter;
+import com.example.appppple.domain.model.PageIndex;
+import com.example.appppple.domain.parser.PageOffsetCache;
+
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * 按章节分片分页
+ * 每个章节单独排版为一个分片，分片正文为“标题\n\n内容\n\n”，与 Book.getContent() 中每个章节的格式相同。
+ * 只有阅读过的章节才会加载内容和分页：当前章节及其前后相邻的章节常驻内存，其余分片以软引用缓存，
+ * 内存紧张时回收，之后重新分页。全书页码为之前各章节页数的前缀和，未分页章节的页数按已分页部分的
+ * 平均每页字符数和章节长度估算，章节分页后变为精确值。设置分页缓存后，缓存中已有的章节直接按保存的位置切页。
+ * 很长的章节由 ConcurrentPaginator 在共用的 ComputePool 中分块并行分页（见 IncrementalPaginator），结果与顺序分页相同
+ */
+public class ShardedPaginator {
+    // 分片格式或断点规则变化时加一，使之前保存的分页缓存失效；
+    // 2：分页结果不再随锚点变化，分块接缝处也不再截断出短页
+    private static final int ALGORITHM_VERSION = 2;
+    private static final int RESIDENT_RADIUS = 1; // 当前章节前后各常驻几个分片
+    private static final String TITLE_SEPARATOR = "\n\n";
+
+    private final List<Chapter> mChapters;
+    private final PageBreaker mPageBreaker;
+    private final int mDefaultCharsPerPage;
+    private final PageIndex[] mResident;
+    private final SoftReference<PageIndex>[] mCached;
+    // 已分页章节的精确页数，未分页为 -1；分片被回收后页数仍然保留
+    private final int[] mPageCounts;
+    private long mPagedChars;
+    private long mPagedPages;
+    // 各章节首页的全书页码，最后一个元素为总页数；页数变化后重新计算
+    private int[] mPageBases;
+    private PageOffsetCache mOffsetCache;
+    private volatile boolean mCancelled;
+
+    /**
+     * 分片中的位置
+     */
+    public static class Position {
+        private final int mChapter;
+        private final int mOffset;
+
+        public Position(int chapter, int offset) {
+            this.mChapter = chapter;
+            this.mOffset = offset;
+        }
+
+        public int getChapter() {
+            return mChapter;
+        }
+
+        /**
+         * @return 在分片正文中的字符位置
+         */
+        public int getOffset() {
+            return mOffset;
+        }
+    }
+
+    /**
+     * @param chapters 章节，内容在分页时才读取
+     * @param pageBreaker 分页断点计算
+     * @param charsPerPage 每页字符数的初始估计，用于在没有章节分页之前估算页数
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ShardedPaginator(List<Chapter> chapters, PageBreaker pageBreaker, int charsPerPage) {
+        this.mChapters = chapters;
+        this.mPageBreaker = cancellable(pageBreaker);
+        this.mDefaultCharsPerPage = Math.max(1, charsPerPage);
+        this.mResident = new PageIndex[chapters.size()];
+        this.mCached = new SoftReference[chapters.size()];
+        this.mPageCounts = new int[chapters.size()];
+        Arrays.fill(mPageCounts, -1);
+    }
+
+    /**
+     * 每排一行或一页检查一次是否已取消；按行分页的断点计算包装后仍按行分页，ConcurrentPaginator 据此按行拼接
+     */
+    private PageBreaker cancellable(PageBreaker pageBreaker) {
+        if (!(pageBreaker instanceof LinePageBreaker)) {
+            return (text, start) -> {
+                checkCancelled();
+                return pageBreaker.findPageEnd(text, start);
+            };
+        }
+        LinePageBreaker lineBreaker = (LinePageBreaker) pageBreaker;
+        return new LinePageBreaker() {
+            @Override
+            public int getLinesPerPage() {
+                return lineBreaker.getLinesPerPage();
+            }
+
+            @Override
+            public int findLineEnd(String text, int start) {
+                checkCancelled();
+                return lineBreaker.findLineEnd(text, start);
+            }
+
+            @Override
+            public int findPageEnd(String text, int start) {
+                checkCancelled();
+                return lineBreaker.findPageEnd(text, start);
+            }
+        };
+    }
+
+    private void checkCancelled() {
+        if (mCancelled) {
+            throw new CancellationException("分页已取消");
+        }
+    }
+
+    /**
+     * 分页缓存的键
+     * @param bookKey 书籍指纹
+     * @param layoutKey 排版参数，见 PaginationManager.getLayoutKey()
+     */
+    public static String cacheKey(String bookKey, String layoutKey) {
+        return bookKey + "|" + layoutKey + "|v" + ALGORITHM_VERSION;
+    }
+
+    /**
+     * 设置分页缓存，缓存中已有章节的页数立即变为精确值
+     */
+    public synchronized void setOffsetCache(PageOffsetCache cache) {
+        mOffsetCache = cache;
+        for (int i = 0; i < mPageCounts.length; i++) {
+            int pageCount = cache.getPageCount(i);
+            if (mPageCounts[i] < 0 && pageCount >= 0) {
+                mPageCounts[i] = pageCount;
+                mPagedChars += cache.getTextLength(i);
+                mPagedPages += pageCount;
+            }
+        }
+        mPageBases = null;
+    }
+
+    /**
+     * 取消分页，正在排版的章节在下一页处抛出 CancellationException，之后的 paginate 也不再执行
+     */
+    public void cancel() {
+        mCancelled = true;
+    }
+
+    public int getChapterCount() {
+        return mChapters.size();
+    }
+
+    /**
+     * 章节分片的正文，章节内容读取失败时按空章节排版
+     */
+    public static String shardText(Chapter chapter) {
+        String content = chapter.getContent();
+        return shardText(chapter, content != null ? content : "");
+    }
+
+    /**
+     * 章节分片的正文，用于建立索引等不能把读取失败当作空章节保存的场合
+     * @return 分片正文，章节内容读取失败时返回 null
+     */
+    public static String readShardText(Chapter chapter) {
+        String content = chapter.getContent();
+        return content != null ? shardText(chapter, content) : null;
+    }
+
+    private static String shardText(Chapter chapter, String content) {
+        return chapter.getTitle() + TITLE_SEPARATOR + content + TITLE_SEPARATOR;
+    }
+
+    /**
+     * 章节内容在分片正文中的起点
+     */
+    private static int contentStart(Chapter chapter) {
+        return chapter.getTitle().length() + TITLE_SEPARATOR.length();
+    }
+
+    /**
+     * 对章节分页，已有分片时直接返回，在后台线程中调用
+     * @param chapter 章节索引
+     * @param anchor 分片正文中的阅读位置，章节很长时先试排该位置附近的页，不影响分页结果，不需要时传 0
+     * @param listener 章节很长时先回调锚点附近试排的页，可以为 null
+     * @return 章节的分片
+     * @throws CancellationException 已取消
+     */
+    public PageIndex paginate(int chapter, int anchor, IncrementalPaginator.Listener listener) {
+        checkCancelled();
+        PageIndex shard = getShard(chapter);
+        if (shard != null) {
+            return shard;
+        }
+        String text = shardText(mChapters.get(chapter));
+        PageOffsetCache cache;
+        synchronized (this) {
+            cache = mOffsetCache;
+        }
+        shard = cache != null ? loadCachedShard(cache, chapter, text) : null;
+        if (shard == null) {
+            shard = new IncrementalPaginator(text, mPageBreaker, anchor).run(listener);
+            if (cache != null) {
+                // 分页结果与锚点无关，只取决于正文和排版参数，可以按书籍和排版参数缓存
+                cache.put(chapter, shard);
+            }
+        }
+        synchronized (this) {
+            if (mPageCounts[chapter] < 0) {
+                mPagedChars += text.length();
+                mPagedPages += shard.size();
+            }
+            mPageCounts[chapter] = shard.size();
+            mCached[chapter] = new SoftReference<>(shard);
+            mResident[chapter] = shard;
+            mPageBases = null;
+        }
+        return shard;
+    }
+
+    private PageIndex loadCachedShard(PageOffsetCache cache, int chapter, String text) {
+        int[] offsets = cache.getOffsets(chapter);
+        if (offsets == null || cache.getTextLength(chapter) != text.length()) {
+            return null;
+        }
+        try {
+            return PageIndex.fromOffsets(text, offsets);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return 已分页且尚未回收的分片，没有时返回 null
+     */
+    public synchronized PageIndex getShard(int chapter) {
+        if (mResident[chapter] != null) {
+            return mResident[chapter];
+        }
+        return mCached[chapter] != null ? mCached[chapter].get() : null;
+    }
+
+    /**
+     * 只保留当前章节及其相邻章节的分片常驻内存，其余分片改为软引用
+     * @param center 当前章节
+     */
+    public synchronized void retain(int center) {
+        for (int i = 0; i < mResident.length; i++) {
+            if (Math.abs(i - center) > RESIDENT_RADIUS) {
+                mResident[i] = null;
+            }
+        }
+    }
+
+    /**
+     * @return 章节首页的全书页码
+     */
+    public synchronized int getPageBase(int chapter) {
+        return pageBases()[chapter];
+    }
+
+    /**
+     * @return 总页数，含有未分页章节时为估算值
+     */
+    public synchronized int getTotalPages() {
+        return pageBases()[mChapters.size()];
+    }
+
+    /**
+     * 二分查找全书页码所在的章节
+     */
+    public synchronized int findChapterByPage(int page) {
+        int[] bases = pageBases();
+        int low = 0;
+        int high = mChapters.size() - 1;
+        int result = 0;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (bases[mid] <= page) {
+                result = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return result;
+    }
+
+    private synchronized boolean isPageCountKnown(int chapter) {
+        return mPageCounts[chapter] >= 0;
+    }
+
+    private int[] pageBases() {
+        if (mPageBases == null) {
+            double charsPerPage = mPagedPages > 0 ? (double) mPagedChars / mPagedPages : mDefaultCharsPerPage;
+            int[] bases = new int[mChapters.size() + 1];
+            for (int i = 0; i < mChapters.size(); i++) {
+                bases[i + 1] = bases[i] + (mPageCounts[i] >= 0 ? mPageCounts[i] : estimatePages(i, charsPerPage));
+            }
+            mPageBases = bases;
+        }
+        return mPageBases;
+    }
+
+    private int estimatePages(int chapter, double charsPerPage) {
+        Chapter c = mChapters.get(chapter);
+        long length = c.getEstimatedLength();
+        if (length < 0) {
+            return 1;
+        }
+        return Math.max(1, (int) Math.ceil((length + contentStart(c)) / charsPerPage));
+    }
+
+    /**
+     * 依次对章节分页，直到找到全书页码所在的章节，用于只保存了页码的阅读进度
+     * @param page 全书页码
+     * @return 该页起点所在的位置
+     */
+    public Position locatePage(int page) {
+        for (int i = 0; i < mChapters.size(); i++) {
+            // 页数已知（如来自分页缓存）且不含该页的章节不必分页
+            if (i < mChapters.size() - 1 && page >= getPageBase(i + 1) && isPageCountKnown(i)) {
+                continue;
+            }
+            PageIndex shard = paginate(i, 0, null);
+            int base = getPageBase(i);
+            if (page < base + shard.size() || i == mChapters.size() - 1) {
+                int local = Math.max(0, Math.min(page - base, shard.size() - 1));
+                retain(i);
+                return new Position(i, shard.isEmpty() ? 0 : shard.getStart(local));
+            }
+        }
+        return new Position(0, 0);
+    }
+
+    /**
+     * 将源文件正文中的字符位置换算为分片中的位置
+     * @param charOffset 源文件正文中的字符位置
+     * @return 分片中的位置，章节没有字符位置信息时返回 null
+     */
+    public Position locateSourceCharOffset(long charOffset) {
+        if (charOffset < 0 || mChapters.isEmpty()) {
+            return null;
+        }
+
+        // 章节按文件顺序排列，二分查找字符位置所在的章节
+        int low = 0;
+        int high = mChapters.size() - 1;
+        int index = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (mChapters.get(mid).getContentCharOffset() <= charOffset) {
+                index = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (index < 0) {
+            return mChapters.get(0).getContentCharOffset() < 0 ? null : new Position(0, 0);
+        }
+
+        Chapter chapter = mChapters.get(index);
+        if (chapter.getContentCharOffset() < 0) {
+            return null;
+        }
+        long delta = charOffset - chapter.getContentCharOffset();
+        long length = chapter.getEstimatedLength();
+        if (length >= 0) {
+            delta = Math.min(delta, length);
+        }
+        return new Position(index, (int) (contentStart(chapter) + delta));
+    }
+
+    /**
+     * 计算分片中某页起点在源文件正文中的字符位置，用于保存与分页无关的阅读位置
+     * @return 字符位置，无法换算时返回 -1
+     */
+    public long getSourceCharOffset(int chapter, PageIndex shard, int page) {
+        Chapter c = mChapters.get(chapter);
+        if (c.getContentCharOffset() < 0 || page < 0 || page >= shard.size()) {
+            return -1;
+        }
+        // 页起点位于章节标题处时取章节内容的起点
+        int delta = Math.max(0, shard.getStart(page) - contentStart(c));
+        int contentLength = Math.max(0, shard.getText().length() - contentStart(c) - TITLE_SEPARATOR.length());
+        return c.getContentCharOffset() + Math.min(delta, contentLength);
+    }
+
+    /**
+     * 查找分片正文中的位置所在的页，位置处于页之间的空白中时取其后的一页
+     */
+    public static int findPage(PageIndex shard, int offset) {
+        String text = shard.getText();
+        int position = Math.max(0, offset);
+        while (position < text.length() && text.charAt(position) <= ' ') {
+            position++;
+        }
+        return Math.max(0, shard.findPage(position));
+    }
+}
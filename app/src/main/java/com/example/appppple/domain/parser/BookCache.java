@@ -0,0 +1,244 @@
+package com.example.appppple.domain.parser;
+
+import android.content.Context;
+import android.os.ParcelFileDescriptor;
+import android.util.Log;
+
+import com.example.appppple.domain.model.Book;
+import com.example.appppple.domain.model.Chapter;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * 解析结果缓存
+ * 将解析后的书名、作者、章节表和正文保存为二进制文件，再次打开同一本书时直接内存映射加载，跳过解析。
+ * 正文以 UTF-16 保存，加载时不需要解码，章节内容在第一次读取时才从映射中复制
+ */
+public class BookCache {
+    private static final String TAG = "BookCache";
+    private static final int MAGIC = 0x424B4348; // "BKCH"
+    private static final int VERSION = 2;
+    private static final String CACHE_DIR = "book_cache";
+    private static final int SAMPLE_SIZE = 4096; // 指纹采样的每段字节数
+
+    private BookCache() {
+    }
+
+    /**
+     * 计算书籍指纹：URI、大小、修改时间，以及文件头、中、尾三段采样内容的 CRC32
+     * @param context 上下文
+     * @param probe 文件信息
+     * @return 指纹，文件无法读取时返回 null
+     */
+    public static String fingerprint(Context context, FileProbe probe) {
+        if (!probe.hasSize()) {
+            return null;
+        }
+        try (ParcelFileDescriptor fd = context.getContentResolver().openFileDescriptor(probe.getUri(), "r")) {
+            if (fd == null) {
+                return null;
+            }
+            try (FileInputStream inputStream = new FileInputStream(fd.getFileDescriptor())) {
+                FileChannel channel = inputStream.getChannel();
+                long size = probe.getSize();
+                CRC32 crc = new CRC32();
+                ByteBuffer sample = ByteBuffer.allocate(SAMPLE_SIZE);
+                long[] positions = {0, Math.max(0, size / 2 - SAMPLE_SIZE / 2), Math.max(0, size - SAMPLE_SIZE)};
+                for (long position : positions) {
+                    sample.clear();
+                    while (sample.hasRemaining()) {
+                        int read = channel.read(sample, position + sample.position());
+                        if (read < 0) {
+                            break;
+                        }
+                    }
+                    crc.update(sample.array(), 0, sample.position());
+                }
+                return probe.getUri() + "|" + size + "|" + probe.getLastModified() + "|"
+                        + Long.toHexString(crc.getValue());
+            }
+        } catch (IOException | SecurityException e) {
+            Log.w(TAG, "计算书籍指纹失败", e);
+            return null;
+        }
+    }
+
+    /**
+     * 缓存文件，保存在应用私有目录下，以 URI 的摘要命名，同一本书只保留最新的一份
+     */
+    public static File cacheFile(Context context, FileProbe probe) {
+        File dir = new File(context.getFilesDir(), CACHE_DIR);
+        return new File(dir, TxtToc.md5Hex(probe.getUri().toString()) + ".book");
+    }
+
+    /**
+     * 保存解析结果，只支持非流式模式的书籍
+     * 正文逐章写入，写完后再写章节表和章节表的位置，堆中只保留各章的长度，不保留整本书的内容
+     * @param book 书籍
+     * @param file 缓存文件
+     * @param key 书籍指纹，加载时用于校验缓存是否仍然有效
+     * @throws IOException 写入失败或有章节内容读取失败，此时不会留下缓存文件
+     */
+    public static void save(Book book, File file, String key) throws IOException {
+        if (book.isStreaming()) {
+            throw new IllegalArgumentException("流式模式的书籍不需要缓存");
+        }
+        List<Chapter> chapters = book.getChapters() != null ? book.getChapters() : new ArrayList<>();
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+
+        long startTime = System.currentTimeMillis();
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp), 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeString(out, key);
+            writeString(out, book.getTitle() != null ? book.getTitle() : "");
+            writeString(out, book.getAuthor() != null ? book.getAuthor() : "");
+            out.writeInt(chapters.size());
+            long textStart = out.size();
+
+            // 文本区：所有章节正文依次以 UTF-16 写入
+            int[] lengths = new int[chapters.size()];
+            long textChars = 0;
+            for (int i = 0; i < chapters.size(); i++) {
+                String content = chapters.get(i).getContent();
+                if (content == null) {
+                    throw new IOException("读取章节内容失败: " + chapters.get(i).getTitle());
+                }
+                out.writeChars(content);
+                lengths[i] = content.length();
+                textChars += content.length();
+            }
+
+            // 章节表：记录每章正文在文本区中的起点和长度（以 char 计），文件末尾是章节表的位置
+            long tableOffset = textStart + textChars * 2;
+            long chapterStart = 0;
+            for (int i = 0; i < chapters.size(); i++) {
+                Chapter chapter = chapters.get(i);
+                writeString(out, chapter.getTitle() != null ? chapter.getTitle() : "");
+                out.writeLong(chapter.getByteOffset());
+                out.writeLong(chapter.getCharOffset());
+                out.writeLong(chapter.getContentCharOffset());
+                out.writeLong(chapterStart);
+                out.writeInt(lengths[i]);
+                chapterStart += lengths[i];
+            }
+            out.writeLong(tableOffset);
+        } catch (IOException | RuntimeException e) {
+            temp.delete();
+            throw e;
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("保存书籍缓存失败: " + file);
+        }
+        Log.d(TAG, String.format("保存书籍缓存: 大小=%d, 耗时 %dms",
+                file.length(), System.currentTimeMillis() - startTime));
+    }
+
+    /**
+     * 内存映射加载解析结果
+     * @param file 缓存文件
+     * @param key 书籍指纹
+     * @return 书籍，章节内容在读取时才从映射中复制；文件不存在、格式不符或书籍已变化时返回 null
+     */
+    public static Book load(File file, String key) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+
+        MappedByteBuffer buffer;
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            // 映射在通道关闭后仍然有效
+            FileChannel channel = randomAccessFile.getChannel();
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.remaining() < 16 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                || !key.equals(readString(buffer))) {
+            return null;
+        }
+
+        Book book = new Book();
+        book.setTitle(readString(buffer));
+        String author = readString(buffer);
+        book.setAuthor(author.isEmpty() ? null : author);
+        int count = buffer.getInt();
+
+        // 文本区位于头部和章节表之间
+        int textStart = buffer.position();
+        long tableOffset = buffer.getLong(buffer.limit() - 8);
+        if (count < 0 || tableOffset < textStart || tableOffset > buffer.limit() - 8) {
+            throw new IOException("书籍缓存已损坏: " + file);
+        }
+        ByteBuffer textBytes = buffer.duplicate();
+        textBytes.limit((int) tableOffset);
+        textBytes.position(textStart);
+        CharBuffer text = textBytes.slice().asCharBuffer();
+
+        buffer.limit(buffer.limit() - 8);
+        buffer.position((int) tableOffset);
+        List<Chapter> chapters = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String title = readString(buffer);
+            long byteOffset = buffer.getLong();
+            long charOffset = buffer.getLong();
+            long contentCharOffset = buffer.getLong();
+            long chapterStart = buffer.getLong();
+            int length = buffer.getInt();
+            if (chapterStart < 0 || length < 0 || chapterStart + length > text.limit()) {
+                throw new IOException("书籍缓存已损坏: " + file);
+            }
+            // 每个章节使用独立的视图，可以在多个线程中同时加载
+            CharBuffer view = text.duplicate();
+            view.position((int) chapterStart);
+            view.limit((int) chapterStart + length);
+            CharBuffer chapterText = view.slice();
+            Chapter chapter = new Chapter(title, () -> chapterText.duplicate().toString());
+            chapter.setByteOffset(byteOffset);
+            chapter.setCharOffset(charOffset);
+            chapter.setContentCharOffset(contentCharOffset);
+            chapter.setLengthHint(length);
+            chapters.add(chapter);
+        }
+        book.setChapters(chapters);
+        return book;
+    }
+
+    /**
+     * 字符串以长度加 UTF-8 字节保存，加载时可以直接从映射中读取
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) throws IOException {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IOException("书籍缓存已损坏");
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
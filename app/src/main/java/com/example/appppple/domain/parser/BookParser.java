@@ -20,7 +20,21 @@ public interface BookParser {
      * @throws SecurityException 如果没有文件访问权限
      * @throws IllegalArgumentException 如果文件格式不正确
      */
-    Book parse(Context context, Uri uri) throws IOException, SecurityException, IllegalArgumentException;
+    default Book parse(Context context, Uri uri) throws IOException, SecurityException, IllegalArgumentException {
+        return parse(context, uri, FileProbe.probe(context, uri));
+    }
+
+    /**
+     * 使用已探测的文件信息解析书籍文件，解析器不再读取文件做大小校验
+     * @param context 上下文
+     * @param uri 文件 URI
+     * @param probe 文件元信息
+     * @return 解析后的书籍对象
+     * @throws IOException 如果解析过程中发生 IO 错误
+     * @throws SecurityException 如果没有文件访问权限
+     * @throws IllegalArgumentException 如果文件格式不正确
+     */
+    Book parse(Context context, Uri uri, FileProbe probe) throws IOException, SecurityException, IllegalArgumentException;
 
     /**
      * 获取解析器支持的文件类型
@@ -0,0 +1,60 @@
+package com.example.appppple.domain.parser;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * TXT 章节标题识别
+ * 支持"第X章/回/节/卷"、"Chapter N"、"卷一"以及序章、楔子、番外等常见标题
+ * 非线程安全，每次解析使用独立实例
+ */
+public class ChapterDetector {
+    private static final int MAX_TITLE_LENGTH = 40; // 标题行的最大长度
+
+    private static final String NUMBER = "[0-9０-９零〇一二两三四五六七八九十百千万壹贰叁肆伍陆柒捌玖拾佰仟]+";
+
+    private static final Pattern TITLE_PATTERN = Pattern.compile(
+            "^(?:正文[\\s　]*)?(?:"
+                    // 第一章、第12回、第三卷 等
+                    + "第" + NUMBER + "[章回节卷集部篇幕话](?![合课])"
+                    // 卷一、卷二十 等卷标记
+                    + "|卷" + NUMBER
+                    // Chapter 12、Part IV、Vol. 3 等
+                    + "|(?i:chapter|part|volume|vol\\.|book)[\\s　]*(?:[0-9]+|[IVXLCDM]+)\\b"
+                    // 没有序号的特殊章节
+                    + "|(?:序章|序言|序|楔子|引子|引言|前言|后记|尾声|终章|番外|完本感言)(?=[\\s　:：]|$)"
+                    + ")");
+
+    // 以这些标点结尾的行更可能是正文中的句子
+    private static final String SENTENCE_ENDINGS = "。！？；，…”」』";
+
+    private final Matcher mMatcher = TITLE_PATTERN.matcher("");
+
+    /**
+     * 判断一行文本是否为章节标题
+     * @param line 不含换行符的行内容
+     */
+    public boolean isChapterTitle(CharSequence line) {
+        int start = 0;
+        int end = line.length();
+        while (start < end && isBlank(line.charAt(start))) {
+            start++;
+        }
+        while (end > start && isBlank(line.charAt(end - 1))) {
+            end--;
+        }
+        if (end == start || end - start > MAX_TITLE_LENGTH) {
+            return false;
+        }
+        if (SENTENCE_ENDINGS.indexOf(line.charAt(end - 1)) >= 0) {
+            return false;
+        }
+
+        mMatcher.reset(line.subSequence(start, end));
+        return mMatcher.lookingAt();
+    }
+
+    private static boolean isBlank(char c) {
+        return c == ' ' || c == '\t' || c == '　' || c == '\r' || c == '﻿';
+    }
+}
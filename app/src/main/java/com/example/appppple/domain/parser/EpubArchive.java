@@ -0,0 +1,254 @@
+package com.example.appppple.domain.parser;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * 随机访问的 EPUB（ZIP）归档
+ * 打开时只读取文件末尾的中央目录，条目内容在需要时按偏移读取并解压，
+ * 图片、字体等资源不会被读入内存
+ */
+public class EpubArchive implements Closeable {
+    private static final String TAG = "EpubArchive";
+    private static final int END_OF_CENTRAL_DIR_SIGNATURE = 0x06054b50;
+    private static final int CENTRAL_DIR_SIGNATURE = 0x02014b50;
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int END_OF_CENTRAL_DIR_SIZE = 22;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+    private static final long MAX_ENTRY_SIZE = 16 * 1024 * 1024; // 单个条目解压后的最大大小
+
+    private final ParcelFileDescriptor mFileDescriptor;
+    private final FileInputStream mInputStream;
+    private final FileChannel mChannel;
+    private final Map<String, Entry> mEntries;
+
+    /**
+     * 中央目录中的条目信息
+     */
+    public static class Entry {
+        private final String mName;
+        private final int mMethod;
+        private final long mCompressedSize;
+        private final long mSize;
+        private final long mLocalHeaderOffset;
+
+        Entry(String name, int method, long compressedSize, long size, long localHeaderOffset) {
+            this.mName = name;
+            this.mMethod = method;
+            this.mCompressedSize = compressedSize;
+            this.mSize = size;
+            this.mLocalHeaderOffset = localHeaderOffset;
+        }
+
+        public String getName() {
+            return mName;
+        }
+
+        /**
+         * @return 解压后的大小
+         */
+        public long getSize() {
+            return mSize;
+        }
+    }
+
+    private EpubArchive(ParcelFileDescriptor fd, FileInputStream inputStream, FileChannel channel,
+                        Map<String, Entry> entries) {
+        this.mFileDescriptor = fd;
+        this.mInputStream = inputStream;
+        this.mChannel = channel;
+        this.mEntries = entries;
+    }
+
+    /**
+     * 打开归档并读取中央目录
+     * @param context 上下文
+     * @param uri 文件 URI
+     * @return 归档，使用完毕后需要 close
+     * @throws IOException 如果文件无法打开或不是有效的 ZIP 文件
+     */
+    public static EpubArchive open(Context context, Uri uri) throws IOException {
+        ParcelFileDescriptor fd = context.getContentResolver().openFileDescriptor(uri, "r");
+        if (fd == null) {
+            throw new IOException("无法打开文件描述符");
+        }
+
+        FileInputStream inputStream = null;
+        try {
+            inputStream = new FileInputStream(fd.getFileDescriptor());
+            FileChannel channel = inputStream.getChannel();
+            Map<String, Entry> entries = readCentralDirectory(channel);
+            Log.d(TAG, "读取中央目录完成: 条目数=" + entries.size());
+            return new EpubArchive(fd, inputStream, channel, entries);
+        } catch (IOException | RuntimeException e) {
+            if (inputStream != null) {
+                inputStream.close();
+            }
+            fd.close();
+            throw e;
+        }
+    }
+
+    private static Map<String, Entry> readCentralDirectory(FileChannel channel) throws IOException {
+        long fileSize = channel.size();
+        if (fileSize < END_OF_CENTRAL_DIR_SIZE) {
+            throw new IOException("不是有效的 EPUB 文件");
+        }
+
+        // 从文件末尾向前查找中央目录结束记录（其后可能跟随注释）
+        int tailSize = (int) Math.min(fileSize, END_OF_CENTRAL_DIR_SIZE + MAX_COMMENT_SIZE);
+        ByteBuffer tail = readFully(channel, fileSize - tailSize, tailSize);
+        int eocd = -1;
+        for (int i = tailSize - END_OF_CENTRAL_DIR_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == END_OF_CENTRAL_DIR_SIGNATURE) {
+                eocd = i;
+                break;
+            }
+        }
+        if (eocd < 0) {
+            throw new IOException("找不到 ZIP 中央目录");
+        }
+
+        int entryCount = tail.getShort(eocd + 10) & 0xFFFF;
+        long dirSize = tail.getInt(eocd + 12) & 0xFFFFFFFFL;
+        long dirOffset = tail.getInt(eocd + 16) & 0xFFFFFFFFL;
+        if (entryCount == 0xFFFF || dirOffset == 0xFFFFFFFFL) {
+            throw new IOException("不支持 ZIP64 格式");
+        }
+        if (dirOffset + dirSize > fileSize) {
+            throw new IOException("ZIP 中央目录损坏");
+        }
+
+        ByteBuffer dir = readFully(channel, dirOffset, (int) dirSize);
+        Map<String, Entry> entries = new HashMap<>(entryCount * 2);
+        int pos = 0;
+        for (int i = 0; i < entryCount; i++) {
+            if (pos + 46 > dirSize || dir.getInt(pos) != CENTRAL_DIR_SIGNATURE) {
+                throw new IOException("ZIP 中央目录损坏");
+            }
+            int flags = dir.getShort(pos + 8) & 0xFFFF;
+            int method = dir.getShort(pos + 10) & 0xFFFF;
+            long compressedSize = dir.getInt(pos + 20) & 0xFFFFFFFFL;
+            long size = dir.getInt(pos + 24) & 0xFFFFFFFFL;
+            int nameLength = dir.getShort(pos + 28) & 0xFFFF;
+            int extraLength = dir.getShort(pos + 30) & 0xFFFF;
+            int commentLength = dir.getShort(pos + 32) & 0xFFFF;
+            long localHeaderOffset = dir.getInt(pos + 42) & 0xFFFFFFFFL;
+
+            byte[] nameBytes = new byte[nameLength];
+            dir.position(pos + 46);
+            dir.get(nameBytes);
+            // 第 11 位表示文件名为 UTF-8，否则按 CP437 处理，EPUB 中一般为 ASCII
+            String name = new String(nameBytes,
+                    (flags & 0x800) != 0 ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1);
+            entries.put(name, new Entry(name, method, compressedSize, size, localHeaderOffset));
+            pos += 46 + nameLength + extraLength + commentLength;
+        }
+        return Collections.unmodifiableMap(entries);
+    }
+
+    public boolean contains(String name) {
+        return mEntries.containsKey(name);
+    }
+
+    public Entry getEntry(String name) {
+        return mEntries.get(name);
+    }
+
+    /**
+     * 读取并解压一个条目，可以在多个线程中同时调用
+     * @param name 条目路径
+     * @return 解压后的内容
+     * @throws IOException 如果条目不存在或数据损坏
+     */
+    public byte[] read(String name) throws IOException {
+        Entry entry = mEntries.get(name);
+        if (entry == null) {
+            throw new IOException("EPUB 中不存在: " + name);
+        }
+        if (entry.mSize > MAX_ENTRY_SIZE) {
+            throw new IOException("条目过大: " + name);
+        }
+
+        ByteBuffer header = readFully(mChannel, entry.mLocalHeaderOffset, LOCAL_HEADER_SIZE);
+        if (header.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+            throw new IOException("ZIP 本地文件头损坏: " + name);
+        }
+        int nameLength = header.getShort(26) & 0xFFFF;
+        int extraLength = header.getShort(28) & 0xFFFF;
+        long dataOffset = entry.mLocalHeaderOffset + LOCAL_HEADER_SIZE + nameLength + extraLength;
+
+        ByteBuffer data = readFully(mChannel, dataOffset, (int) entry.mCompressedSize);
+        if (entry.mMethod == METHOD_STORED) {
+            return data.array();
+        }
+        if (entry.mMethod != METHOD_DEFLATED) {
+            throw new IOException("不支持的压缩方式: " + entry.mMethod);
+        }
+        return inflate(data.array(), entry.mSize);
+    }
+
+    private static byte[] inflate(byte[] compressed, long size) throws IOException {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream output = new ByteArrayOutputStream((int) Math.max(32, size));
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                output.write(buffer, 0, count);
+            }
+            return output.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("解压失败: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * 按绝对位置读取，不改变通道的当前位置，因此是线程安全的
+     */
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("文件意外结束");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            mInputStream.close();
+        } finally {
+            mFileDescriptor.close();
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.example.appppple.domain.parser;
+
+import android.net.Uri;
+import android.util.Xml;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * EPUB 包信息
+ * 只解析 container.xml、OPF 和 NCX/nav，得到书名、阅读顺序和目录，不读取任何章节内容
+ */
+public class EpubPackage {
+    private static final String CONTAINER_PATH = "META-INF/container.xml";
+    private static final String NCX_MEDIA_TYPE = "application/x-dtbncx+xml";
+
+    private String mTitle;
+    private final List<String> mSpine = new ArrayList<>();
+    private final List<TocEntry> mToc = new ArrayList<>();
+
+    /**
+     * 目录项
+     */
+    public static class TocEntry {
+        private final String mTitle;
+        private final String mPath;
+
+        TocEntry(String title, String path) {
+            this.mTitle = title;
+            this.mPath = path;
+        }
+
+        public String getTitle() {
+            return mTitle;
+        }
+
+        /**
+         * @return 章节文件在归档中的路径（不含锚点）
+         */
+        public String getPath() {
+            return mPath;
+        }
+    }
+
+    private static class ManifestItem {
+        final String href;
+        final String mediaType;
+        final String properties;
+
+        ManifestItem(String href, String mediaType, String properties) {
+            this.href = href;
+            this.mediaType = mediaType;
+            this.properties = properties;
+        }
+    }
+
+    private EpubPackage() {
+    }
+
+    /**
+     * 从归档中读取包信息
+     * @param archive EPUB 归档
+     * @return 包信息
+     * @throws IOException 如果缺少必要的文件或格式不正确
+     */
+    public static EpubPackage read(EpubArchive archive) throws IOException {
+        EpubPackage epubPackage = new EpubPackage();
+        try {
+            String opfPath = readRootFilePath(archive);
+            epubPackage.readOpf(archive, opfPath);
+        } catch (XmlPullParserException e) {
+            throw new IOException("EPUB 格式错误: " + e.getMessage(), e);
+        }
+        return epubPackage;
+    }
+
+    public String getTitle() {
+        return mTitle;
+    }
+
+    /**
+     * @return 阅读顺序中各文件的路径
+     */
+    public List<String> getSpine() {
+        return mSpine;
+    }
+
+    /**
+     * @return 顶层目录项，没有目录时为空
+     */
+    public List<TocEntry> getToc() {
+        return mToc;
+    }
+
+    private static String readRootFilePath(EpubArchive archive) throws IOException, XmlPullParserException {
+        XmlPullParser parser = newParser(archive.read(CONTAINER_PATH));
+        while (parser.next() != XmlPullParser.END_DOCUMENT) {
+            if (parser.getEventType() == XmlPullParser.START_TAG && "rootfile".equals(parser.getName())) {
+                String path = parser.getAttributeValue(null, "full-path");
+                if (path != null) {
+                    return path;
+                }
+            }
+        }
+        throw new IOException("EPUB 中找不到 OPF 文件");
+    }
+
+    private void readOpf(EpubArchive archive, String opfPath) throws IOException, XmlPullParserException {
+        Map<String, ManifestItem> manifest = new HashMap<>();
+        List<String> spineIds = new ArrayList<>();
+        String ncxId = null;
+
+        XmlPullParser parser = newParser(archive.read(opfPath));
+        while (parser.next() != XmlPullParser.END_DOCUMENT) {
+            if (parser.getEventType() != XmlPullParser.START_TAG) {
+                continue;
+            }
+            switch (parser.getName()) {
+                case "title":
+                    if (mTitle == null) {
+                        mTitle = parser.nextText().trim();
+                    }
+                    break;
+                case "item":
+                    manifest.put(parser.getAttributeValue(null, "id"), new ManifestItem(
+                            parser.getAttributeValue(null, "href"),
+                            parser.getAttributeValue(null, "media-type"),
+                            parser.getAttributeValue(null, "properties")));
+                    break;
+                case "spine":
+                    ncxId = parser.getAttributeValue(null, "toc");
+                    break;
+                case "itemref":
+                    spineIds.add(parser.getAttributeValue(null, "idref"));
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        String baseDir = parentOf(opfPath);
+        for (String id : spineIds) {
+            ManifestItem item = manifest.get(id);
+            if (item != null && item.href != null) {
+                mSpine.add(resolve(baseDir, item.href));
+            }
+        }
+
+        // 优先使用 EPUB2 的 NCX，其次使用 EPUB3 的 nav 文档
+        ManifestItem ncx = ncxId != null ? manifest.get(ncxId) : null;
+        ManifestItem nav = null;
+        for (ManifestItem item : manifest.values()) {
+            if (ncx == null && NCX_MEDIA_TYPE.equals(item.mediaType)) {
+                ncx = item;
+            }
+            if (item.properties != null && item.properties.contains("nav")) {
+                nav = item;
+            }
+        }
+        if (ncx != null && ncx.href != null) {
+            String ncxPath = resolve(baseDir, ncx.href);
+            if (archive.contains(ncxPath)) {
+                readNcx(archive, ncxPath);
+            }
+        }
+        if (mToc.isEmpty() && nav != null && nav.href != null) {
+            String navPath = resolve(baseDir, nav.href);
+            if (archive.contains(navPath)) {
+                readNav(archive, navPath);
+            }
+        }
+    }
+
+    /**
+     * 读取 NCX 的顶层 navPoint
+     */
+    private void readNcx(EpubArchive archive, String ncxPath) throws IOException, XmlPullParserException {
+        String baseDir = parentOf(ncxPath);
+        XmlPullParser parser = newParser(archive.read(ncxPath));
+        int navDepth = 0;
+        String title = null;
+        while (parser.next() != XmlPullParser.END_DOCUMENT) {
+            int event = parser.getEventType();
+            if (event == XmlPullParser.START_TAG) {
+                String name = parser.getName();
+                if ("navPoint".equals(name)) {
+                    navDepth++;
+                    if (navDepth == 1) {
+                        title = null;
+                    }
+                } else if (navDepth == 1 && "text".equals(name) && title == null) {
+                    title = parser.nextText().trim();
+                } else if (navDepth == 1 && "content".equals(name)) {
+                    String src = parser.getAttributeValue(null, "src");
+                    if (src != null) {
+                        mToc.add(new TocEntry(title != null ? title : "未知章节", resolve(baseDir, src)));
+                    }
+                }
+            } else if (event == XmlPullParser.END_TAG && "navPoint".equals(parser.getName())) {
+                navDepth--;
+            }
+        }
+    }
+
+    /**
+     * 读取 EPUB3 nav 文档中 toc 列表的顶层链接
+     */
+    private void readNav(EpubArchive archive, String navPath) throws IOException, XmlPullParserException {
+        String baseDir = parentOf(navPath);
+        XmlPullParser parser = newParser(archive.read(navPath));
+        boolean inToc = false;
+        int navDepth = 0;
+        int listDepth = 0;
+        while (parser.next() != XmlPullParser.END_DOCUMENT) {
+            int event = parser.getEventType();
+            String name = parser.getName();
+            if (event == XmlPullParser.START_TAG) {
+                if ("nav".equals(name)) {
+                    navDepth++;
+                    String type = parser.getAttributeValue("http://www.idpf.org/2007/ops", "type");
+                    if (navDepth == 1 && (type == null || type.contains("toc"))) {
+                        inToc = true;
+                    }
+                } else if (inToc && "ol".equals(name)) {
+                    listDepth++;
+                } else if (inToc && listDepth == 1 && "a".equals(name)) {
+                    String href = parser.getAttributeValue(null, "href");
+                    String title = readText(parser);
+                    if (href != null) {
+                        mToc.add(new TocEntry(title.isEmpty() ? "未知章节" : title, resolve(baseDir, href)));
+                    }
+                }
+            } else if (event == XmlPullParser.END_TAG) {
+                if ("nav".equals(name)) {
+                    navDepth--;
+                    if (inToc && !mToc.isEmpty()) {
+                        return;
+                    }
+                    inToc = false;
+                } else if (inToc && "ol".equals(name)) {
+                    listDepth--;
+                }
+            }
+        }
+    }
+
+    /**
+     * 读取当前元素内的全部文本，包括子元素中的文本
+     */
+    private static String readText(XmlPullParser parser) throws IOException, XmlPullParserException {
+        StringBuilder text = new StringBuilder();
+        int depth = 1;
+        while (depth > 0) {
+            int event = parser.next();
+            if (event == XmlPullParser.START_TAG) {
+                depth++;
+            } else if (event == XmlPullParser.END_TAG) {
+                depth--;
+            } else if (event == XmlPullParser.TEXT) {
+                text.append(parser.getText());
+            } else if (event == XmlPullParser.END_DOCUMENT) {
+                break;
+            }
+        }
+        return text.toString().trim();
+    }
+
+    private static XmlPullParser newParser(byte[] data) throws XmlPullParserException {
+        XmlPullParser parser = Xml.newPullParser();
+        parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, true);
+        parser.setInput(new ByteArrayInputStream(data), null);
+        return parser;
+    }
+
+    private static String parentOf(String path) {
+        int slash = path.lastIndexOf('/');
+        return slash >= 0 ? path.substring(0, slash + 1) : "";
+    }
+
+    /**
+     * 将相对路径解析为归档中的路径，去掉锚点并处理 ./ 和 ../
+     */
+    static String resolve(String baseDir, String href) {
+        int hash = href.indexOf('#');
+        if (hash >= 0) {
+            href = href.substring(0, hash);
+        }
+        href = Uri.decode(href);
+
+        String path = href.startsWith("/") ? href.substring(1) : baseDir + href;
+        List<String> parts = new ArrayList<>();
+        for (String part : path.split("/")) {
+            if (part.isEmpty() || ".".equals(part)) {
+                continue;
+            }
+            if ("..".equals(part)) {
+                if (!parts.isEmpty()) {
+                    parts.remove(parts.size() - 1);
+                }
+            } else {
+                parts.add(part);
+            }
+        }
+        return String.join("/", parts);
+    }
+}
@@ -9,35 +9,145 @@ import com.example.appppple.domain.model.Book;
 import com.example.appppple.domain.model.Chapter;
 
 import org.jsoup.Jsoup;
+import org.xmlpull.v1.XmlPullParserException;
 import nl.siegmann.epublib.domain.TOCReference;
 import nl.siegmann.epublib.domain.Resource;
 import nl.siegmann.epublib.epub.EpubReader;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * EPUB文件解析器
  */
 public class EpubParser implements BookParser {
     private static final String TAG = "EpubParser";
-    private static final int BUFFER_SIZE = 8192; // 8KB 缓冲区
     private static final long MAX_FILE_SIZE = 50 * 1024 * 1024; // 50MB 最大文件大小
 
+    private static final int EXTRACT_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+    // 章节正文提取线程池，线程数不超过核心数，空闲时线程自动退出
+    private static final ExecutorService extractExecutor = createExtractExecutor();
+
+    // 每个线程复用一个提取器，避免重复创建解析器和缓冲区
+    private static final ThreadLocal<XhtmlTextExtractor> EXTRACTOR = new ThreadLocal<XhtmlTextExtractor>() {
+        @Override
+        protected XhtmlTextExtractor initialValue() {
+            return new XhtmlTextExtractor();
+        }
+    };
+
     @Override
-    public Book parse(Context context, Uri uri) throws IOException, SecurityException, IllegalArgumentException {
+    public Book parse(Context context, Uri uri, FileProbe probe) throws IOException, SecurityException, IllegalArgumentException {
         if (context == null) {
             throw new IllegalArgumentException("Context 不能为空");
         }
         if (uri == null) {
             throw new IllegalArgumentException("URI 不能为空");
         }
+        if (probe == null) {
+            throw new IllegalArgumentException("文件信息不能为空");
+        }
 
         // 检查文件大小
-        checkFileSize(context, uri);
+        checkFileSize(probe);
+
+        // 优先使用延迟加载模式：只读取中央目录、OPF 和目录，章节内容在阅读时才解压
+        EpubArchive archive = null;
+        try {
+            archive = EpubArchive.open(context, uri);
+            return parseLazy(archive);
+        } catch (IOException e) {
+            Log.w(TAG, "延迟加载 EPUB 失败，改为完整读取", e);
+            if (archive != null) {
+                try {
+                    archive.close();
+                } catch (IOException closeError) {
+                    Log.w(TAG, "关闭 EPUB 文件失败", closeError);
+                }
+            }
+        }
+        return parseFully(context, uri);
+    }
+
+    /**
+     * 延迟加载模式：章节只记录在归档中的路径，内容按需解压和提取
+     */
+    private Book parseLazy(EpubArchive archive) throws IOException {
+        EpubPackage epubPackage = EpubPackage.read(archive);
+
+        Book book = new Book();
+        book.setTitle(epubPackage.getTitle() != null && !epubPackage.getTitle().isEmpty()
+                ? epubPackage.getTitle() : "未知标题");
+
+        List<Chapter> chapters = new ArrayList<>();
+        if (!epubPackage.getToc().isEmpty()) {
+            for (EpubPackage.TocEntry entry : epubPackage.getToc()) {
+                if (!archive.contains(entry.getPath())) {
+                    Log.w(TAG, "目录指向的文件不存在: " + entry.getPath());
+                    continue;
+                }
+                Chapter chapter = new Chapter(entry.getTitle(), () -> extractText(archive.read(entry.getPath())));
+                chapter.setLengthHint(estimateTextLength(archive, entry.getPath()));
+                chapters.add(chapter);
+            }
+        } else {
+            // 没有目录时按阅读顺序逐个文件作为章节
+            List<String> spine = epubPackage.getSpine();
+            for (int i = 0; i < spine.size(); i++) {
+                String path = spine.get(i);
+                if (archive.contains(path)) {
+                    Chapter chapter = new Chapter("章节 " + (i + 1), () -> extractText(archive.read(path)));
+                    chapter.setLengthHint(estimateTextLength(archive, path));
+                    chapters.add(chapter);
+                }
+            }
+        }
+        if (chapters.isEmpty()) {
+            throw new IOException("EPUB 中没有可读的章节");
+        }
+
+        Log.d(TAG, "延迟加载 EPUB: 章节数=" + chapters.size());
+        book.setChapters(chapters);
+        book.setContentSource(archive);
+        return book;
+    }
 
+    /**
+     * 按解压后的大小估算 XHTML 中的文字数，UTF-8 中文每字 3 字节，另有标签开销，按每字 4 字节估算
+     */
+    private static long estimateTextLength(EpubArchive archive, String path) {
+        EpubArchive.Entry entry = archive.getEntry(path);
+        return entry != null ? entry.getSize() / 4 : -1;
+    }
+
+    /**
+     * 从 XHTML 中提取纯文本，段落之间以换行分隔
+     * 优先使用流式提取器，文档不是格式正确的 XML 时退回 Jsoup
+     */
+    private static String extractText(byte[] xhtml) throws IOException {
+        try {
+            return EXTRACTOR.get().extract(new ByteArrayInputStream(xhtml));
+        } catch (XmlPullParserException e) {
+            Log.w(TAG, "XHTML 格式不正确，使用 Jsoup 提取: " + e.getMessage());
+            return Jsoup.parse(new ByteArrayInputStream(xhtml), null, "").text();
+        }
+    }
+
+    /**
+     * 使用 epublib 完整读取，归档无法随机访问时使用
+     */
+    private Book parseFully(Context context, Uri uri) throws IOException {
         // 使用Epub库解析
         nl.siegmann.epublib.domain.Book epubBook;
         EpubReader epubReader = new EpubReader();
@@ -58,43 +168,59 @@ public class EpubParser implements BookParser {
         Book book = new Book();
         book.setTitle(epubBook.getTitle() != null ? epubBook.getTitle() : "未知标题");
         
-        // 解析章节
-        List<Chapter> chapters = new ArrayList<>();
+        // 各章节互不依赖，在线程池中并行提取正文，再按目录顺序收集
+        List<String> titles = new ArrayList<>();
+        List<Future<String>> contents = new ArrayList<>();
         if (epubBook.getTableOfContents() != null) {
             for (TOCReference tocRef : epubBook.getTableOfContents().getTocReferences()) {
                 if (tocRef != null) {
-                    try {
-                        String title = tocRef.getTitle() != null ? tocRef.getTitle() : "未知章节";
-                        String content = parseEpubContent(tocRef.getResource());
-                        Chapter chapter = new Chapter(title, content);
-                        chapters.add(chapter);
-                    } catch (IOException e) {
-                        Log.e(TAG, "解析章节失败: " + tocRef.getTitle(), e);
-                        // 继续处理其他章节
-                    }
+                    Resource resource = tocRef.getResource();
+                    titles.add(tocRef.getTitle() != null ? tocRef.getTitle() : "未知章节");
+                    contents.add(extractExecutor.submit(() -> parseEpubContent(resource)));
                 }
             }
         }
+
+        List<Chapter> chapters = new ArrayList<>(contents.size());
+        for (int i = 0; i < contents.size(); i++) {
+            try {
+                chapters.add(new Chapter(titles.get(i), contents.get(i).get()));
+            } catch (ExecutionException e) {
+                Log.e(TAG, "解析章节失败: " + titles.get(i), e.getCause());
+                // 继续处理其他章节
+            } catch (InterruptedException e) {
+                for (Future<String> content : contents) {
+                    content.cancel(true);
+                }
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("解析 EPUB 被中断");
+            }
+        }
         book.setChapters(chapters);
         return book;
     }
     
-    private String parseEpubContent(Resource resource) throws IOException {
+    private static ExecutorService createExtractExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(EXTRACT_THREADS, EXTRACT_THREADS,
+                30, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static String parseEpubContent(Resource resource) throws IOException {
         if (resource == null) {
             return "";
         }
-        
+
+        // 直接在字节流上解析，由解析器按声明的编码解码，不会在缓冲区边界拆开多字节字符
         StringBuilder content = new StringBuilder();
         try (InputStream inputStream = resource.getInputStream()) {
-            byte[] buffer = new byte[BUFFER_SIZE];
-            int bytesRead;
-            
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
-                content.append(new String(buffer, 0, bytesRead, resource.getInputEncoding()));
-            }
+            EXTRACTOR.get().extract(inputStream, content);
+            return content.toString();
+        } catch (XmlPullParserException e) {
+            Log.w(TAG, "XHTML 格式不正确，使用 Jsoup 提取: " + resource.getHref());
+            return Jsoup.parse(new ByteArrayInputStream(resource.getData()), null, "").text();
         }
-        
-        return Jsoup.parse(content.toString()).text();
     }
 
     @Override
@@ -118,24 +244,11 @@ public class EpubParser implements BookParser {
     }
 
     /**
-     * 检查文件大小是否超过限制
+     * 根据探测到的文件大小检查是否超过限制，大小未知时交由解析过程处理
      */
-    private void checkFileSize(Context context, Uri uri) throws IOException {
-        try (InputStream inputStream = context.getContentResolver().openInputStream(uri)) {
-            if (inputStream == null) {
-                throw new IOException("无法打开文件流");
-            }
-            
-            long fileSize = 0;
-            byte[] buffer = new byte[BUFFER_SIZE];
-            int bytesRead;
-            
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
-                fileSize += bytesRead;
-                if (fileSize > MAX_FILE_SIZE) {
-                    throw new IOException("文件大小超过限制（50MB）");
-                }
-            }
+    private void checkFileSize(FileProbe probe) throws IOException {
+        if (probe.getSize() > MAX_FILE_SIZE) {
+            throw new IOException("文件大小超过限制（50MB）");
         }
     }
 }
\ No newline at end of file
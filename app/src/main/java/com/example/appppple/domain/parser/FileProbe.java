@@ -0,0 +1,156 @@
+package com.example.appppple.domain.parser;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.provider.DocumentsContract;
+import android.provider.MediaStore;
+import android.provider.OpenableColumns;
+import android.util.Log;
+import android.webkit.MimeTypeMap;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 文件元信息探测
+ * 一次查询得到文件大小、MIME 类型、文件名和修改时间，解析器不再为校验而读取整个文件
+ */
+public class FileProbe {
+    private static final String TAG = "FileProbe";
+    public static final long UNKNOWN = -1;
+
+    private final Uri mUri;
+    private final long mSize;
+    private final String mMimeType;
+    private final String mDisplayName;
+    private final long mLastModified;
+
+    public FileProbe(Uri uri, long size, String mimeType, String displayName, long lastModified) {
+        this.mUri = uri;
+        this.mSize = size;
+        this.mMimeType = mimeType;
+        this.mDisplayName = displayName;
+        this.mLastModified = lastModified;
+    }
+
+    /**
+     * 探测文件元信息
+     * 优先使用 ContentProvider 提供的 OpenableColumns.SIZE 等列，缺失时对文件描述符做 fstat
+     * @param context 上下文
+     * @param uri 文件 URI
+     * @return 探测结果，无法获取的字段为 UNKNOWN 或 null
+     */
+    public static FileProbe probe(Context context, Uri uri) {
+        ContentResolver resolver = context.getContentResolver();
+        long size = UNKNOWN;
+        long lastModified = UNKNOWN;
+        String displayName = null;
+        String mimeType = null;
+
+        if (ContentResolver.SCHEME_CONTENT.equals(uri.getScheme())) {
+            try (Cursor cursor = resolver.query(uri, null, null, null, null)) {
+                if (cursor != null && cursor.moveToFirst()) {
+                    int nameIndex = cursor.getColumnIndex(OpenableColumns.DISPLAY_NAME);
+                    if (nameIndex != -1 && !cursor.isNull(nameIndex)) {
+                        displayName = cursor.getString(nameIndex);
+                    }
+                    int sizeIndex = cursor.getColumnIndex(OpenableColumns.SIZE);
+                    if (sizeIndex != -1 && !cursor.isNull(sizeIndex)) {
+                        size = cursor.getLong(sizeIndex);
+                    }
+                    int modifiedIndex = cursor.getColumnIndex(DocumentsContract.Document.COLUMN_LAST_MODIFIED);
+                    if (modifiedIndex != -1 && !cursor.isNull(modifiedIndex)) {
+                        lastModified = cursor.getLong(modifiedIndex);
+                    } else {
+                        // MediaStore 的修改时间以秒为单位
+                        int dateIndex = cursor.getColumnIndex(MediaStore.MediaColumns.DATE_MODIFIED);
+                        if (dateIndex != -1 && !cursor.isNull(dateIndex)) {
+                            lastModified = cursor.getLong(dateIndex) * 1000;
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "查询文件信息失败: " + uri, e);
+            }
+
+            try {
+                mimeType = resolver.getType(uri);
+            } catch (Exception e) {
+                Log.w(TAG, "获取 MIME 类型失败", e);
+            }
+        } else if (ContentResolver.SCHEME_FILE.equals(uri.getScheme()) && uri.getPath() != null) {
+            File file = new File(uri.getPath());
+            size = file.length();
+            lastModified = file.lastModified();
+            displayName = file.getName();
+        }
+
+        // 提供方没有给出大小时，对文件描述符做一次 fstat
+        if (size < 0) {
+            try (ParcelFileDescriptor fd = resolver.openFileDescriptor(uri, "r")) {
+                if (fd != null) {
+                    size = fd.getStatSize();
+                }
+            } catch (IOException | SecurityException e) {
+                Log.w(TAG, "获取文件大小失败", e);
+            }
+        }
+
+        if (displayName == null) {
+            String path = uri.getPath();
+            if (path != null) {
+                int lastSlash = path.lastIndexOf('/');
+                displayName = lastSlash != -1 ? path.substring(lastSlash + 1) : path;
+            }
+        }
+
+        // 无法从 URI 获取 MIME 类型时，根据扩展名推断
+        if (mimeType == null) {
+            String extension = MimeTypeMap.getFileExtensionFromUrl(
+                    displayName != null ? Uri.encode(displayName) : uri.toString());
+            if (extension != null && !extension.isEmpty()) {
+                mimeType = MimeTypeMap.getSingleton().getMimeTypeFromExtension(extension.toLowerCase());
+            }
+        }
+
+        Log.d(TAG, String.format("探测文件: 名称=%s, 大小=%d, 类型=%s, 修改时间=%d",
+                displayName, size, mimeType, lastModified));
+        return new FileProbe(uri, size, mimeType, displayName, lastModified);
+    }
+
+    public Uri getUri() {
+        return mUri;
+    }
+
+    /**
+     * @return 文件字节数，未知时为 UNKNOWN
+     */
+    public long getSize() {
+        return mSize;
+    }
+
+    public boolean hasSize() {
+        return mSize >= 0;
+    }
+
+    public String getMimeType() {
+        return mMimeType;
+    }
+
+    /**
+     * @return 文件名，无法获取时为"未知文件"
+     */
+    public String getDisplayName() {
+        return mDisplayName != null ? mDisplayName : "未知文件";
+    }
+
+    /**
+     * @return 最后修改时间（毫秒），未知时为 UNKNOWN
+     */
+    public long getLastModified() {
+        return mLastModified;
+    }
+}
@@ -0,0 +1,370 @@
+package com.example.appppple.domain.parser;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * 基于内存映射的 TXT 文本源
+ * 通过 ParcelFileDescriptor/FileChannel 将文件映射到内存，只解码阅读位置附近的窗口，
+ * 整本书不会以 String 的形式常驻堆内存
+ */
+public class MappedTextSource implements Closeable {
+    private static final String TAG = "MappedTextSource";
+    private static final int SAMPLE_SIZE = 4096; // 编码检测采样大小
+    private static final int MAX_LINE_SEEK = 64 * 1024; // 查找换行符的最大距离
+    private static final int ESTIMATE_SAMPLE_BYTES = 64 * 1024; // 估算每字符字节数的采样大小
+
+    private final ParcelFileDescriptor mFileDescriptor;
+    private final FileInputStream mInputStream;
+    private final MappedByteBuffer mBuffer;
+    private final Charset mCharset;
+    private final long mLength;
+    private final int mDataStart; // 跳过 BOM 之后的起始位置
+    private final byte[] mNewline; // 当前编码下换行符的字节序列
+    private volatile TxtCheckpoints mCheckpoints; // 字节与字符位置的检查点
+    private volatile long mTotalChars = -1;
+
+    /**
+     * 解码得到的文本窗口
+     */
+    public static class Window {
+        private final long mByteStart;
+        private final long mByteEnd;
+        private final String mText;
+
+        public Window(long byteStart, long byteEnd, String text) {
+            this.mByteStart = byteStart;
+            this.mByteEnd = byteEnd;
+            this.mText = text;
+        }
+
+        public long getByteStart() {
+            return mByteStart;
+        }
+
+        public long getByteEnd() {
+            return mByteEnd;
+        }
+
+        public long getByteLength() {
+            return mByteEnd - mByteStart;
+        }
+
+        public String getText() {
+            return mText;
+        }
+    }
+
+    private MappedTextSource(ParcelFileDescriptor fd, FileInputStream inputStream,
+                             MappedByteBuffer buffer, Charset charset, long length) {
+        this.mFileDescriptor = fd;
+        this.mInputStream = inputStream;
+        this.mBuffer = buffer;
+        this.mCharset = charset;
+        this.mLength = length;
+        this.mNewline = encodeNewline(charset);
+        this.mDataStart = detectBomLength(buffer, length);
+    }
+
+    /**
+     * 打开并映射文件
+     * @param context 上下文
+     * @param uri 文件 URI
+     * @return 文本源，使用完毕后需要 close
+     * @throws IOException 如果文件无法打开或过大
+     */
+    public static MappedTextSource open(Context context, Uri uri) throws IOException {
+        ParcelFileDescriptor fd = context.getContentResolver().openFileDescriptor(uri, "r");
+        if (fd == null) {
+            throw new IOException("无法打开文件描述符");
+        }
+
+        FileInputStream inputStream = null;
+        try {
+            inputStream = new FileInputStream(fd.getFileDescriptor());
+            FileChannel channel = inputStream.getChannel();
+            long length = channel.size();
+            if (length <= 0) {
+                throw new IOException("文件为空");
+            }
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("文件大小超过限制（2GB）");
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+
+            // 采样检测编码
+            int sampleSize = (int) Math.min(SAMPLE_SIZE, length);
+            byte[] sample = new byte[sampleSize];
+            ByteBuffer view = buffer.duplicate();
+            view.get(sample, 0, sampleSize);
+            Charset charset = Charset.forName(TxtParser.detectEncoding(sample, sampleSize));
+            Log.d(TAG, "映射文件完成: 大小=" + length + ", 编码=" + charset.name());
+
+            return new MappedTextSource(fd, inputStream, buffer, charset, length);
+        } catch (IOException | RuntimeException e) {
+            if (inputStream != null) {
+                inputStream.close();
+            }
+            fd.close();
+            throw e;
+        }
+    }
+
+    public Charset getCharset() {
+        return mCharset;
+    }
+
+    /**
+     * @return 文件总字节数
+     */
+    public long length() {
+        return mLength;
+    }
+
+    /**
+     * @return 正文起始字节位置（跳过 BOM）
+     */
+    public long getDataStart() {
+        return mDataStart;
+    }
+
+    /**
+     * 设置扫描得到的检查点，之后可以在字节位置和字符位置之间精确换算
+     * @param checkpoints 检查点
+     * @param totalChars 正文总字符数
+     */
+    public void setCheckpoints(TxtCheckpoints checkpoints, long totalChars) {
+        this.mTotalChars = totalChars;
+        this.mCheckpoints = checkpoints;
+    }
+
+    public boolean hasCheckpoints() {
+        TxtCheckpoints checkpoints = mCheckpoints;
+        return checkpoints != null && checkpoints.size() > 0;
+    }
+
+    /**
+     * @return 正文总字符数，没有检查点时为 -1
+     */
+    public long getTotalChars() {
+        return mTotalChars;
+    }
+
+    /**
+     * 计算字节位置对应的字符位置，只解码最近的检查点到该位置之间的内容
+     * @param byteOffset 字节位置，需位于字符边界（如窗口起点或行首）
+     * @return 字符位置，没有检查点时返回 -1
+     */
+    public long charOffsetAt(long byteOffset) throws IOException {
+        TxtCheckpoints checkpoints = mCheckpoints;
+        if (checkpoints == null || checkpoints.size() == 0) {
+            return -1;
+        }
+        long target = clamp(byteOffset);
+        int index = Math.max(0, checkpoints.floorByByte(target));
+        long baseByte = checkpoints.getByteOffset(index);
+        return checkpoints.getCharOffset(index) + decode(baseByte, target).length();
+    }
+
+    /**
+     * 计算字符位置对应的字节位置，只解码最近的检查点之后的一段内容
+     * @param charOffset 字符位置
+     * @return 字节位置，没有检查点时返回 -1
+     */
+    public long byteOffsetAt(long charOffset) throws IOException {
+        TxtCheckpoints checkpoints = mCheckpoints;
+        if (checkpoints == null || checkpoints.size() == 0) {
+            return -1;
+        }
+        int index = Math.max(0, checkpoints.floorByChar(Math.max(0, charOffset)));
+        long baseByte = checkpoints.getByteOffset(index);
+        long nextByte = index + 1 < checkpoints.size() ? checkpoints.getByteOffset(index + 1) : mLength;
+        String text = decode(baseByte, nextByte);
+        long remaining = charOffset - checkpoints.getCharOffset(index);
+        if (remaining <= 0) {
+            return baseByte;
+        }
+        if (remaining >= text.length()) {
+            return nextByte;
+        }
+        int count = (int) remaining;
+        if (Character.isHighSurrogate(text.charAt(count - 1))) {
+            count--;
+        }
+        // 重新编码前缀得到字节长度，合法文本在这些编码下可以无损往返
+        return baseByte + text.substring(0, count).getBytes(mCharset).length;
+    }
+
+    /**
+     * @return 映射缓冲区的独立视图，可在其他线程中顺序读取
+     */
+    public ByteBuffer duplicateBuffer() {
+        return mBuffer.duplicate();
+    }
+
+    /**
+     * 从指定字节位置向后读取一个窗口
+     * @param byteStart 起始字节位置，会对齐到所在行的行首
+     * @param maxBytes 窗口最大字节数，结尾对齐到行首
+     */
+    public Window readWindowFrom(long byteStart, int maxBytes) throws IOException {
+        long start = findLineStart(clamp(byteStart));
+        long end = start + maxBytes >= mLength ? mLength : findLineStart(start + maxBytes);
+        if (end <= start) {
+            end = Math.min(mLength, start + maxBytes);
+        }
+        return new Window(start, end, decode(start, end));
+    }
+
+    /**
+     * 读取以指定字节位置结尾的窗口，用于向前翻页
+     * @param byteEnd 结束字节位置（一般为上一个窗口的起点）
+     * @param maxBytes 窗口最大字节数
+     */
+    public Window readWindowBefore(long byteEnd, int maxBytes) throws IOException {
+        long end = clamp(byteEnd);
+        long start = end - maxBytes <= mDataStart ? mDataStart : findLineStart(end - maxBytes);
+        return new Window(start, end, decode(start, end));
+    }
+
+    /**
+     * 估算平均每个字符占用的字节数，用于在字节位置和页码之间换算
+     */
+    public double estimateBytesPerChar() throws IOException {
+        long end = Math.min(mLength, mDataStart + ESTIMATE_SAMPLE_BYTES);
+        end = end >= mLength ? mLength : findLineStart(end);
+        String sample = decode(mDataStart, end);
+        if (sample.isEmpty()) {
+            return 1.0;
+        }
+        return (double) (end - mDataStart) / sample.length();
+    }
+
+    /**
+     * 解码指定字节区间的文本，非法字节使用替换字符
+     */
+    public String decode(long byteStart, long byteEnd) throws IOException {
+        if (byteEnd <= byteStart) {
+            return "";
+        }
+        ByteBuffer slice = mBuffer.duplicate();
+        slice.position((int) byteStart);
+        slice.limit((int) byteEnd);
+        CharsetDecoder decoder = mCharset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        try {
+            CharBuffer chars = decoder.decode(slice);
+            return chars.toString();
+        } catch (CharacterCodingException e) {
+            throw new IOException("解码失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 查找不晚于 bytePos 的行首位置
+     * 在 UTF-8、GBK、GB18030、Big5 等编码中，换行符字节不会出现在多字节字符内部，
+     * 因此换行符之后一定是安全的字符边界
+     */
+    public long findLineStart(long bytePos) {
+        long pos = alignToUnit(clamp(bytePos));
+        long floor = Math.max(mDataStart, pos - MAX_LINE_SEEK);
+        for (long i = pos; i > floor; i -= mNewline.length) {
+            if (isNewlineEndingAt(i)) {
+                return i;
+            }
+        }
+        if (floor == mDataStart) {
+            return mDataStart;
+        }
+        // 超长段落中找不到换行符，退回到一个字符边界
+        return findCharBoundary(pos);
+    }
+
+    private boolean isNewlineEndingAt(long pos) {
+        long start = pos - mNewline.length;
+        if (start < mDataStart) {
+            return false;
+        }
+        for (int i = 0; i < mNewline.length; i++) {
+            if (mBuffer.get((int) (start + i)) != mNewline[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long findCharBoundary(long pos) {
+        if (!"UTF-8".equalsIgnoreCase(mCharset.name())) {
+            return pos;
+        }
+        // UTF-8 的后续字节均为 10xxxxxx，向前跳过即可到达字符起点
+        long i = pos;
+        while (i > mDataStart && (mBuffer.get((int) i) & 0xC0) == 0x80) {
+            i--;
+        }
+        return i;
+    }
+
+    private long alignToUnit(long pos) {
+        int unit = mNewline.length;
+        if (unit <= 1) {
+            return pos;
+        }
+        return mDataStart + ((pos - mDataStart) / unit) * unit;
+    }
+
+    private long clamp(long bytePos) {
+        return Math.max(mDataStart, Math.min(bytePos, mLength));
+    }
+
+    static byte[] encodeNewline(Charset charset) {
+        try {
+            ByteBuffer encoded = charset.newEncoder().encode(CharBuffer.wrap("\n"));
+            byte[] bytes = new byte[encoded.remaining()];
+            encoded.get(bytes);
+            return bytes.length > 0 ? bytes : new byte[]{'\n'};
+        } catch (CharacterCodingException | UnsupportedOperationException e) {
+            return new byte[]{'\n'};
+        }
+    }
+
+    private static int detectBomLength(MappedByteBuffer buffer, long length) {
+        if (length >= 3 && (buffer.get(0) & 0xFF) == 0xEF
+                && (buffer.get(1) & 0xFF) == 0xBB && (buffer.get(2) & 0xFF) == 0xBF) {
+            return 3;
+        }
+        if (length >= 2) {
+            int b0 = buffer.get(0) & 0xFF;
+            int b1 = buffer.get(1) & 0xFF;
+            if ((b0 == 0xFE && b1 == 0xFF) || (b0 == 0xFF && b1 == 0xFE)) {
+                return 2;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            mInputStream.close();
+        } finally {
+            mFileDescriptor.close();
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.appppple.domain.parser;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.appppple.domain.model.PageIndex;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 分页结果缓存
+ * 以二进制文件保存每个章节分片的页起止位置，键由书籍指纹和排版参数组成。再次以相同的排版打开同一本书时
+ * 内存映射加载，已分页章节的页数立即可知，分片只需按保存的位置切页，不再计算断点。
+ * 每本书的每种排版各占一个文件，书籍或排版变化后键不一致的文件在加载时删除，文件过多时删除最久未用的
+ */
+public class PageOffsetCache {
+    private static final String TAG = "PageOffsetCache";
+    private static final int MAGIC = 0x50474F46; // "PGOF"
+    private static final int VERSION = 1;
+    private static final String CACHE_DIR = "page_cache";
+    private static final String SUFFIX = ".pages";
+    private static final int MAX_FILES = 32;
+
+    private final File mFile;
+    private final String mKey;
+    // 各章节分片正文的长度，未分页为 -1
+    private final int[] mTextLengths;
+    // 各章节的页起止位置，依次为每页的起点和终点；从文件加载的为映射视图，第一次读取时才复制
+    private final IntBuffer[] mMapped;
+    private final int[][] mOffsets;
+    private boolean mDirty;
+
+    private PageOffsetCache(File file, String key, int chapterCount) {
+        this.mFile = file;
+        this.mKey = key;
+        this.mTextLengths = new int[chapterCount];
+        this.mMapped = new IntBuffer[chapterCount];
+        this.mOffsets = new int[chapterCount][];
+        Arrays.fill(mTextLengths, -1);
+    }
+
+    /**
+     * 缓存文件，保存在应用缓存目录下，以书籍 URI 和排版参数的摘要命名
+     * @param layoutKey 排版参数
+     */
+    public static File cacheFile(Context context, FileProbe probe, String layoutKey) {
+        File dir = new File(context.getCacheDir(), CACHE_DIR);
+        return new File(dir, TxtToc.md5Hex(probe.getUri().toString()) + "_" + TxtToc.md5Hex(layoutKey) + SUFFIX);
+    }
+
+    /**
+     * 打开分页缓存，文件不存在、格式不符或键不一致时返回空缓存并删除旧文件
+     * @param file 缓存文件
+     * @param key 书籍指纹与排版参数组成的键
+     * @param chapterCount 章节数
+     */
+    public static PageOffsetCache open(File file, String key, int chapterCount) {
+        PageOffsetCache cache = new PageOffsetCache(file, key, chapterCount);
+        if (!file.exists()) {
+            return cache;
+        }
+        try {
+            if (cache.load()) {
+                // 按修改时间淘汰，读取也算作使用
+                file.setLastModified(System.currentTimeMillis());
+                return cache;
+            }
+            Log.d(TAG, "分页缓存已失效: " + file.getName());
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "读取分页缓存失败", e);
+        }
+        file.delete();
+        return new PageOffsetCache(file, key, chapterCount);
+    }
+
+    private boolean load() throws IOException {
+        MappedByteBuffer buffer;
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(mFile, "r")) {
+            // 映射在通道关闭后仍然有效
+            FileChannel channel = randomAccessFile.getChannel();
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.remaining() < 8 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                || !mKey.equals(readString(buffer)) || buffer.getInt() != mTextLengths.length) {
+            return false;
+        }
+
+        // 章节表：每章的正文长度、页数和页起止位置在数据区中的起点（以 int 计）
+        int count = mTextLengths.length;
+        int[] pageCounts = new int[count];
+        int[] starts = new int[count];
+        for (int i = 0; i < count; i++) {
+            mTextLengths[i] = buffer.getInt();
+            pageCounts[i] = buffer.getInt();
+            starts[i] = buffer.getInt();
+        }
+
+        IntBuffer data = buffer.slice().asIntBuffer();
+        for (int i = 0; i < count; i++) {
+            if (mTextLengths[i] < 0) {
+                continue;
+            }
+            if (pageCounts[i] < 0 || starts[i] < 0 || (long) starts[i] + 2L * pageCounts[i] > data.limit()) {
+                throw new IOException("分页缓存已损坏: " + mFile);
+            }
+            IntBuffer view = data.duplicate();
+            view.position(starts[i]);
+            view.limit(starts[i] + 2 * pageCounts[i]);
+            mMapped[i] = view.slice();
+        }
+        return true;
+    }
+
+    /**
+     * @return 章节分片正文的长度，没有缓存时返回 -1
+     */
+    public synchronized int getTextLength(int chapter) {
+        return mTextLengths[chapter];
+    }
+
+    /**
+     * @return 章节的页数，没有缓存时返回 -1
+     */
+    public synchronized int getPageCount(int chapter) {
+        if (mOffsets[chapter] != null) {
+            return mOffsets[chapter].length / 2;
+        }
+        return mMapped[chapter] != null ? mMapped[chapter].limit() / 2 : -1;
+    }
+
+    /**
+     * @return 章节各页的起止位置，没有缓存时返回 null
+     */
+    public synchronized int[] getOffsets(int chapter) {
+        if (mOffsets[chapter] == null && mMapped[chapter] != null) {
+            int[] offsets = new int[mMapped[chapter].limit()];
+            mMapped[chapter].duplicate().get(offsets);
+            mOffsets[chapter] = offsets;
+            mMapped[chapter] = null;
+        }
+        return mOffsets[chapter];
+    }
+
+    /**
+     * 记录章节分片的分页结果
+     */
+    public synchronized void put(int chapter, PageIndex shard) {
+        int[] offsets = new int[2 * shard.size()];
+        for (int i = 0; i < shard.size(); i++) {
+            offsets[2 * i] = shard.getStart(i);
+            offsets[2 * i + 1] = shard.getEnd(i);
+        }
+        mTextLengths[chapter] = shard.getText().length();
+        mOffsets[chapter] = offsets;
+        mMapped[chapter] = null;
+        mDirty = true;
+    }
+
+    /**
+     * 有新的分页结果时写入文件，在后台线程中调用
+     */
+    public void save() throws IOException {
+        int[] textLengths;
+        int[][] offsets;
+        synchronized (this) {
+            if (!mDirty) {
+                return;
+            }
+            textLengths = mTextLengths.clone();
+            offsets = new int[mOffsets.length][];
+            for (int i = 0; i < offsets.length; i++) {
+                // 写入期间不再修改，映射视图先复制出来，文件被替换后不再读取旧映射
+                offsets[i] = textLengths[i] >= 0 ? getOffsets(i) : null;
+            }
+            mDirty = false;
+        }
+
+        File parent = mFile.getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        File temp = new File(mFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp), 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            byte[] key = mKey.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(key.length);
+            out.write(key);
+            out.writeInt(textLengths.length);
+            int start = 0;
+            for (int i = 0; i < textLengths.length; i++) {
+                int pageCount = offsets[i] != null ? offsets[i].length / 2 : 0;
+                out.writeInt(textLengths[i]);
+                out.writeInt(pageCount);
+                out.writeInt(start);
+                start += 2 * pageCount;
+            }
+            for (int[] chapterOffsets : offsets) {
+                if (chapterOffsets != null) {
+                    for (int offset : chapterOffsets) {
+                        out.writeInt(offset);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            synchronized (this) {
+                mDirty = true;
+            }
+            temp.delete();
+            throw e;
+        }
+        if (!temp.renameTo(mFile)) {
+            temp.delete();
+            throw new IOException("保存分页缓存失败: " + mFile);
+        }
+        prune(parent);
+    }
+
+    /**
+     * 只保留最近使用的 MAX_FILES 个缓存文件
+     */
+    private static void prune(File dir) {
+        File[] files = dir != null ? dir.listFiles((d, name) -> name.endsWith(SUFFIX)) : null;
+        if (files == null || files.length <= MAX_FILES) {
+            return;
+        }
+        Arrays.sort(files, (a, b) -> Long.compare(b.lastModified(), a.lastModified()));
+        for (int i = MAX_FILES; i < files.length; i++) {
+            files[i].delete();
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) throws IOException {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IOException("分页缓存已损坏");
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.appppple.domain.parser;
+
+import android.util.Log;
+
+import com.example.appppple.util.ComputePool;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 多核并行扫描 TXT
+ * 在换行符之后切分映射区间（换行符字节不会出现在多字节字符内部），
+ * 每个分段在共用的 ComputePool 中使用独立的解码器扫描，最后按顺序拼接。
+ * 由于按行解码，拼接结果与顺序扫描完全一致
+ */
+public class ParallelTxtScanner {
+    private static final String TAG = "ParallelTxtScanner";
+    private static final int MIN_SEGMENT_BYTES = 1024 * 1024; // 每个分段至少 1MB
+
+    private final Charset mCharset;
+    private final byte[] mNewline;
+
+    /**
+     * 扫描进度回调，分段完成的顺序不固定
+     */
+    public interface ProgressListener {
+        void onSegmentScanned(long scannedBytes, long totalBytes);
+    }
+
+    /**
+     * 扫描结果
+     */
+    public static class Result {
+        private final String mText;
+        private final TxtToc mToc;
+
+        Result(String text, TxtToc toc) {
+            this.mText = text;
+            this.mToc = toc;
+        }
+
+        /**
+         * @return 解码后的正文，未要求保留正文时为 null
+         */
+        public String getText() {
+            return mText;
+        }
+
+        public TxtToc getToc() {
+            return mToc;
+        }
+    }
+
+    public ParallelTxtScanner(Charset charset) {
+        this.mCharset = charset;
+        this.mNewline = MappedTextSource.encodeNewline(charset);
+    }
+
+    /**
+     * 并行扫描 [startByte, endByte) 区间
+     * @param buffer 映射缓冲区
+     * @param startByte 起始字节位置（跳过 BOM 之后）
+     * @param endByte 结束字节位置
+     * @param keepText 是否保留解码后的正文
+     * @param listener 进度回调，可以为 null
+     */
+    public Result scan(ByteBuffer buffer, long startByte, long endByte, boolean keepText,
+                       ProgressListener listener) throws IOException {
+        long[] bounds = split(buffer, startByte, endByte);
+        int segmentCount = bounds.length - 1;
+        Log.d(TAG, "并行扫描: 分段数=" + segmentCount + ", 编码=" + mCharset.name());
+
+        List<SegmentTask> tasks = new ArrayList<>(segmentCount);
+        for (int i = 0; i < segmentCount; i++) {
+            SegmentTask task = new SegmentTask(buffer, bounds[i], bounds[i + 1], keepText);
+            tasks.add(task);
+            ComputePool.get().execute(task);
+        }
+
+        // 按顺序拼接，每个分段的字符位置加上之前所有分段的字符数
+        StringBuilder text = keepText ? new StringBuilder() : null;
+        TxtToc.Builder tocBuilder = new TxtToc.Builder();
+        long totalChars = 0;
+        long scannedBytes = 0;
+        try {
+            for (SegmentTask task : tasks) {
+                SegmentTask.Segment segment = task.join();
+                if (text != null) {
+                    text.ensureCapacity(text.length() + segment.text.length());
+                    text.append(segment.text);
+                }
+                tocBuilder.append(segment.toc, totalChars);
+                totalChars += segment.chars;
+                scannedBytes += task.mEnd - task.mStart;
+                if (listener != null) {
+                    listener.onSegmentScanned(scannedBytes, endByte - startByte);
+                }
+            }
+        } catch (UncheckedIOException e) {
+            for (SegmentTask task : tasks) {
+                task.cancel(true);
+            }
+            throw e.getCause();
+        }
+
+        return new Result(text != null ? text.toString() : null, tocBuilder.build(totalChars));
+    }
+
+    /**
+     * 按可用核数切分区间，分界点为换行符之后的位置
+     * @return 分界点数组，首尾分别为 startByte 和 endByte
+     */
+    long[] split(ByteBuffer buffer, long startByte, long endByte) {
+        long length = endByte - startByte;
+        int segments = (int) Math.max(1,
+                Math.min(ComputePool.get().getParallelism() * 2L, length / MIN_SEGMENT_BYTES));
+        int unit = mNewline.length;
+
+        long[] bounds = new long[segments + 1];
+        int count = 0;
+        bounds[count++] = startByte;
+        for (int i = 1; i < segments; i++) {
+            long nominal = startByte + (length * i / segments) / unit * unit;
+            long boundary = findBoundaryAfter(buffer, Math.max(nominal, bounds[count - 1]), endByte);
+            if (boundary > bounds[count - 1] && boundary < endByte) {
+                bounds[count++] = boundary;
+            }
+        }
+        bounds[count++] = endByte;
+
+        long[] result = new long[count];
+        System.arraycopy(bounds, 0, result, 0, count);
+        return result;
+    }
+
+    private long findBoundaryAfter(ByteBuffer buffer, long from, long endByte) {
+        int unit = mNewline.length;
+        for (long pos = from; pos + unit <= endByte; pos += unit) {
+            if (isNewlineAt(buffer, (int) pos)) {
+                return pos + unit;
+            }
+        }
+        return endByte;
+    }
+
+    private boolean isNewlineAt(ByteBuffer buffer, int index) {
+        for (int k = 0; k < mNewline.length; k++) {
+            if (buffer.get(index + k) != mNewline[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 扫描单个分段，字符位置相对于分段起点
+     */
+    private class SegmentTask extends RecursiveTask<SegmentTask.Segment> {
+        private final ByteBuffer mBuffer;
+        private final long mStart;
+        private final long mEnd;
+        private final boolean mKeepText;
+
+        class Segment {
+            StringBuilder text;
+            TxtToc.Builder toc;
+            long chars;
+        }
+
+        SegmentTask(ByteBuffer buffer, long start, long end, boolean keepText) {
+            this.mBuffer = buffer;
+            this.mStart = start;
+            this.mEnd = end;
+            this.mKeepText = keepText;
+        }
+
+        @Override
+        protected Segment compute() {
+            ByteBuffer view = mBuffer.duplicate();
+            view.limit((int) mEnd);
+            view.position((int) mStart);
+
+            Segment segment = new Segment();
+            segment.toc = new TxtToc.Builder();
+            TxtLineScanner scanner = new TxtLineScanner(mCharset);
+            if (mKeepText) {
+                segment.text = new StringBuilder();
+                scanner.setTextOutput(segment.text);
+            }
+            ChapterDetector detector = new ChapterDetector();
+            try {
+                segment.chars = scanner.scan(view, mStart, 0, (line, byteOffset, charOffset) -> {
+                    segment.toc.onLineStart(byteOffset, charOffset);
+                    if (detector.isChapterTitle(line)) {
+                        segment.toc.add(line.toString().trim(), byteOffset, charOffset);
+                    }
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return segment;
+        }
+    }
+}
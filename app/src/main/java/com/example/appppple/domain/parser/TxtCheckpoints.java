@@ -0,0 +1,126 @@
+package com.example.appppple.domain.parser;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * 字节位置与字符位置的稀疏对照表
+ * 扫描时大约每 64KB 在行首记录一对 (字节位置, 字符位置)，行首一定是安全的字符边界。
+ * 在多字节编码的文件中定位时，只需从最近的检查点开始解码
+ */
+public class TxtCheckpoints {
+    public static final int DEFAULT_INTERVAL = 64 * 1024; // 检查点间隔（字节）
+
+    private final long[] mByteOffsets;
+    private final long[] mCharOffsets;
+    private final int mCount;
+
+    private TxtCheckpoints(long[] byteOffsets, long[] charOffsets, int count) {
+        this.mByteOffsets = byteOffsets;
+        this.mCharOffsets = charOffsets;
+        this.mCount = count;
+    }
+
+    public int size() {
+        return mCount;
+    }
+
+    public long getByteOffset(int index) {
+        return mByteOffsets[index];
+    }
+
+    public long getCharOffset(int index) {
+        return mCharOffsets[index];
+    }
+
+    /**
+     * 查找不晚于指定字节位置的检查点
+     * @return 检查点索引，没有时返回 -1
+     */
+    public int floorByByte(long byteOffset) {
+        return floorIndex(mByteOffsets, byteOffset);
+    }
+
+    /**
+     * 查找不晚于指定字符位置的检查点
+     * @return 检查点索引，没有时返回 -1
+     */
+    public int floorByChar(long charOffset) {
+        return floorIndex(mCharOffsets, charOffset);
+    }
+
+    private int floorIndex(long[] offsets, long value) {
+        int index = Arrays.binarySearch(offsets, 0, mCount, value);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(mCount);
+        for (int i = 0; i < mCount; i++) {
+            out.writeLong(mByteOffsets[i]);
+            out.writeLong(mCharOffsets[i]);
+        }
+    }
+
+    static TxtCheckpoints readFrom(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        long[] byteOffsets = new long[count];
+        long[] charOffsets = new long[count];
+        for (int i = 0; i < count; i++) {
+            byteOffsets[i] = in.readLong();
+            charOffsets[i] = in.readLong();
+        }
+        return new TxtCheckpoints(byteOffsets, charOffsets, count);
+    }
+
+    /**
+     * 随行扫描记录检查点
+     */
+    public static class Builder {
+        private final int mInterval;
+        private long[] mByteOffsets = new long[256];
+        private long[] mCharOffsets = new long[256];
+        private int mCount;
+
+        public Builder() {
+            this(DEFAULT_INTERVAL);
+        }
+
+        public Builder(int interval) {
+            this.mInterval = interval;
+        }
+
+        /**
+         * 在每个行首调用，距上一个检查点超过间隔时记录
+         */
+        public void onLineStart(long byteOffset, long charOffset) {
+            if (mCount > 0 && byteOffset - mByteOffsets[mCount - 1] < mInterval) {
+                return;
+            }
+            if (mCount == mByteOffsets.length) {
+                mByteOffsets = Arrays.copyOf(mByteOffsets, mCount * 2);
+                mCharOffsets = Arrays.copyOf(mCharOffsets, mCount * 2);
+            }
+            mByteOffsets[mCount] = byteOffset;
+            mCharOffsets[mCount] = charOffset;
+            mCount++;
+        }
+
+        /**
+         * 追加另一个分段的检查点
+         * @param charShift 分段起点的字符位置
+         */
+        public void append(Builder other, long charShift) {
+            for (int i = 0; i < other.mCount; i++) {
+                onLineStart(other.mByteOffsets[i], other.mCharOffsets[i] + charShift);
+            }
+        }
+
+        public TxtCheckpoints build() {
+            return new TxtCheckpoints(Arrays.copyOf(mByteOffsets, mCount),
+                    Arrays.copyOf(mCharOffsets, mCount), mCount);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.example.appppple.domain.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * TXT 按行流式扫描器
+ * 在字节层面按换行符切分，再逐行解码，因此每一行行首的字节位置和字符位置都是精确的。
+ * 换行符之后一定是安全的字符边界，可以作为跳转的起点
+ */
+public class TxtLineScanner {
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_LINE_BYTES = 1024 * 1024; // 超长行按块解码，不再作为整行回调
+
+    /**
+     * 行回调
+     */
+    public interface LineVisitor {
+        /**
+         * @param line 行内容（不含换行符），只在回调期间有效
+         * @param byteOffset 行首在文件中的字节位置
+         * @param charOffset 行首在正文中的字符位置
+         */
+        void onLine(CharSequence line, long byteOffset, long charOffset) throws IOException;
+    }
+
+    private final CharsetDecoder mDecoder;
+    private final byte[] mNewline;
+    private StringBuilder mTextOutput;
+
+    private byte[] mPending = new byte[READ_BUFFER_SIZE];
+    private int mPendingLength;
+    private int mSearchFrom;
+    private long mByteOffset; // mPending[0] 在文件中的位置
+    private long mCharOffset;
+    private boolean mStarted;
+    private boolean mInLongLine; // 正在按块解码超长行
+    private CharBuffer mChars = CharBuffer.allocate(8192);
+
+    public TxtLineScanner(Charset charset) {
+        this.mDecoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.mNewline = MappedTextSource.encodeNewline(charset);
+    }
+
+    /**
+     * 设置解码文本的输出，为 null 时只扫描不保留正文
+     */
+    public void setTextOutput(StringBuilder output) {
+        this.mTextOutput = output;
+    }
+
+    /**
+     * 扫描输入流，文件开头的 BOM 会被跳过
+     * @return 正文总字符数
+     */
+    public long scan(InputStream inputStream, LineVisitor visitor) throws IOException {
+        reset(0);
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        int bytesRead;
+        while ((bytesRead = inputStream.read(buffer)) != -1) {
+            feed(buffer, 0, bytesRead, visitor);
+        }
+        finish(visitor);
+        return mCharOffset;
+    }
+
+    /**
+     * 扫描内存映射的字节区间
+     * @param buffer 映射缓冲区，position 到 limit 为待扫描区间
+     * @param startByte 区间起点在文件中的位置，为 0 时会跳过 BOM
+     * @param startChar 区间起点对应的字符位置
+     * @return 扫描结束时的字符位置
+     */
+    public long scan(ByteBuffer buffer, long startByte, long startChar, LineVisitor visitor) throws IOException {
+        reset(startByte);
+        mCharOffset = startChar;
+        ByteBuffer view = buffer.duplicate();
+        byte[] chunk = new byte[READ_BUFFER_SIZE];
+        while (view.hasRemaining()) {
+            int length = Math.min(chunk.length, view.remaining());
+            view.get(chunk, 0, length);
+            feed(chunk, 0, length, visitor);
+        }
+        finish(visitor);
+        return mCharOffset;
+    }
+
+    private void reset(long startByte) {
+        mPendingLength = 0;
+        mSearchFrom = 0;
+        mByteOffset = startByte;
+        mCharOffset = 0;
+        mStarted = startByte != 0;
+        mInLongLine = false;
+        mDecoder.reset();
+    }
+
+    private void feed(byte[] bytes, int offset, int length, LineVisitor visitor) throws IOException {
+        if (!mStarted) {
+            mStarted = true;
+            int bom = bomLength(bytes, offset, length);
+            offset += bom;
+            length -= bom;
+            mByteOffset += bom;
+        }
+
+        ensurePendingCapacity(mPendingLength + length);
+        System.arraycopy(bytes, offset, mPending, mPendingLength, length);
+        mPendingLength += length;
+        processLines(visitor);
+    }
+
+    private void processLines(LineVisitor visitor) throws IOException {
+        int unit = mNewline.length;
+        int lineStart = 0;
+        int i = mSearchFrom;
+        while (i + unit <= mPendingLength) {
+            if (isNewlineAt(i)) {
+                emitLine(lineStart, i + unit, visitor);
+                lineStart = i + unit;
+            }
+            i += unit;
+        }
+
+        if (mPendingLength - lineStart > MAX_LINE_BYTES) {
+            // 超长行：按块解码，剩余的不完整字符留到下一次
+            lineStart = emitPartial(lineStart);
+            i = lineStart;
+        }
+
+        compact(lineStart);
+        mSearchFrom = i - lineStart;
+    }
+
+    private void finish(LineVisitor visitor) throws IOException {
+        if (mPendingLength > 0) {
+            emitLine(0, mPendingLength, visitor);
+            mPendingLength = 0;
+            mSearchFrom = 0;
+        }
+    }
+
+    private boolean isNewlineAt(int index) {
+        for (int k = 0; k < mNewline.length; k++) {
+            if (mPending[index + k] != mNewline[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void emitLine(int start, int end, LineVisitor visitor) throws IOException {
+        long lineByteOffset = mByteOffset + start;
+        long lineCharOffset = mCharOffset;
+        boolean wasLongLine = mInLongLine;
+        int decoded = decode(start, end, true);
+        mInLongLine = false;
+
+        if (mTextOutput != null) {
+            mTextOutput.append(mChars.array(), 0, decoded);
+        }
+        if (visitor != null && !wasLongLine) {
+            int lineLength = decoded;
+            while (lineLength > 0 && (mChars.get(lineLength - 1) == '\n' || mChars.get(lineLength - 1) == '\r')) {
+                lineLength--;
+            }
+            visitor.onLine(CharBuffer.wrap(mChars.array(), 0, lineLength), lineByteOffset, lineCharOffset);
+        }
+        mCharOffset += decoded;
+    }
+
+    private int emitPartial(int start) {
+        ByteBuffer in = ByteBuffer.wrap(mPending, start, mPendingLength - start);
+        int decoded = decode(in, false);
+        mInLongLine = true;
+        if (mTextOutput != null) {
+            mTextOutput.append(mChars.array(), 0, decoded);
+        }
+        mCharOffset += decoded;
+        return in.position();
+    }
+
+    private int decode(int start, int end, boolean endOfInput) {
+        return decode(ByteBuffer.wrap(mPending, start, end - start), endOfInput);
+    }
+
+    /**
+     * 解码到 mChars，返回解码得到的字符数
+     */
+    private int decode(ByteBuffer in, boolean endOfInput) {
+        int maxChars = (int) Math.ceil(in.remaining() * (double) mDecoder.maxCharsPerByte()) + 16;
+        if (mChars.capacity() < maxChars) {
+            mChars = CharBuffer.allocate(maxChars);
+        }
+        mChars.clear();
+        CoderResult result = mDecoder.decode(in, mChars, endOfInput);
+        if (endOfInput && !result.isError()) {
+            mDecoder.flush(mChars);
+            mDecoder.reset();
+        }
+        return mChars.position();
+    }
+
+    private void compact(int consumed) {
+        if (consumed <= 0) {
+            return;
+        }
+        int remaining = mPendingLength - consumed;
+        System.arraycopy(mPending, consumed, mPending, 0, remaining);
+        mPendingLength = remaining;
+        mByteOffset += consumed;
+    }
+
+    private void ensurePendingCapacity(int capacity) {
+        if (mPending.length < capacity) {
+            byte[] grown = new byte[Math.max(capacity, mPending.length * 2)];
+            System.arraycopy(mPending, 0, grown, 0, mPendingLength);
+            mPending = grown;
+        }
+    }
+
+    /**
+     * 计算开头 BOM 的字节数
+     */
+    static int bomLength(byte[] bytes, int offset, int length) {
+        if (length >= 3 && (bytes[offset] & 0xFF) == 0xEF
+                && (bytes[offset + 1] & 0xFF) == 0xBB && (bytes[offset + 2] & 0xFF) == 0xBF) {
+            return 3;
+        }
+        if (length >= 2) {
+            int b0 = bytes[offset] & 0xFF;
+            int b1 = bytes[offset + 1] & 0xFF;
+            if ((b0 == 0xFE && b1 == 0xFF) || (b0 == 0xFF && b1 == 0xFE)) {
+                return 2;
+            }
+        }
+        return 0;
+    }
+}
@@ -8,27 +8,24 @@ import com.example.appppple.domain.model.Book;
 import com.example.appppple.domain.model.Chapter;
 import org.mozilla.universalchardet.UniversalDetector;
 
-import java.io.ByteArrayOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.SequenceInputStream;
 import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 /**
  * TXT 文件解析器
  */
 public class TxtParser implements BookParser {
     private static final String TAG = "TxtParser";
-    private static final int BUFFER_SIZE = 8192; // 8KB 缓冲区
     private static final long MAX_FILE_SIZE = 50 * 1024 * 1024; // 50MB 最大文件大小
+    private static final long STREAMING_THRESHOLD = 16 * 1024 * 1024; // 超过 16MB 使用内存映射流式模式
+    private static final long PARALLEL_THRESHOLD = 4 * 1024 * 1024; // 超过 4MB 使用多核并行解码
     private static final String DEFAULT_ENCODING = "UTF-8";
     private static final int CHUNK_SIZE = 1024 * 1024; // 1MB 分块大小
-    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
 
     private final List<ChunkLoadListener> chunkLoadListeners = new ArrayList<>();
 
@@ -65,25 +62,33 @@ public class TxtParser implements BookParser {
     }
 
     @Override
-    public Book parse(Context context, Uri uri) throws IOException, SecurityException, IllegalArgumentException {
+    public Book parse(Context context, Uri uri, FileProbe probe) throws IOException, SecurityException, IllegalArgumentException {
         if (context == null) {
             throw new IllegalArgumentException("Context 不能为空");
         }
         if (uri == null) {
             throw new IllegalArgumentException("URI 不能为空");
         }
+        if (probe == null) {
+            throw new IllegalArgumentException("文件信息不能为空");
+        }
 
         Log.d(TAG, "开始解析文件: " + uri.toString());
 
-        // 检查文件大小
-        checkFileSize(context, uri);
+        // 大文件使用内存映射流式模式，不再一次性读入内存
+        if (probe.getSize() > STREAMING_THRESHOLD) {
+            return parseStreaming(context, uri, probe);
+        }
 
         Book book = new Book();
-        String fileName = getFileNameFromUri(context, uri);
-        book.setTitle(fileName.replace(".txt", ""));
-        
-        List<Chapter> chapters = new ArrayList<>();
-        
+        book.setTitle(probe.getDisplayName().replace(".txt", ""));
+
+        TxtToc cachedToc = loadToc(context, probe);
+
+        if (probe.getSize() >= PARALLEL_THRESHOLD) {
+            return parseParallel(context, uri, probe, book, cachedToc);
+        }
+
         try (InputStream inputStream = context.getContentResolver().openInputStream(uri)) {
             if (inputStream == null) {
                 throw new IOException("无法打开文件流");
@@ -97,40 +102,43 @@ public class TxtParser implements BookParser {
             }
 
             // 检测文件编码
-            String encoding = detectEncoding(sampleBytes);
+            String encoding = detectEncoding(sampleBytes, sampleSize);
             Log.d(TAG, "检测到的文件编码: " + encoding);
 
-            // 使用检测到的编码创建 InputStreamReader
-            InputStreamReader reader = new InputStreamReader(
-                new java.io.SequenceInputStream(
-                    new java.io.ByteArrayInputStream(sampleBytes, 0, sampleSize),
-                    inputStream
-                ),
-                Charset.forName(encoding)
-            );
-
-            // 使用 StringBuilder 构建内容
+            // 按行扫描，同时识别章节标题；已有目录缓存时只读取正文
             StringBuilder contentBuilder = new StringBuilder();
-            char[] buffer = new char[BUFFER_SIZE];
-            int charsRead;
-            long totalCharsRead = 0;
-            long lastMemoryLogBytes = 0;
-
-            while ((charsRead = reader.read(buffer)) != -1) {
-                contentBuilder.append(buffer, 0, charsRead);
-                totalCharsRead += charsRead;
-
-                // 每读取 1MB 输出一次内存信息
-                if (totalCharsRead - lastMemoryLogBytes >= CHUNK_SIZE) {
-                    logMemoryUsage("读取中 - 已读取: " + (totalCharsRead / (1024 * 1024)) + "MB");
-                    lastMemoryLogBytes = totalCharsRead;
-                    
-                    // 通知分块加载进度
-                    for (ChunkLoadListener listener : chunkLoadListeners) {
-                        listener.onChunkLoaded((int) totalCharsRead, (int) inputStream.available());
-                    }
-                }
-            }
+            TxtLineScanner scanner = new TxtLineScanner(Charset.forName(encoding));
+            scanner.setTextOutput(contentBuilder);
+            ChapterDetector detector = cachedToc == null ? new ChapterDetector() : null;
+            TxtToc.Builder tocBuilder = new TxtToc.Builder();
+            long totalBytes = probe.getSize();
+            long[] lastMemoryLogChars = {0};
+
+            long totalChars = scanner.scan(new SequenceInputStream(
+                    new ByteArrayInputStream(sampleBytes, 0, sampleSize), inputStream),
+                    (line, byteOffset, charOffset) -> {
+                        // 文件大小未知时，在读取过程中限制内容大小
+                        if (byteOffset > MAX_FILE_SIZE) {
+                            throw new IOException("文件大小超过限制（50MB）");
+                        }
+                        if (detector != null) {
+                            tocBuilder.onLineStart(byteOffset, charOffset);
+                            if (detector.isChapterTitle(line)) {
+                                tocBuilder.add(line.toString().trim(), byteOffset, charOffset);
+                            }
+                        }
+
+                        // 每读取 1MB 输出一次内存信息
+                        if (charOffset - lastMemoryLogChars[0] >= CHUNK_SIZE) {
+                            logMemoryUsage("读取中 - 已读取: " + (charOffset / (1024 * 1024)) + "MB");
+                            lastMemoryLogChars[0] = charOffset;
+
+                            // 通知分块加载进度
+                            for (ChunkLoadListener listener : chunkLoadListeners) {
+                                listener.onChunkLoaded((int) byteOffset, (int) totalBytes);
+                            }
+                        }
+                    });
 
             // 输出读取完成后的内存使用情况
             logMemoryUsage("文件读取完成");
@@ -140,10 +148,13 @@ public class TxtParser implements BookParser {
                 throw new IOException("文件内容为空");
             }
 
-            // 将整个文件内容作为一个章节
-            Chapter chapter = new Chapter("正文", content);
-            chapters.add(chapter);
-            book.setChapters(chapters);
+            TxtToc toc = cachedToc;
+            if (toc == null) {
+                toc = tocBuilder.build(totalChars);
+                saveToc(context, probe, toc);
+            }
+            book.setChapters(buildChapters(content, toc));
+            Log.d(TAG, "识别到章节数: " + toc.size());
             
             // 通知加载完成
             for (ChunkLoadListener listener : chunkLoadListeners) {
@@ -161,14 +172,187 @@ public class TxtParser implements BookParser {
         return book;
     }
 
+    /**
+     * 内存映射后并行解码整个文件，结果与顺序解码一致
+     */
+    private Book parseParallel(Context context, Uri uri, FileProbe probe, Book book, TxtToc cachedToc)
+            throws IOException {
+        try (MappedTextSource source = MappedTextSource.open(context, uri)) {
+            Log.d(TAG, "检测到的文件编码: " + source.getCharset().name());
+            ParallelTxtScanner.Result result = new ParallelTxtScanner(source.getCharset()).scan(
+                    source.duplicateBuffer(), source.getDataStart(), source.length(), true,
+                    (scannedBytes, totalBytes) -> {
+                        for (ChunkLoadListener listener : chunkLoadListeners) {
+                            listener.onChunkLoaded((int) scannedBytes, (int) totalBytes);
+                        }
+                    });
+            logMemoryUsage("文件读取完成");
+
+            String content = result.getText();
+            if (content.isEmpty()) {
+                throw new IOException("文件内容为空");
+            }
+
+            TxtToc toc = cachedToc;
+            if (toc == null) {
+                toc = result.getToc();
+                saveToc(context, probe, toc);
+            }
+            book.setChapters(buildChapters(content, toc));
+            Log.d(TAG, "识别到章节数: " + toc.size());
+
+            for (ChunkLoadListener listener : chunkLoadListeners) {
+                listener.onLoadComplete();
+            }
+            return book;
+        } catch (IOException e) {
+            Log.e(TAG, "解析 TXT 文件失败", e);
+            for (ChunkLoadListener listener : chunkLoadListeners) {
+                listener.onLoadError(e);
+            }
+            throw new IOException("解析 TXT 文件失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 按目录切分正文
+     * 第一个标题之前的内容作为"前言"，没有识别到标题时整个文件作为一个章节
+     */
+    private List<Chapter> buildChapters(String content, TxtToc toc) {
+        List<Chapter> chapters = new ArrayList<>();
+        if (toc.size() == 0 || toc.getCharOffset(toc.size() - 1) > content.length()) {
+            Chapter chapter = new Chapter("正文", content, 0, 0);
+            chapter.setContentCharOffset(0);
+            chapters.add(chapter);
+            return chapters;
+        }
+
+        int prefaceEnd = (int) toc.getCharOffset(0);
+        int prefaceStart = skipWhitespace(content, 0, prefaceEnd);
+        if (prefaceStart < prefaceEnd) {
+            Chapter preface = new Chapter("前言", content.substring(prefaceStart, prefaceEnd).trim(), 0, 0);
+            preface.setContentCharOffset(prefaceStart);
+            chapters.add(preface);
+        }
+
+        for (int i = 0; i < toc.size(); i++) {
+            int start = (int) toc.getCharOffset(i);
+            int end = i + 1 < toc.size() ? (int) toc.getCharOffset(i + 1) : content.length();
+            // 正文从标题行之后开始
+            int bodyStart = content.indexOf('\n', start);
+            bodyStart = bodyStart == -1 || bodyStart > end ? end : bodyStart + 1;
+            bodyStart = skipWhitespace(content, bodyStart, end);
+            Chapter chapter = new Chapter(toc.getTitle(i), content.substring(bodyStart, end).trim(),
+                    toc.getByteOffset(i), start);
+            chapter.setContentCharOffset(bodyStart);
+            chapters.add(chapter);
+        }
+        return chapters;
+    }
+
+    /**
+     * 跳过 String.trim 会去掉的前导空白
+     */
+    private static int skipWhitespace(String content, int start, int end) {
+        while (start < end && content.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    /**
+     * 流式解析大文件：只建立内存映射，正文由阅读器按窗口解码
+     */
+    private Book parseStreaming(Context context, Uri uri, FileProbe probe) throws IOException {
+        Log.d(TAG, String.format("文件大小 %.2fMB，使用流式模式", probe.getSize() / (1024.0 * 1024.0)));
+
+        MappedTextSource source = null;
+        TxtToc toc;
+        try {
+            source = MappedTextSource.open(context, uri);
+            toc = loadToc(context, probe);
+            if (toc == null) {
+                toc = scanToc(source);
+                saveToc(context, probe, toc);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "映射 TXT 文件失败", e);
+            if (source != null) {
+                try {
+                    source.close();
+                } catch (IOException closeError) {
+                    e.addSuppressed(closeError);
+                }
+            }
+            for (ChunkLoadListener listener : chunkLoadListeners) {
+                listener.onLoadError(e);
+            }
+            throw new IOException("解析 TXT 文件失败: " + e.getMessage());
+        }
+        logMemoryUsage("文件映射完成");
+
+        // 章节只记录位置，正文由阅读器按窗口解码
+        List<Chapter> chapters = new ArrayList<>(toc.size());
+        for (int i = 0; i < toc.size(); i++) {
+            chapters.add(new Chapter(toc.getTitle(i), "", toc.getByteOffset(i), toc.getCharOffset(i)));
+        }
+
+        Book book = new Book();
+        book.setTitle(probe.getDisplayName().replace(".txt", ""));
+        source.setCheckpoints(toc.getCheckpoints(), toc.getTotalChars());
+        book.setTextSource(source);
+        book.setChapters(chapters);
+        Log.d(TAG, "识别到章节数: " + toc.size());
+
+        for (ChunkLoadListener listener : chunkLoadListeners) {
+            listener.onLoadComplete();
+        }
+        return book;
+    }
+
+    /**
+     * 在内存映射上并行扫描章节标题和检查点，不保留正文
+     */
+    private TxtToc scanToc(MappedTextSource source) throws IOException {
+        return new ParallelTxtScanner(source.getCharset()).scan(source.duplicateBuffer(),
+                source.getDataStart(), source.length(), false, null).getToc();
+    }
+
+    private TxtToc loadToc(Context context, FileProbe probe) {
+        if (!probe.hasSize()) {
+            return null;
+        }
+        try {
+            TxtToc toc = TxtToc.readFrom(TxtToc.cacheFile(context, probe), TxtToc.cacheKey(probe));
+            if (toc != null) {
+                Log.d(TAG, "使用缓存的目录，章节数: " + toc.size());
+            }
+            return toc;
+        } catch (IOException e) {
+            Log.w(TAG, "读取目录缓存失败", e);
+            return null;
+        }
+    }
+
+    private void saveToc(Context context, FileProbe probe, TxtToc toc) {
+        if (!probe.hasSize()) {
+            return;
+        }
+        try {
+            toc.writeTo(TxtToc.cacheFile(context, probe), TxtToc.cacheKey(probe));
+        } catch (IOException e) {
+            Log.w(TAG, "保存目录缓存失败", e);
+        }
+    }
+
     /**
      * 使用 juniversalchardet 检测文件编码
      */
-    private String detectEncoding(byte[] content) {
+    static String detectEncoding(byte[] content, int length) {
         UniversalDetector detector = new UniversalDetector(null);
         
         // 处理文件内容
-        detector.handleData(content, 0, content.length);
+        detector.handleData(content, 0, length);
         detector.dataEnd();
         
         String encoding = detector.getDetectedCharset();
@@ -208,63 +392,4 @@ public class TxtParser implements BookParser {
             return false;
         }
     }
-
-    /**
-     * 检查文件大小是否超过限制
-     */
-    private void checkFileSize(Context context, Uri uri) throws IOException {
-        try (InputStream inputStream = context.getContentResolver().openInputStream(uri)) {
-            if (inputStream == null) {
-                throw new IOException("无法打开文件流");
-            }
-            
-            long fileSize = 0;
-            byte[] buffer = new byte[BUFFER_SIZE];
-            int bytesRead;
-            
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
-                fileSize += bytesRead;
-                if (fileSize > MAX_FILE_SIZE) {
-                    throw new IOException("文件大小超过限制（50MB）");
-                }
-            }
-        }
-    }
-
-    /**
-     * 从 URI 中获取文件名
-     */
-    private String getFileNameFromUri(Context context, Uri uri) {
-        String fileName = null;
-        
-        try {
-            // 尝试从 URI 获取文件名
-            if (uri.getScheme() != null && uri.getScheme().equals("content")) {
-                try (android.database.Cursor cursor = context.getContentResolver().query(
-                        uri, null, null, null, null)) {
-                    if (cursor != null && cursor.moveToFirst()) {
-                        int nameIndex = cursor.getColumnIndex(android.provider.OpenableColumns.DISPLAY_NAME);
-                        if (nameIndex != -1) {
-                            fileName = cursor.getString(nameIndex);
-                        }
-                    }
-                }
-            }
-            
-            // 如果无法从 URI 获取，尝试从路径获取
-            if (fileName == null) {
-                String path = uri.getPath();
-                if (path != null) {
-                    int lastSlash = path.lastIndexOf('/');
-                    if (lastSlash != -1) {
-                        fileName = path.substring(lastSlash + 1);
-                    }
-                }
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "获取文件名失败", e);
-        }
-        
-        return fileName != null ? fileName : "未知文件";
-    }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,236 @@
+package com.example.appppple.domain.parser;
+
+import android.content.Context;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * TXT 目录表
+ * 以并列的原始数组保存每个章节的标题、字节位置和字符位置，按位置二分查找所在章节，
+ * 同时附带字节与字符位置的检查点
+ */
+public class TxtToc {
+    private static final int MAGIC = 0x54584354; // "TXCT"
+    private static final int VERSION = 2;
+    private static final String CACHE_DIR = "txt_toc";
+
+    private final String[] mTitles;
+    private final long[] mByteOffsets;
+    private final long[] mCharOffsets;
+    private final int mCount;
+    private final long mTotalChars;
+    private final TxtCheckpoints mCheckpoints;
+
+    private TxtToc(String[] titles, long[] byteOffsets, long[] charOffsets, int count, long totalChars,
+                   TxtCheckpoints checkpoints) {
+        this.mTitles = titles;
+        this.mByteOffsets = byteOffsets;
+        this.mCharOffsets = charOffsets;
+        this.mCount = count;
+        this.mTotalChars = totalChars;
+        this.mCheckpoints = checkpoints;
+    }
+
+    public int size() {
+        return mCount;
+    }
+
+    public String getTitle(int index) {
+        return mTitles[index];
+    }
+
+    /**
+     * @return 章节标题行在文件中的字节位置
+     */
+    public long getByteOffset(int index) {
+        return mByteOffsets[index];
+    }
+
+    /**
+     * @return 章节标题行在正文中的字符位置
+     */
+    public long getCharOffset(int index) {
+        return mCharOffsets[index];
+    }
+
+    /**
+     * @return 正文总字符数
+     */
+    public long getTotalChars() {
+        return mTotalChars;
+    }
+
+    /**
+     * @return 字节与字符位置的检查点
+     */
+    public TxtCheckpoints getCheckpoints() {
+        return mCheckpoints;
+    }
+
+    /**
+     * 查找字节位置所在的章节
+     * @return 章节索引，位于第一个章节之前时返回 -1
+     */
+    public int indexOfByteOffset(long byteOffset) {
+        return floorIndex(mByteOffsets, byteOffset);
+    }
+
+    /**
+     * 查找字符位置所在的章节
+     * @return 章节索引，位于第一个章节之前时返回 -1
+     */
+    public int indexOfCharOffset(long charOffset) {
+        return floorIndex(mCharOffsets, charOffset);
+    }
+
+    private int floorIndex(long[] offsets, long value) {
+        int index = Arrays.binarySearch(offsets, 0, mCount, value);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * 保存到文件
+     * @param file 目标文件
+     * @param key 书籍标识，加载时用于校验目录是否仍然有效
+     */
+    public void writeTo(File file, String key) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(key);
+            out.writeLong(mTotalChars);
+            out.writeInt(mCount);
+            for (int i = 0; i < mCount; i++) {
+                out.writeUTF(mTitles[i]);
+                out.writeLong(mByteOffsets[i]);
+                out.writeLong(mCharOffsets[i]);
+            }
+            mCheckpoints.writeTo(out);
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("保存目录失败: " + file);
+        }
+    }
+
+    /**
+     * 从文件加载
+     * @param file 目录文件
+     * @param key 书籍标识
+     * @return 目录表，文件不存在、格式不符或书籍已变化时返回 null
+     */
+    public static TxtToc readFrom(File file, String key) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !key.equals(in.readUTF())) {
+                return null;
+            }
+            long totalChars = in.readLong();
+            int count = in.readInt();
+            String[] titles = new String[count];
+            long[] byteOffsets = new long[count];
+            long[] charOffsets = new long[count];
+            for (int i = 0; i < count; i++) {
+                titles[i] = in.readUTF();
+                byteOffsets[i] = in.readLong();
+                charOffsets[i] = in.readLong();
+            }
+            TxtCheckpoints checkpoints = TxtCheckpoints.readFrom(in);
+            return new TxtToc(titles, byteOffsets, charOffsets, count, totalChars, checkpoints);
+        }
+    }
+
+    /**
+     * 书籍标识，文件大小或修改时间变化后目录失效
+     */
+    public static String cacheKey(FileProbe probe) {
+        return probe.getUri() + "|" + probe.getSize() + "|" + probe.getLastModified();
+    }
+
+    /**
+     * 目录缓存文件
+     * content:// 文件所在目录通常不可写，因此保存在应用私有目录下，以书籍标识的摘要命名
+     */
+    public static File cacheFile(Context context, FileProbe probe) {
+        File dir = new File(context.getFilesDir(), CACHE_DIR);
+        return new File(dir, md5Hex(probe.getUri().toString()) + ".toc");
+    }
+
+    public static String md5Hex(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b & 0xFF));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(value.hashCode());
+        }
+    }
+
+    /**
+     * 扫描过程中逐条追加章节，并在行首记录检查点
+     */
+    public static class Builder {
+        private final TxtCheckpoints.Builder mCheckpoints = new TxtCheckpoints.Builder();
+        private String[] mTitles = new String[64];
+        private long[] mByteOffsets = new long[64];
+        private long[] mCharOffsets = new long[64];
+        private int mCount;
+
+        public void onLineStart(long byteOffset, long charOffset) {
+            mCheckpoints.onLineStart(byteOffset, charOffset);
+        }
+
+        public void add(String title, long byteOffset, long charOffset) {
+            if (mCount == mTitles.length) {
+                int capacity = mCount * 2;
+                mTitles = Arrays.copyOf(mTitles, capacity);
+                mByteOffsets = Arrays.copyOf(mByteOffsets, capacity);
+                mCharOffsets = Arrays.copyOf(mCharOffsets, capacity);
+            }
+            mTitles[mCount] = title;
+            mByteOffsets[mCount] = byteOffset;
+            mCharOffsets[mCount] = charOffset;
+            mCount++;
+        }
+
+        /**
+         * 追加另一个分段的扫描结果
+         * @param other 分段的目录，字符位置相对于分段起点
+         * @param charShift 分段起点的字符位置
+         */
+        public void append(Builder other, long charShift) {
+            for (int i = 0; i < other.mCount; i++) {
+                add(other.mTitles[i], other.mByteOffsets[i], other.mCharOffsets[i] + charShift);
+            }
+            mCheckpoints.append(other.mCheckpoints, charShift);
+        }
+
+        public TxtToc build(long totalChars) {
+            return new TxtToc(Arrays.copyOf(mTitles, mCount), Arrays.copyOf(mByteOffsets, mCount),
+                    Arrays.copyOf(mCharOffsets, mCount), mCount, totalChars, mCheckpoints.build());
+        }
+    }
+}
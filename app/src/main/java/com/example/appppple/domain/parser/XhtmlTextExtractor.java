@@ -0,0 +1,155 @@
+package com.example.appppple.domain.parser;
+
+import org.kxml2.io.KXmlParser;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 流式 XHTML 正文提取器
+ * 基于 kxml2 拉取解析器逐个读取标记，直接把文本和段落分隔写入输出缓冲区，不构建 DOM。
+ * 连续空白折叠为一个空格，块级元素之间以换行分隔。非线程安全，每个线程使用独立实例
+ */
+public class XhtmlTextExtractor {
+    private static final String FEATURE_RELAXED = "http://xmlpull.org/v1/doc/features.html#relaxed";
+
+    // 块级元素，前后各断开一个段落
+    private static final Set<String> BLOCK_ELEMENTS = new HashSet<>(Arrays.asList(
+            "p", "div", "h1", "h2", "h3", "h4", "h5", "h6", "li", "ul", "ol", "dl", "dt", "dd",
+            "blockquote", "pre", "section", "article", "header", "footer", "aside", "nav",
+            "figure", "figcaption", "table", "tr", "hr", "address", "body"));
+
+    // 不含正文的元素，整体跳过
+    private static final Set<String> SKIPPED_ELEMENTS = new HashSet<>(Arrays.asList(
+            "head", "script", "style", "title", "svg", "math"));
+
+    // XHTML DTD 中常用的命名实体，kxml2 不读取 DTD，需要手动定义
+    private static final String[][] HTML_ENTITIES = {
+            {"nbsp", "\u00A0"}, {"ensp", "\u2002"}, {"emsp", "\u2003"}, {"thinsp", "\u2009"},
+            {"mdash", "—"}, {"ndash", "–"}, {"hellip", "…"}, {"middot", "·"},
+            {"lsquo", "‘"}, {"rsquo", "’"}, {"ldquo", "“"}, {"rdquo", "”"},
+            {"laquo", "«"}, {"raquo", "»"}, {"bull", "•"}, {"times", "×"},
+            {"copy", "©"}, {"reg", "®"}, {"trade", "™"}, {"deg", "°"},
+            {"shy", "\u00AD"}, {"zwj", "\u200D"}, {"zwnj", "\u200C"}};
+
+    private final KXmlParser mParser = new KXmlParser();
+    private final int[] mTextRange = new int[2];
+
+    private StringBuilder mOutput;
+    private int mOutputStart;
+    private boolean mPendingSpace;
+    private boolean mAtParagraphStart;
+
+    /**
+     * 提取正文
+     * @param inputStream XHTML 字节流，编码由 BOM 或 XML 声明决定，默认 UTF-8
+     * @return 纯文本，段落之间以换行分隔
+     * @throws XmlPullParserException 如果文档不是格式正确的 XML
+     */
+    public String extract(InputStream inputStream) throws IOException, XmlPullParserException {
+        StringBuilder output = new StringBuilder();
+        extract(inputStream, output);
+        return output.toString();
+    }
+
+    /**
+     * 提取正文并追加到输出缓冲区
+     * @param inputStream XHTML 字节流
+     * @param output 输出缓冲区
+     * @throws XmlPullParserException 如果文档不是格式正确的 XML，此时输出中可能已有部分内容
+     */
+    public void extract(InputStream inputStream, StringBuilder output) throws IOException, XmlPullParserException {
+        mOutput = output;
+        mOutputStart = output.length();
+        mPendingSpace = false;
+        mAtParagraphStart = true;
+
+        mParser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, true);
+        mParser.setFeature(FEATURE_RELAXED, true);
+        mParser.setInput(inputStream, null);
+        // setInput 会清空实体表，需要每次重新定义
+        for (String[] entity : HTML_ENTITIES) {
+            mParser.defineEntityReplacementText(entity[0], entity[1]);
+        }
+
+        try {
+            int skipDepth = 0;
+            int event;
+            while ((event = mParser.next()) != XmlPullParser.END_DOCUMENT) {
+                switch (event) {
+                    case XmlPullParser.START_TAG: {
+                        String name = mParser.getName();
+                        if (skipDepth > 0 || SKIPPED_ELEMENTS.contains(name)) {
+                            skipDepth++;
+                        } else if ("br".equals(name)) {
+                            lineBreak();
+                        } else if (BLOCK_ELEMENTS.contains(name)) {
+                            paragraphBreak();
+                        }
+                        break;
+                    }
+                    case XmlPullParser.END_TAG:
+                        if (skipDepth > 0) {
+                            skipDepth--;
+                        } else if (BLOCK_ELEMENTS.contains(mParser.getName())) {
+                            paragraphBreak();
+                        }
+                        break;
+                    case XmlPullParser.TEXT:
+                        if (skipDepth == 0) {
+                            appendText(mParser.getTextCharacters(mTextRange), mTextRange[0], mTextRange[1]);
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } finally {
+            // 去掉末尾的换行
+            int end = output.length();
+            while (end > mOutputStart && output.charAt(end - 1) == '\n') {
+                end--;
+            }
+            output.setLength(end);
+            mOutput = null;
+        }
+    }
+
+    private void appendText(char[] chars, int start, int length) {
+        for (int i = start; i < start + length; i++) {
+            char c = chars[i];
+            if (c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == '\f') {
+                mPendingSpace = true;
+                continue;
+            }
+            if (mPendingSpace && !mAtParagraphStart) {
+                mOutput.append(' ');
+            }
+            mOutput.append(c);
+            mPendingSpace = false;
+            mAtParagraphStart = false;
+        }
+    }
+
+    private void paragraphBreak() {
+        if (!mAtParagraphStart) {
+            mOutput.append('\n');
+            mAtParagraphStart = true;
+        }
+        mPendingSpace = false;
+    }
+
+    private void lineBreak() {
+        // <br> 总是换行，但不产生空段落
+        if (mOutput.length() > mOutputStart && mOutput.charAt(mOutput.length() - 1) != '\n') {
+            mOutput.append('\n');
+        }
+        mAtParagraphStart = true;
+        mPendingSpace = false;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.appppple.domain.search;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 全文检索表的分词
+ * SQLite 自带的分词器不切分中文，一整段汉字会成为一个词，因此写入前先在 Java 中分词：
+ * 汉字按相邻两字切成二元组，一段汉字的最后一个字另外单独作为一个词，西文字母和数字按整词，全部转为小写，
+ * 去重后以空格分隔写入检索列。查询时同样切分，各词同时出现的文本块即为候选，再由调用方在原文中核对
+ */
+public final class FtsTokenizer {
+    private static final int MAX_QUERY_TERMS = 16; // 查询最多使用的词数，更多的词只增加合并开销
+
+    private FtsTokenizer() {
+    }
+
+    /**
+     * @return 文本中出现的词，以空格分隔，每个词只出现一次
+     */
+    public static String indexTerms(CharSequence text) {
+        Set<String> terms = new LinkedHashSet<>();
+        tokenize(text, terms, false, Integer.MAX_VALUE);
+        return String.join(" ", terms);
+    }
+
+    /**
+     * 转为 MATCH 查询：汉字二元组和西文整词都必须出现，单独的一个汉字和查询末尾的西文词按前缀匹配
+     * @return 查询表达式，关键词中没有可检索的字符时返回 null
+     */
+    public static String matchQuery(String keyword) {
+        Set<String> terms = new LinkedHashSet<>();
+        tokenize(keyword, terms, true, MAX_QUERY_TERMS);
+        if (terms.isEmpty()) {
+            return null;
+        }
+        String last = null;
+        for (String term : terms) {
+            last = term;
+        }
+        boolean endsInWord = SearchIndex.isWordChar(keyword.charAt(keyword.length() - 1));
+        StringBuilder query = new StringBuilder();
+        for (String term : terms) {
+            if (query.length() > 0) {
+                query.append(' ');
+            }
+            query.append(term);
+            // 单字只能是某个二元组的首字或一段汉字的末字；末尾的西文词可能还没有输入完
+            boolean single = term.length() == 1 && SearchIndex.isCjk(term.charAt(0));
+            boolean partialWord = endsInWord && term.equals(last) && SearchIndex.isWordChar(term.charAt(0));
+            if (single || partialWord) {
+                query.append('*');
+            }
+        }
+        return query.toString();
+    }
+
+    /**
+     * @param query 是否切分查询：查询中两字以上的一段汉字由二元组覆盖，末字不再单独作为一个词
+     */
+    private static void tokenize(CharSequence text, Set<String> terms, boolean query, int maxTerms) {
+        int length = text.length();
+        int i = 0;
+        while (i < length && terms.size() < maxTerms) {
+            char c = KeywordMatcher.fold(text.charAt(i));
+            if (SearchIndex.isCjk(c)) {
+                char next = i + 1 < length ? KeywordMatcher.fold(text.charAt(i + 1)) : 0;
+                if (SearchIndex.isCjk(next)) {
+                    terms.add(new String(new char[]{c, next}));
+                } else if (!query || i == 0 || !SearchIndex.isCjk(text.charAt(i - 1))) {
+                    terms.add(String.valueOf(c));
+                }
+                i++;
+            } else if (SearchIndex.isWordChar(c)) {
+                int end = i + 1;
+                while (end < length && SearchIndex.isWordChar(text.charAt(end))) {
+                    end++;
+                }
+                char[] word = new char[end - i];
+                for (int j = 0; j < word.length; j++) {
+                    word[j] = KeywordMatcher.fold(text.charAt(i + j));
+                }
+                terms.add(new String(word));
+                i = end;
+            } else {
+                i++;
+            }
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.appppple.domain.search;
+
+import com.example.appppple.util.ComputePool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 不区分大小写的关键词匹配
+ * 使用 Boyer-Moore-Horspool 算法：关键词在构造时逐字转为小写并计算跳转表，正文逐字查表转为小写后比较，
+ * 不复制正文，直接在 CharSequence 或 char[] 的区间中查找。大小写规则与 SearchIndex.fold 一致，
+ * 命中位置可以直接对应原文。构造后不再修改，同一个关键词可以在多个线程中反复使用。
+ * 查找长文本中的全部命中时切成若干段在共用的 ComputePool 中并行查找，结果按位置顺序合并
+ */
+public class KeywordMatcher {
+    private static final int SHIFT_MASK = 0xFF; // 跳转表按字符的低 8 位索引，冲突时保留较小的跳转距离
+    private static final int MIN_PARALLEL_CHARS = 1024 * 1024; // 正文超过该长度时并行查找
+    private static final int MIN_SEGMENT_CHARS = 256 * 1024; // 每段至少的字符数
+
+    private final char[] mPattern;
+    private final int[] mShifts = new int[SHIFT_MASK + 1];
+
+    /**
+     * 全部 BMP 字符的小写形式，第一次使用时建立
+     */
+    private static class FoldTable {
+        static final char[] TABLE = new char[Character.MAX_VALUE + 1];
+
+        static {
+            for (int c = 0; c <= Character.MAX_VALUE; c++) {
+                TABLE[c] = Character.toLowerCase((char) c);
+            }
+        }
+    }
+
+    /**
+     * @param keyword 关键词，不需要预先转为小写
+     */
+    public KeywordMatcher(String keyword) {
+        mPattern = new char[keyword.length()];
+        for (int i = 0; i < mPattern.length; i++) {
+            mPattern[i] = fold(keyword.charAt(i));
+        }
+        // 窗口末字符在关键词中最后一次出现（不含末位）的位置决定跳转距离，未出现时跳过整个关键词
+        int last = mPattern.length - 1;
+        Arrays.fill(mShifts, Math.max(1, mPattern.length));
+        for (int i = 0; i < last; i++) {
+            mShifts[mPattern[i] & SHIFT_MASK] = last - i;
+        }
+    }
+
+    /**
+     * 逐字转为小写，与 Character.toLowerCase 一致
+     */
+    public static char fold(char c) {
+        return FoldTable.TABLE[c];
+    }
+
+    /**
+     * @return 关键词的长度
+     */
+    public int length() {
+        return mPattern.length;
+    }
+
+    /**
+     * @see #indexOf(CharSequence, int, int)
+     */
+    public int indexOf(CharSequence text, int from) {
+        return indexOf(text, from, text.length());
+    }
+
+    /**
+     * 在 [from, to) 区间中查找，命中必须完整位于区间内
+     * @return 命中位置，没有时或关键词为空时返回 -1
+     */
+    public int indexOf(CharSequence text, int from, int to) {
+        int last = mPattern.length - 1;
+        if (last < 0) {
+            return -1;
+        }
+        char[] table = FoldTable.TABLE;
+        char lastChar = mPattern[last];
+        int limit = Math.min(to, text.length()) - mPattern.length;
+        int position = Math.max(0, from);
+        while (position <= limit) {
+            char c = table[text.charAt(position + last)];
+            if (c == lastChar) {
+                int i = last - 1;
+                while (i >= 0 && table[text.charAt(position + i)] == mPattern[i]) {
+                    i--;
+                }
+                if (i < 0) {
+                    return position;
+                }
+            }
+            position += mShifts[c & SHIFT_MASK];
+        }
+        return -1;
+    }
+
+    /**
+     * 在字符数组的 [from, to) 区间中查找，命中必须完整位于区间内
+     * @return 命中位置，没有时或关键词为空时返回 -1
+     */
+    public int indexOf(char[] text, int from, int to) {
+        int last = mPattern.length - 1;
+        if (last < 0) {
+            return -1;
+        }
+        char[] table = FoldTable.TABLE;
+        char lastChar = mPattern[last];
+        int limit = Math.min(to, text.length) - mPattern.length;
+        int position = Math.max(0, from);
+        while (position <= limit) {
+            char c = table[text[position + last]];
+            if (c == lastChar) {
+                int i = last - 1;
+                while (i >= 0 && table[text[position + i]] == mPattern[i]) {
+                    i--;
+                }
+                if (i < 0) {
+                    return position;
+                }
+            }
+            position += mShifts[c & SHIFT_MASK];
+        }
+        return -1;
+    }
+
+    /**
+     * 查找全部命中，相互重叠的命中各算一次；长文本分段并行查找
+     * 查找期间正文不能被修改
+     * @param maxHits 最多返回的命中数，按位置取最前面的
+     * @return 按位置排序的命中位置
+     */
+    public int[] findAll(CharSequence text, int maxHits) {
+        int length = text.length();
+        if (mPattern.length == 0 || maxHits <= 0 || length < mPattern.length) {
+            return new int[0];
+        }
+        int segments = (int) Math.min(ComputePool.get().getParallelism() * 2L, length / MIN_SEGMENT_CHARS);
+        if (length < MIN_PARALLEL_CHARS || segments <= 1) {
+            return findAll(text, 0, length, maxHits);
+        }
+
+        List<SegmentTask> tasks = new ArrayList<>(segments);
+        for (int i = 0; i < segments; i++) {
+            SegmentTask task = new SegmentTask(text, (int) ((long) length * i / segments),
+                    (int) ((long) length * (i + 1) / segments), maxHits);
+            tasks.add(task);
+            ComputePool.get().execute(task);
+        }
+
+        // 按顺序合并，数量已够时取消后面的分段
+        int[] hits = new int[0];
+        for (SegmentTask task : tasks) {
+            if (hits.length >= maxHits) {
+                task.cancel(false);
+                continue;
+            }
+            int[] segmentHits = task.join();
+            int count = Math.min(segmentHits.length, maxHits - hits.length);
+            int[] merged = Arrays.copyOf(hits, hits.length + count);
+            System.arraycopy(segmentHits, 0, merged, hits.length, count);
+            hits = merged;
+        }
+        return hits;
+    }
+
+    /**
+     * 查找起点位于 [start, end) 中的全部命中，命中可以越过 end
+     */
+    private int[] findAll(CharSequence text, int start, int end, int maxHits) {
+        int to = (int) Math.min(text.length(), (long) end + mPattern.length - 1);
+        int[] hits = new int[16];
+        int count = 0;
+        int position = indexOf(text, start, to);
+        while (position >= 0 && count < maxHits) {
+            if (count == hits.length) {
+                hits = Arrays.copyOf(hits, count * 2);
+            }
+            hits[count++] = position;
+            position = indexOf(text, position + 1, to);
+        }
+        return Arrays.copyOf(hits, count);
+    }
+
+    private class SegmentTask extends RecursiveTask<int[]> {
+        private final CharSequence mText;
+        private final int mStart;
+        private final int mEnd;
+        private final int mMaxHits;
+
+        SegmentTask(CharSequence text, int start, int end, int maxHits) {
+            this.mText = text;
+            this.mStart = start;
+            this.mEnd = end;
+            this.mMaxHits = maxHits;
+        }
+
+        @Override
+        protected int[] compute() {
+            return findAll(mText, mStart, mEnd, mMaxHits);
+        }
+    }
+}
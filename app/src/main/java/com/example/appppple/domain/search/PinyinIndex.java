@@ -0,0 +1,281 @@
+package com.example.appppple.domain.search;
+
+import android.content.Context;
+
+import com.example.appppple.domain.parser.FileProbe;
+import com.example.appppple.domain.parser.TxtToc;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 书内拼音检索的首字母索引
+ * 每个字符对应一个字节：有读音的汉字为其拼音首字母，其余字符为 0，各章节正文首尾相接，位置与章节正文逐字对应。
+ * 文件加载时内存映射，查询时分块顺序扫描首字母，一次扫描同时比较查询的各种切分，只用首字母的查询不需要读取正文；
+ * 含有完整音节的查询只读取有候选的章节核对读音
+ */
+public class PinyinIndex {
+    private static final int MAGIC = 0x50594958; // "PYIX"
+    private static final int VERSION = 1;
+    private static final String INDEX_DIR = "search_index";
+    private static final int SCAN_CHUNK_BYTES = 256 * 1024; // 查询时每次读入的首字母字节数
+
+    // 各章节正文在全书中的起点，最后一个元素为全书长度
+    private final int[] mChapterStarts;
+    private final ByteBuffer mInitials;
+
+    private PinyinIndex(int[] chapterStarts, ByteBuffer initials) {
+        this.mChapterStarts = chapterStarts;
+        this.mInitials = initials;
+    }
+
+    /**
+     * 索引文件，与书内检索索引放在同一目录下
+     */
+    public static File indexFile(Context context, FileProbe probe) {
+        File dir = new File(context.getFilesDir(), INDEX_DIR);
+        return new File(dir, TxtToc.md5Hex(probe.getUri().toString()) + ".pyx");
+    }
+
+    public int getChapterCount() {
+        return mChapterStarts.length - 1;
+    }
+
+    /**
+     * 建立索引，逐章读取正文，在后台线程中调用
+     * @param texts 章节正文
+     * @param chapterCount 章节数
+     * @throws IOException 有章节读取失败，不能把它当作空章节建立索引
+     */
+    public static PinyinIndex build(SearchIndex.TextSource texts, int chapterCount, PinyinTable table)
+            throws IOException {
+        Builder builder = new Builder(table);
+        for (int chapter = 0; chapter < chapterCount; chapter++) {
+            String text = texts.getText(chapter);
+            if (text == null) {
+                throw new IOException("读取章节失败: " + chapter);
+            }
+            builder.addChapter(text);
+        }
+        return builder.build();
+    }
+
+    /**
+     * 逐章建立索引，章节按顺序加入，可以与其他索引共用同一遍读取
+     */
+    public static class Builder {
+        private final PinyinTable mTable;
+        private int[] mChapterStarts = new int[64];
+        private int mChapterCount;
+        private byte[] mInitials = new byte[64 * 1024];
+        private int mBase;
+
+        public Builder(PinyinTable table) {
+            this.mTable = table;
+        }
+
+        /**
+         * 加入下一章的正文
+         */
+        public Builder addChapter(String text) {
+            if (mChapterCount + 1 == mChapterStarts.length) {
+                mChapterStarts = Arrays.copyOf(mChapterStarts, mChapterStarts.length * 2);
+            }
+            mChapterStarts[mChapterCount++] = mBase;
+            int length = text.length();
+            if (mBase + length > mInitials.length) {
+                mInitials = Arrays.copyOf(mInitials, Math.max(mInitials.length * 2, mBase + length));
+            }
+            for (int i = 0; i < length; i++) {
+                mInitials[mBase + i] = (byte) mTable.getInitial(text.charAt(i));
+            }
+            mBase += length;
+            return this;
+        }
+
+        public PinyinIndex build() {
+            int[] chapterStarts = Arrays.copyOf(mChapterStarts, mChapterCount + 1);
+            chapterStarts[mChapterCount] = mBase;
+            return new PinyinIndex(chapterStarts, ByteBuffer.wrap(mInitials, 0, mBase).slice());
+        }
+    }
+
+    /**
+     * 内存映射加载索引
+     * @param file 索引文件
+     * @param key 书籍指纹
+     * @return 索引；文件不存在、格式不符或书籍已变化时返回 null
+     */
+    public static PinyinIndex load(File file, String key) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        MappedByteBuffer buffer;
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            FileChannel channel = randomAccessFile.getChannel();
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.remaining() < 8 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                || !key.equals(readString(buffer))) {
+            return null;
+        }
+        int count = buffer.getInt();
+        if (count < 1 || 4L * count > buffer.remaining()) {
+            throw new IOException("拼音索引已损坏: " + file);
+        }
+        int[] chapterStarts = new int[count];
+        buffer.asIntBuffer().get(chapterStarts);
+        buffer.position(buffer.position() + 4 * count);
+        int dataLength = buffer.getInt();
+        if (dataLength != chapterStarts[count - 1] || dataLength > buffer.remaining()) {
+            throw new IOException("拼音索引已损坏: " + file);
+        }
+        ByteBuffer initials = buffer.slice();
+        initials.limit(dataLength);
+        return new PinyinIndex(chapterStarts, initials);
+    }
+
+    /**
+     * 保存索引
+     * @param file 索引文件
+     * @param key 书籍指纹，加载时用于校验索引是否仍然有效
+     */
+    public void save(File file, String key) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp), 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(keyBytes.length);
+            out.write(keyBytes);
+            out.writeInt(mChapterStarts.length);
+            for (int start : mChapterStarts) {
+                out.writeInt(start);
+            }
+            ByteBuffer initials = mInitials.duplicate();
+            initials.rewind();
+            out.writeInt(initials.remaining());
+            byte[] chunk = new byte[64 * 1024];
+            while (initials.hasRemaining()) {
+                int length = Math.min(chunk.length, initials.remaining());
+                initials.get(chunk, 0, length);
+                out.write(chunk, 0, length);
+            }
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("保存拼音索引失败: " + file);
+        }
+    }
+
+    /**
+     * 查询拼音
+     * @param texts 章节正文，查询含有完整音节时用于核对候选位置
+     * @param maxHits 最多返回的命中数
+     * @return 按位置递增的命中，不会跨越章节
+     */
+    public List<SearchIndex.Hit> search(PinyinMatcher matcher, SearchIndex.TextSource texts, int maxHits) {
+        List<SearchIndex.Hit> hits = new ArrayList<>();
+        if (matcher.isEmpty() || maxHits <= 0) {
+            return hits;
+        }
+        int groupCount = matcher.getGroupCount();
+        byte[][] groups = new byte[groupCount][];
+        boolean[] initialsOnly = new boolean[groupCount];
+        int maxLength = 0;
+        for (int group = 0; group < groupCount; group++) {
+            groups[group] = matcher.getInitials(group).getBytes(StandardCharsets.US_ASCII);
+            initialsOnly[group] = matcher.isInitialsOnly(group);
+            maxLength = Math.max(maxLength, groups[group].length);
+        }
+        // 各组的首字母序列都以同一个字母开头
+        byte first = groups[0][0];
+
+        // 分块读入首字母，每块多读 maxLength 个字节，块末尾的候选也能完整比较
+        ByteBuffer data = mInitials.duplicate();
+        int total = data.limit();
+        byte[] chunk = new byte[SCAN_CHUNK_BYTES + maxLength];
+        int cachedChapter = -1;
+        String text = null;
+        for (int chunkStart = 0; chunkStart < total && hits.size() < maxHits; chunkStart += SCAN_CHUNK_BYTES) {
+            int length = Math.min(chunk.length, total - chunkStart);
+            data.position(chunkStart);
+            data.get(chunk, 0, length);
+            int end = Math.min(SCAN_CHUNK_BYTES, length);
+            for (int i = 0; i < end && hits.size() < maxHits; i++) {
+                if (chunk[i] != first) {
+                    continue;
+                }
+                int position = chunkStart + i;
+                int chapter = -1;
+                for (int group = 0; group < groupCount; group++) {
+                    byte[] initials = groups[group];
+                    if (i + initials.length > length) {
+                        continue;
+                    }
+                    int j = 1;
+                    while (j < initials.length && chunk[i + j] == initials[j]) {
+                        j++;
+                    }
+                    if (j < initials.length) {
+                        continue;
+                    }
+                    if (chapter < 0) {
+                        chapter = chapterOf(position);
+                    }
+                    if (position + initials.length > mChapterStarts[chapter + 1]) {
+                        continue;
+                    }
+                    if (!initialsOnly[group]) {
+                        if (chapter != cachedChapter) {
+                            cachedChapter = chapter;
+                            text = texts.getText(chapter);
+                        }
+                        if (text == null || matcher.matchAt(text, position - mChapterStarts[chapter], group) < 0) {
+                            continue;
+                        }
+                    }
+                    hits.add(new SearchIndex.Hit(chapter, position - mChapterStarts[chapter]));
+                    break;
+                }
+            }
+        }
+        return hits;
+    }
+
+    private int chapterOf(int position) {
+        int index = Arrays.binarySearch(mChapterStarts, position);
+        index = index >= 0 ? index : -index - 2;
+        // 跳过空章节
+        while (index + 1 < mChapterStarts.length - 1 && mChapterStarts[index + 1] == position) {
+            index++;
+        }
+        return Math.max(0, Math.min(index, getChapterCount() - 1));
+    }
+
+    private static String readString(ByteBuffer buffer) throws IOException {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IOException("拼音索引已损坏");
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
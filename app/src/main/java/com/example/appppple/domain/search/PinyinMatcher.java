@@ -0,0 +1,235 @@
+package com.example.appppple.domain.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 拼音和拼音首字母匹配
+ * 查询切分成若干段，每段对应一个汉字，是该字读音的前缀：完整的音节、单个字母或 zh/ch/sh，
+ * 位于查询末尾或撇号、空格之前的一段可以是任意前缀（还没有输入完）。例如 "zgr"、"zhujr"、"zhujiaoren" 都能匹配“主角人”。
+ * 一个查询可能有多种切分，按较长的音节优先最多保留 MAX_SEGMENTATIONS 种；
+ * 各段首字母相同的切分归为一组，调用方可以先按首字母查找候选，再用 matchAt 核对读音。构造后不再修改，可以在多个线程中使用
+ */
+public class PinyinMatcher {
+    private static final int MAX_QUERY_CHARS = 32; // 查询最多的字母数
+    private static final int MAX_SEGMENTATIONS = 16; // 最多保留的切分数
+    private static final int MAX_SYLLABLE_CHARS = 6; // 最长的音节 "zhuang"
+
+    private final PinyinTable mTable;
+    // 每组的首字母序列，及组内的各种切分
+    private final String[] mInitials;
+    private final List<List<String[]>> mGroups;
+
+    /**
+     * @param query 查询，只能由字母、撇号和空格组成，不区分大小写
+     */
+    public PinyinMatcher(String query, PinyinTable table) {
+        this.mTable = table;
+        Map<String, List<String[]>> groups = new LinkedHashMap<>();
+        String normalized = normalize(query);
+        if (normalized != null) {
+            List<String[]> segmentations = new ArrayList<>();
+            segment(normalized, 0, new ArrayList<>(), segmentations);
+            for (String[] segments : segmentations) {
+                char[] initials = new char[segments.length];
+                for (int i = 0; i < segments.length; i++) {
+                    initials[i] = segments[i].charAt(0);
+                }
+                String key = new String(initials);
+                List<String[]> group = groups.get(key);
+                if (group == null) {
+                    group = new ArrayList<>();
+                    groups.put(key, group);
+                }
+                group.add(segments);
+            }
+        }
+        mInitials = groups.keySet().toArray(new String[0]);
+        mGroups = new ArrayList<>(groups.values());
+    }
+
+    /**
+     * @return 查询不是拼音或无法切分时为 true，此时不会匹配任何文本
+     */
+    public boolean isEmpty() {
+        return mInitials.length == 0;
+    }
+
+    public int getGroupCount() {
+        return mInitials.length;
+    }
+
+    /**
+     * @return 该组的首字母序列，长度即匹配的汉字数
+     */
+    public String getInitials(int group) {
+        return mInitials[group];
+    }
+
+    /**
+     * @return 首字母相同是否就足以确定匹配，即该组有一种切分每段只有一个字母
+     */
+    public boolean isInitialsOnly(int group) {
+        for (String[] segments : mGroups.get(group)) {
+            boolean initialsOnly = true;
+            for (String segment : segments) {
+                initialsOnly &= segment.length() == 1;
+            }
+            if (initialsOnly) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 核对 position 处的读音是否与该组的某种切分一致
+     * @return 匹配的字符数，不匹配时返回 -1
+     */
+    public int matchAt(CharSequence text, int position, int group) {
+        int length = mInitials[group].length();
+        if (position < 0 || position + length > text.length()) {
+            return -1;
+        }
+        for (String[] segments : mGroups.get(group)) {
+            int i = 0;
+            while (i < length) {
+                String pinyin = mTable.getPinyin(text.charAt(position + i));
+                if (pinyin == null || !pinyin.startsWith(segments[i])) {
+                    break;
+                }
+                i++;
+            }
+            if (i == length) {
+                return length;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 按各组顺序核对 position 处的读音
+     * @return 匹配的字符数，不匹配时返回 -1
+     */
+    public int matchAt(CharSequence text, int position) {
+        for (int group = 0; group < mInitials.length; group++) {
+            int length = matchAt(text, position, group);
+            if (length > 0) {
+                return length;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 逐字查找，首字母不符的位置直接跳过
+     * @return 命中位置，没有时返回 -1
+     */
+    public int indexOf(CharSequence text, int from) {
+        if (isEmpty()) {
+            return -1;
+        }
+        // 各种切分的第一段都以查询的第一个字母开头
+        char first = mInitials[0].charAt(0);
+        for (int i = Math.max(0, from); i < text.length(); i++) {
+            if (mTable.getInitial(text.charAt(i)) == first && matchAt(text, i) > 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 查找全部命中，相互重叠的命中各算一次
+     * @param maxHits 最多返回的命中数，按位置取最前面的
+     * @return 按位置排序的命中位置
+     */
+    public int[] findAll(CharSequence text, int maxHits) {
+        int[] hits = new int[16];
+        int count = 0;
+        int position = maxHits > 0 ? indexOf(text, 0) : -1;
+        while (position >= 0) {
+            if (count == hits.length) {
+                hits = Arrays.copyOf(hits, count * 2);
+            }
+            hits[count++] = position;
+            if (count >= maxHits) {
+                break;
+            }
+            position = indexOf(text, position + 1);
+        }
+        return Arrays.copyOf(hits, count);
+    }
+
+    /**
+     * 转为小写，撇号和空格统一为撇号，去掉首尾的分隔
+     * @return 含有其他字符或没有字母时返回 null
+     */
+    private static String normalize(String query) {
+        StringBuilder builder = new StringBuilder(query.length());
+        int letters = 0;
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                c = (char) (c - 'A' + 'a');
+            }
+            if (c >= 'a' && c <= 'z') {
+                builder.append(c);
+                letters++;
+            } else if (c == '\'' || c == ' ') {
+                if (builder.length() > 0 && builder.charAt(builder.length() - 1) != '\'') {
+                    builder.append('\'');
+                }
+            } else {
+                return null;
+            }
+        }
+        if (letters == 0 || letters > MAX_QUERY_CHARS) {
+            return null;
+        }
+        if (builder.charAt(builder.length() - 1) == '\'') {
+            builder.setLength(builder.length() - 1);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 深度优先切分，先尝试较长的段
+     */
+    private void segment(String query, int start, List<String> segments, List<String[]> out) {
+        if (out.size() >= MAX_SEGMENTATIONS) {
+            return;
+        }
+        if (start < query.length() && query.charAt(start) == '\'') {
+            start++;
+        }
+        if (start >= query.length()) {
+            out.add(segments.toArray(new String[0]));
+            return;
+        }
+        int boundary = query.indexOf('\'', start);
+        if (boundary < 0) {
+            boundary = query.length();
+        }
+        for (int end = Math.min(boundary, start + MAX_SYLLABLE_CHARS); end > start; end--) {
+            String segment = query.substring(start, end);
+            boolean valid;
+            if (end == boundary) {
+                // 分隔之前或查询末尾的一段可以没有输入完
+                valid = mTable.isSyllablePrefix(segment);
+            } else {
+                valid = mTable.isSyllable(segment) || (mTable.isSyllablePrefix(segment)
+                        && (segment.length() == 1 || segment.equals("zh") || segment.equals("ch")
+                        || segment.equals("sh")));
+            }
+            if (valid) {
+                segments.add(segment);
+                segment(query, end, segments, out);
+                segments.remove(segments.size() - 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.appppple.domain.search;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 汉字拼音表
+ * 表按 ICU 的 Han-Latin 转写规则生成，覆盖扩展 A 和基本汉字，每个汉字取一个不带声调的读音，ü 写作 v。
+ * 文件打包在 assets 中且不压缩，直接内存映射：开头是按字典序排列的音节，之后每个汉字两个字节的音节序号，
+ * 查询时按字符偏移读取，不在堆中展开
+ */
+public class PinyinTable {
+    private static final String ASSET_NAME = "pinyin.dat";
+    private static final int MAGIC = 0x50594E54; // "PYNT"
+    private static final int VERSION = 1;
+    private static final char NONE = 0xFFFF;
+
+    private static PinyinTable instance;
+
+    // 按字典序递增
+    private final String[] mSyllables;
+    private final char mBase;
+    private final int mCount;
+    private final ByteBuffer mTable;
+
+    private PinyinTable(String[] syllables, char base, int count, ByteBuffer table) {
+        this.mSyllables = syllables;
+        this.mBase = base;
+        this.mCount = count;
+        this.mTable = table;
+    }
+
+    /**
+     * 第一次调用时映射 assets 中的拼音表
+     */
+    public static synchronized PinyinTable getInstance(Context context) throws IOException {
+        if (instance == null) {
+            try (AssetFileDescriptor descriptor = context.getAssets().openFd(ASSET_NAME);
+                 FileInputStream in = descriptor.createInputStream()) {
+                // 映射在通道关闭后仍然有效
+                FileChannel channel = in.getChannel();
+                instance = load(channel.map(FileChannel.MapMode.READ_ONLY,
+                        descriptor.getStartOffset(), descriptor.getLength()));
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 从已映射或已读入的表数据加载
+     */
+    public static PinyinTable load(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < 12 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("拼音表格式不符");
+        }
+        int syllableCount = buffer.getInt();
+        if (syllableCount < 0 || syllableCount > buffer.remaining()) {
+            throw new IOException("拼音表已损坏");
+        }
+        String[] syllables = new String[syllableCount];
+        for (int i = 0; i < syllableCount; i++) {
+            byte[] bytes = new byte[buffer.get() & 0xFF];
+            buffer.get(bytes);
+            syllables[i] = new String(bytes, StandardCharsets.US_ASCII);
+        }
+        char base = buffer.getChar();
+        int count = buffer.getInt();
+        if (count < 0 || 2L * count > buffer.remaining()) {
+            throw new IOException("拼音表已损坏");
+        }
+        ByteBuffer table = buffer.slice();
+        table.limit(2 * count);
+        return new PinyinTable(syllables, base, count, table);
+    }
+
+    /**
+     * @return 不带声调的小写拼音，不是汉字或没有读音时返回 null
+     */
+    public String getPinyin(char c) {
+        char syllable = syllableOf(c);
+        return syllable != NONE ? mSyllables[syllable] : null;
+    }
+
+    /**
+     * @return 拼音首字母，不是汉字或没有读音时返回 0
+     */
+    public char getInitial(char c) {
+        char syllable = syllableOf(c);
+        return syllable != NONE ? mSyllables[syllable].charAt(0) : 0;
+    }
+
+    /**
+     * @return 是否是完整的音节
+     */
+    public boolean isSyllable(String value) {
+        return Arrays.binarySearch(mSyllables, value) >= 0;
+    }
+
+    /**
+     * @return 是否是某个音节的前缀，完整的音节也算
+     */
+    public boolean isSyllablePrefix(String value) {
+        int index = Arrays.binarySearch(mSyllables, value);
+        if (index >= 0) {
+            return true;
+        }
+        index = -index - 1;
+        return index < mSyllables.length && mSyllables[index].startsWith(value);
+    }
+
+    private char syllableOf(char c) {
+        int index = c - mBase;
+        if (index < 0 || index >= mCount) {
+            return NONE;
+        }
+        char syllable = mTable.getChar(2 * index);
+        return syllable < mSyllables.length ? syllable : NONE;
+    }
+}
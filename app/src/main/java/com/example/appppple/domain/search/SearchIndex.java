@@ -0,0 +1,721 @@
+package com.example.appppple.domain.search;
+
+import android.content.Context;
+
+import com.example.appppple.domain.parser.FileProbe;
+import com.example.appppple.domain.parser.TxtToc;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 书内全文检索的倒排索引
+ * 中日韩文字按相邻两字（二元组）建立倒排表，西文和数字按词建立倒排表，位置为各章节正文首尾相接后的字符位置。
+ * 倒排表按位置差值以变长整数保存在文件中，加载时内存映射，查询时只解码用到的倒排表。
+ * 查询不区分大小写，按子串匹配，与逐字扫描的结果一致：查询首尾不完整的西文词在词典中查找包含它的词；
+ * 单个汉字等无法用索引回答的查询返回 null，由调用方逐字扫描
+ */
+public class SearchIndex {
+    private static final int MAGIC = 0x53494458; // "SIDX"
+    private static final int VERSION = 1;
+    private static final String INDEX_DIR = "search_index";
+
+    // 各章节正文在全书中的起点，最后一个元素为全书长度
+    private final int[] mChapterStarts;
+    // 二元组为两个字符拼成的 int，按值递增
+    private final int[] mBigrams;
+    private final int[] mBigramCounts;
+    private final int[] mBigramOffsets;
+    // 词按字典序递增
+    private final String[] mWords;
+    private final int[] mWordCounts;
+    private final int[] mWordOffsets;
+    private final ByteBuffer mPostings;
+
+    /**
+     * 按章节读取正文，用于建立索引和核对候选位置
+     */
+    public interface TextSource {
+        /**
+         * @return 章节正文，读取失败时返回 null
+         */
+        String getText(int chapter);
+    }
+
+    /**
+     * 命中位置
+     */
+    public static class Hit {
+        private final int mChapter;
+        private final int mPosition;
+
+        public Hit(int chapter, int position) {
+            this.mChapter = chapter;
+            this.mPosition = position;
+        }
+
+        public int getChapter() {
+            return mChapter;
+        }
+
+        /**
+         * @return 在章节正文中的字符位置
+         */
+        public int getPosition() {
+            return mPosition;
+        }
+    }
+
+    private SearchIndex(int[] chapterStarts, int[] bigrams, int[] bigramCounts, int[] bigramOffsets,
+                        String[] words, int[] wordCounts, int[] wordOffsets, ByteBuffer postings) {
+        this.mChapterStarts = chapterStarts;
+        this.mBigrams = bigrams;
+        this.mBigramCounts = bigramCounts;
+        this.mBigramOffsets = bigramOffsets;
+        this.mWords = words;
+        this.mWordCounts = wordCounts;
+        this.mWordOffsets = wordOffsets;
+        this.mPostings = postings;
+    }
+
+    /**
+     * 索引文件，保存在应用私有目录下，以书籍 URI 的摘要命名
+     */
+    public static File indexFile(Context context, FileProbe probe) {
+        File dir = new File(context.getFilesDir(), INDEX_DIR);
+        return new File(dir, TxtToc.md5Hex(probe.getUri().toString()) + ".idx");
+    }
+
+    public int getChapterCount() {
+        return mChapterStarts.length - 1;
+    }
+
+    static boolean isCjk(char c) {
+        return (c >= 0x3040 && c <= 0x30FF)      // 平假名、片假名
+                || (c >= 0x3400 && c <= 0x4DBF)  // 扩展 A
+                || (c >= 0x4E00 && c <= 0x9FFF)  // 基本汉字
+                || (c >= 0xAC00 && c <= 0xD7AF)  // 谚文音节
+                || (c >= 0xF900 && c <= 0xFAFF); // 兼容汉字
+    }
+
+    static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) && !isCjk(c);
+    }
+
+    /**
+     * 逐字转为小写，与 String.toLowerCase 不同，长度保持不变，位置可以直接对应原文
+     */
+    public static String fold(String text) {
+        char[] chars = text.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = KeywordMatcher.fold(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 不区分大小写地逐字查找，适合只查找一次的短文本；反复查找同一关键词时使用 KeywordMatcher
+     * @param text 原文
+     * @param foldedQuery 已经 fold 的查询
+     * @param from 起始位置
+     * @return 命中位置，没有时返回 -1
+     */
+    public static int indexOf(String text, String foldedQuery, int from) {
+        int length = foldedQuery.length();
+        if (length == 0) {
+            return -1;
+        }
+        char first = foldedQuery.charAt(0);
+        for (int i = Math.max(0, from); i <= text.length() - length; i++) {
+            if (KeywordMatcher.fold(text.charAt(i)) == first && matchesAt(text, i, foldedQuery)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean matchesAt(String text, int position, String foldedQuery) {
+        if (position < 0 || position + foldedQuery.length() > text.length()) {
+            return false;
+        }
+        for (int i = 0; i < foldedQuery.length(); i++) {
+            if (KeywordMatcher.fold(text.charAt(position + i)) != foldedQuery.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 建立索引，逐章读取正文，在后台线程中调用
+     * @param texts 章节正文
+     * @param chapterCount 章节数
+     * @throws IOException 有章节读取失败，不能把它当作空章节建立索引
+     */
+    public static SearchIndex build(TextSource texts, int chapterCount) throws IOException {
+        Builder builder = new Builder();
+        for (int chapter = 0; chapter < chapterCount; chapter++) {
+            String text = texts.getText(chapter);
+            if (text == null) {
+                throw new IOException("读取章节失败: " + chapter);
+            }
+            builder.addChapter(text);
+        }
+        return builder.build();
+    }
+
+    /**
+     * 逐章建立索引，章节按顺序加入，可以与其他索引共用同一遍读取
+     */
+    public static class Builder {
+        private final PostingsBuilder mBigrams = new PostingsBuilder();
+        private final Map<String, Integer> mWordSlots = new HashMap<>();
+        private final PostingsBuilder mWords = new PostingsBuilder();
+        private int[] mChapterStarts = new int[64];
+        private int mChapterCount;
+        private int mBase;
+
+        /**
+         * 加入下一章的正文
+         */
+        public Builder addChapter(String text) {
+            if (mChapterCount + 1 == mChapterStarts.length) {
+                mChapterStarts = Arrays.copyOf(mChapterStarts, mChapterStarts.length * 2);
+            }
+            mChapterStarts[mChapterCount++] = mBase;
+            int base = mBase;
+            int length = text.length();
+            int i = 0;
+            while (i < length) {
+                char c = KeywordMatcher.fold(text.charAt(i));
+                if (isCjk(c)) {
+                    if (i + 1 < length) {
+                        char next = KeywordMatcher.fold(text.charAt(i + 1));
+                        if (isCjk(next)) {
+                            mBigrams.add(mBigrams.slot((c << 16) | next), base + i);
+                        }
+                    }
+                    i++;
+                } else if (isWordChar(c)) {
+                    int end = i + 1;
+                    while (end < length && isWordChar(text.charAt(end))) {
+                        end++;
+                    }
+                    String word = fold(text.substring(i, end));
+                    Integer slot = mWordSlots.get(word);
+                    if (slot == null) {
+                        slot = mWords.newSlot();
+                        mWordSlots.put(word, slot);
+                    }
+                    mWords.add(slot, base + i);
+                    i = end;
+                } else {
+                    i++;
+                }
+            }
+            mBase += length;
+            return this;
+        }
+
+        public SearchIndex build() {
+            int[] chapterStarts = Arrays.copyOf(mChapterStarts, mChapterCount + 1);
+            chapterStarts[mChapterCount] = mBase;
+
+            // 二元组和词按序排列，倒排表依次写入同一块数据区
+            PostingsWriter data = new PostingsWriter();
+            int[] bigramKeys = mBigrams.sortedKeys();
+            int[] bigramCounts = new int[bigramKeys.length];
+            int[] bigramOffsets = new int[bigramKeys.length];
+            for (int i = 0; i < bigramKeys.length; i++) {
+                int slot = mBigrams.slot(bigramKeys[i]);
+                bigramCounts[i] = mBigrams.count(slot);
+                bigramOffsets[i] = data.append(mBigrams, slot);
+            }
+            String[] wordKeys = mWordSlots.keySet().toArray(new String[0]);
+            Arrays.sort(wordKeys);
+            int[] wordCounts = new int[wordKeys.length];
+            int[] wordOffsets = new int[wordKeys.length];
+            for (int i = 0; i < wordKeys.length; i++) {
+                int slot = mWordSlots.get(wordKeys[i]);
+                wordCounts[i] = mWords.count(slot);
+                wordOffsets[i] = data.append(mWords, slot);
+            }
+            return new SearchIndex(chapterStarts, bigramKeys, bigramCounts, bigramOffsets,
+                    wordKeys, wordCounts, wordOffsets, data.toBuffer());
+        }
+    }
+
+    /**
+     * 内存映射加载索引
+     * @param file 索引文件
+     * @param key 书籍指纹
+     * @return 索引；文件不存在、格式不符或书籍已变化时返回 null
+     */
+    public static SearchIndex load(File file, String key) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        MappedByteBuffer buffer;
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            // 映射在通道关闭后仍然有效
+            FileChannel channel = randomAccessFile.getChannel();
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.remaining() < 8 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                || !key.equals(readString(buffer))) {
+            return null;
+        }
+
+        int[] chapterStarts = readInts(buffer, buffer.getInt());
+        int bigramCount = buffer.getInt();
+        int[] bigrams = readInts(buffer, bigramCount);
+        int[] bigramCounts = readInts(buffer, bigramCount);
+        int[] bigramOffsets = readInts(buffer, bigramCount);
+        int wordCount = buffer.getInt();
+        String[] words = new String[wordCount];
+        for (int i = 0; i < wordCount; i++) {
+            words[i] = readString(buffer);
+        }
+        int[] wordCounts = readInts(buffer, wordCount);
+        int[] wordOffsets = readInts(buffer, wordCount);
+        int dataLength = buffer.getInt();
+        if (dataLength < 0 || dataLength > buffer.remaining()) {
+            throw new IOException("检索索引已损坏: " + file);
+        }
+        ByteBuffer postings = buffer.slice();
+        postings.limit(dataLength);
+        return new SearchIndex(chapterStarts, bigrams, bigramCounts, bigramOffsets,
+                words, wordCounts, wordOffsets, postings);
+    }
+
+    /**
+     * 保存索引
+     * @param file 索引文件
+     * @param key 书籍指纹，加载时用于校验索引是否仍然有效
+     */
+    public void save(File file, String key) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp), 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeString(out, key);
+            out.writeInt(mChapterStarts.length);
+            writeInts(out, mChapterStarts);
+            out.writeInt(mBigrams.length);
+            writeInts(out, mBigrams);
+            writeInts(out, mBigramCounts);
+            writeInts(out, mBigramOffsets);
+            out.writeInt(mWords.length);
+            for (String word : mWords) {
+                writeString(out, word);
+            }
+            writeInts(out, mWordCounts);
+            writeInts(out, mWordOffsets);
+            ByteBuffer postings = mPostings.duplicate();
+            postings.rewind();
+            out.writeInt(postings.remaining());
+            byte[] chunk = new byte[64 * 1024];
+            while (postings.hasRemaining()) {
+                int length = Math.min(chunk.length, postings.remaining());
+                postings.get(chunk, 0, length);
+                out.write(chunk, 0, length);
+            }
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("保存检索索引失败: " + file);
+        }
+    }
+
+    /**
+     * 查询关键词
+     * @param query 关键词
+     * @param texts 章节正文，查询不能完全由索引确定时用于核对候选位置
+     * @param maxHits 最多返回的命中数
+     * @return 按位置递增的命中；无法用索引回答（如单个汉字）时返回 null
+     */
+    public List<Hit> search(String query, TextSource texts, int maxHits) {
+        String folded = fold(query);
+        int length = folded.length();
+        if (length == 0) {
+            return new ArrayList<>();
+        }
+
+        boolean allCjk = true;
+        boolean allWord = true;
+        for (int i = 0; i < length; i++) {
+            char c = folded.charAt(i);
+            allCjk &= isCjk(c);
+            allWord &= isWordChar(c);
+        }
+        if (allCjk && length >= 2) {
+            // 相邻二元组恰好覆盖整个查询，各二元组位置依次相差 1 即为命中，不需要核对原文
+            int[][] lists = new int[length - 1][];
+            for (int i = 0; i < length - 1; i++) {
+                lists[i] = bigramPostings((folded.charAt(i) << 16) | folded.charAt(i + 1));
+            }
+            return toHits(intersect(lists, maxHits), maxHits);
+        }
+        if (allWord) {
+            return toHits(wordPiecePostings(folded, true, true), maxHits);
+        }
+
+        // 混合查询：取最少的一个倒排表作为候选，再核对原文
+        int[] candidates = null;
+        int candidateOffset = 0;
+        for (int i = 0; i < length; ) {
+            char c = folded.charAt(i);
+            int[] postings = null;
+            int offset = i;
+            if (isCjk(c) && i + 1 < length && isCjk(folded.charAt(i + 1))) {
+                postings = bigramPostings((c << 16) | folded.charAt(i + 1));
+                i++;
+            } else if (isWordChar(c)) {
+                int end = i + 1;
+                while (end < length && isWordChar(folded.charAt(end))) {
+                    end++;
+                }
+                postings = wordPiecePostings(folded.substring(i, end), i == 0, end == length);
+                i = end;
+            } else {
+                i++;
+            }
+            if (postings != null && (candidates == null || postings.length < candidates.length)) {
+                candidates = postings;
+                candidateOffset = offset;
+            }
+        }
+        if (candidates == null) {
+            return null;
+        }
+
+        List<Hit> hits = new ArrayList<>();
+        int cachedChapter = -1;
+        String text = null;
+        for (int candidate : candidates) {
+            int position = candidate - candidateOffset;
+            if (position < 0) {
+                continue;
+            }
+            int chapter = chapterOf(position);
+            int local = position - mChapterStarts[chapter];
+            if (chapter != cachedChapter) {
+                cachedChapter = chapter;
+                text = texts.getText(chapter);
+            }
+            if (text == null) {
+                continue;
+            }
+            if (matchesAt(text, local, folded)) {
+                hits.add(new Hit(chapter, local));
+                if (hits.size() >= maxHits) {
+                    break;
+                }
+            }
+        }
+        return hits;
+    }
+
+    private int chapterOf(int position) {
+        int index = Arrays.binarySearch(mChapterStarts, position);
+        index = index >= 0 ? index : -index - 2;
+        // 跳过空章节
+        while (index + 1 < mChapterStarts.length - 1 && mChapterStarts[index + 1] == position) {
+            index++;
+        }
+        return Math.max(0, Math.min(index, getChapterCount() - 1));
+    }
+
+    private List<Hit> toHits(int[] positions, int maxHits) {
+        List<Hit> hits = new ArrayList<>(Math.min(positions.length, maxHits));
+        for (int i = 0; i < positions.length && hits.size() < maxHits; i++) {
+            int chapter = chapterOf(positions[i]);
+            hits.add(new Hit(chapter, positions[i] - mChapterStarts[chapter]));
+        }
+        return hits;
+    }
+
+    /**
+     * 以最短的倒排表为基准，其余倒排表二分查找对应的位置
+     */
+    private static int[] intersect(int[][] lists, int maxHits) {
+        int shortest = 0;
+        for (int i = 1; i < lists.length; i++) {
+            if (lists[i].length < lists[shortest].length) {
+                shortest = i;
+            }
+        }
+        int[] result = new int[Math.min(lists[shortest].length, maxHits)];
+        int count = 0;
+        for (int candidate : lists[shortest]) {
+            int start = candidate - shortest;
+            boolean match = start >= 0;
+            for (int i = 0; i < lists.length && match; i++) {
+                match = i == shortest || Arrays.binarySearch(lists[i], start + i) >= 0;
+            }
+            if (match) {
+                result[count++] = start;
+                if (count == result.length) {
+                    break;
+                }
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private int[] bigramPostings(int bigram) {
+        int index = Arrays.binarySearch(mBigrams, bigram);
+        return index >= 0 ? decode(mBigramOffsets[index], mBigramCounts[index]) : new int[0];
+    }
+
+    private int[] wordPostings(String word) {
+        int index = Arrays.binarySearch(mWords, word);
+        return index >= 0 ? decode(mWordOffsets[index], mWordCounts[index]) : new int[0];
+    }
+
+    /**
+     * 查询中一段西文在原文中出现的位置，按位置递增。
+     * 查询中间的一段前后都是非西文字符，只能是完整的词；查询开头的一段可以是词的后缀，末尾的一段可以是词的前缀，
+     * 整个查询只有一段时可以出现在词的任意位置
+     * @param atStart 该段是否位于查询开头
+     * @param atEnd 该段是否位于查询末尾
+     */
+    private int[] wordPiecePostings(String piece, boolean atStart, boolean atEnd) {
+        if (!atStart && !atEnd) {
+            return wordPostings(piece);
+        }
+        int from = 0;
+        int to = mWords.length;
+        if (!atStart) {
+            // 只需前缀匹配，词典中以 piece 开头的词相邻
+            int index = Arrays.binarySearch(mWords, piece);
+            from = index >= 0 ? index : -index - 1;
+            to = from;
+            while (to < mWords.length && mWords[to].startsWith(piece)) {
+                to++;
+            }
+        }
+        int[] merged = new int[16];
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            String word = mWords[i];
+            int offset = !atStart ? 0 : atEnd ? word.indexOf(piece)
+                    : word.endsWith(piece) ? word.length() - piece.length() : -1;
+            if (offset < 0) {
+                continue;
+            }
+            int[] postings = decode(mWordOffsets[i], mWordCounts[i]);
+            // 一个词中可能出现多次
+            for (; offset >= 0; offset = atStart && atEnd ? word.indexOf(piece, offset + 1) : -1) {
+                if (count + postings.length > merged.length) {
+                    merged = Arrays.copyOf(merged, Math.max(merged.length * 2, count + postings.length));
+                }
+                for (int position : postings) {
+                    merged[count++] = position + offset;
+                }
+            }
+        }
+        merged = Arrays.copyOf(merged, count);
+        Arrays.sort(merged);
+        return merged;
+    }
+
+    /**
+     * 解码一个倒排表：位置差值的变长整数，每字节低 7 位为数据，最高位表示后面还有字节
+     */
+    private int[] decode(int offset, int count) {
+        ByteBuffer data = mPostings.duplicate();
+        data.position(offset);
+        int[] positions = new int[count];
+        int position = 0;
+        for (int i = 0; i < count; i++) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data.get();
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            position += delta;
+            positions[i] = position;
+        }
+        return positions;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) throws IOException {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IOException("检索索引已损坏");
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int count) throws IOException {
+        if (count < 0 || 4L * count > buffer.remaining()) {
+            throw new IOException("检索索引已损坏");
+        }
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + 4 * count);
+        return values;
+    }
+
+    /**
+     * 建立索引时的倒排表：每个槽位一个按位置差值编码的字节数组，二元组通过开放寻址表找到槽位
+     */
+    private static class PostingsBuilder {
+        private int[] mTableKeys = new int[1 << 12];
+        private int[] mTableSlots = new int[1 << 12];
+        private int mTableSize;
+        private int[] mSlotKeys = new int[256];
+        private byte[][] mData = new byte[256][];
+        private int[] mLengths = new int[256];
+        private int[] mLast = new int[256];
+        private int[] mCounts = new int[256];
+        private int mSlotCount;
+
+        PostingsBuilder() {
+            Arrays.fill(mTableSlots, -1);
+        }
+
+        int newSlot() {
+            if (mSlotCount == mData.length) {
+                int capacity = mSlotCount * 2;
+                mSlotKeys = Arrays.copyOf(mSlotKeys, capacity);
+                mData = Arrays.copyOf(mData, capacity);
+                mLengths = Arrays.copyOf(mLengths, capacity);
+                mLast = Arrays.copyOf(mLast, capacity);
+                mCounts = Arrays.copyOf(mCounts, capacity);
+            }
+            mData[mSlotCount] = new byte[8];
+            return mSlotCount++;
+        }
+
+        /**
+         * 二元组对应的槽位，没有时新建
+         */
+        int slot(int key) {
+            int mask = mTableKeys.length - 1;
+            int index = (key * 0x9E3779B9) >>> 7 & mask;
+            while (mTableSlots[index] >= 0) {
+                if (mTableKeys[index] == key) {
+                    return mTableSlots[index];
+                }
+                index = (index + 1) & mask;
+            }
+            int slot = newSlot();
+            mSlotKeys[slot] = key;
+            mTableKeys[index] = key;
+            mTableSlots[index] = slot;
+            if (++mTableSize * 2 > mTableKeys.length) {
+                rehash();
+            }
+            return slot;
+        }
+
+        private void rehash() {
+            int[] keys = mTableKeys;
+            int[] slots = mTableSlots;
+            mTableKeys = new int[keys.length * 2];
+            mTableSlots = new int[keys.length * 2];
+            Arrays.fill(mTableSlots, -1);
+            int mask = mTableKeys.length - 1;
+            for (int i = 0; i < keys.length; i++) {
+                if (slots[i] >= 0) {
+                    int index = (keys[i] * 0x9E3779B9) >>> 7 & mask;
+                    while (mTableSlots[index] >= 0) {
+                        index = (index + 1) & mask;
+                    }
+                    mTableKeys[index] = keys[i];
+                    mTableSlots[index] = slots[i];
+                }
+            }
+        }
+
+        void add(int slot, int position) {
+            int delta = position - mLast[slot];
+            mLast[slot] = position;
+            mCounts[slot]++;
+            byte[] data = mData[slot];
+            if (mLengths[slot] + 5 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+                mData[slot] = data;
+            }
+            int length = mLengths[slot];
+            while ((delta & ~0x7F) != 0) {
+                data[length++] = (byte) ((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            data[length++] = (byte) delta;
+            mLengths[slot] = length;
+        }
+
+        int count(int slot) {
+            return mCounts[slot];
+        }
+
+        int[] sortedKeys() {
+            int[] keys = Arrays.copyOf(mSlotKeys, mSlotCount);
+            Arrays.sort(keys);
+            return keys;
+        }
+    }
+
+    /**
+     * 依次拼接各倒排表的字节
+     */
+    private static class PostingsWriter {
+        private byte[] mData = new byte[64 * 1024];
+        private int mLength;
+
+        int append(PostingsBuilder builder, int slot) {
+            int offset = mLength;
+            int length = builder.mLengths[slot];
+            if (mLength + length > mData.length) {
+                mData = Arrays.copyOf(mData, Math.max(mData.length * 2, mLength + length));
+            }
+            System.arraycopy(builder.mData[slot], 0, mData, mLength, length);
+            mLength += length;
+            // 拼接后不再需要，尽早释放
+            builder.mData[slot] = null;
+            return offset;
+        }
+
+        ByteBuffer toBuffer() {
+            return ByteBuffer.wrap(mData, 0, mLength).slice();
+        }
+    }
+}
@@ -22,6 +22,7 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.example.appppple.R;
 import com.example.appppple.domain.manager.ReadingProgressManager;
 import com.example.appppple.ui.reader.ReaderActivity;
+import com.example.appppple.ui.search.LibrarySearchActivity;
 import com.example.appppple.util.BookFileScanner;
 import com.example.appppple.util.ScanPermissionHelper;
 
@@ -60,6 +61,7 @@ public class BookshelfActivity extends AppCompatActivity implements ScanPermissi
     private void setupButtonClickListeners() {
         findViewById(R.id.buttonSearchBook).setOnClickListener(v -> startFileScan());
         findViewById(R.id.buttonAddBook).setOnClickListener(v -> pickBook());
+        findViewById(R.id.buttonLibrarySearch).setOnClickListener(v -> LibrarySearchActivity.start(this));
     }
 
     private void initViews() {
@@ -1,5 +1,7 @@
 package com.example.appppple.ui.reader;
 
+import android.graphics.Color;
+import android.graphics.Typeface;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -16,9 +18,11 @@ import java.util.List;
 public class CatalogAdapter extends RecyclerView.Adapter<CatalogAdapter.ViewHolder> {
     private final List<Chapter> chapters;
     private final OnChapterClickListener listener;
+    // 当前阅读的章节，高亮显示
+    private int currentChapter = RecyclerView.NO_POSITION;
 
     public interface OnChapterClickListener {
-        void onChapterClick(Chapter chapter);
+        void onChapterClick(int index, Chapter chapter);
     }
 
     public CatalogAdapter(List<Chapter> chapters, OnChapterClickListener listener) {
@@ -26,6 +30,21 @@ public class CatalogAdapter extends RecyclerView.Adapter<CatalogAdapter.ViewHold
         this.listener = listener;
     }
 
+    /**
+     * 设置当前阅读的章节
+     * @param index 章节索引，没有时为 RecyclerView.NO_POSITION
+     */
+    public void setCurrentChapter(int index) {
+        int previous = currentChapter;
+        currentChapter = index;
+        if (previous != RecyclerView.NO_POSITION) {
+            notifyItemChanged(previous);
+        }
+        if (index != RecyclerView.NO_POSITION) {
+            notifyItemChanged(index);
+        }
+    }
+
     @NonNull
     @Override
     public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -37,7 +56,7 @@ public class CatalogAdapter extends RecyclerView.Adapter<CatalogAdapter.ViewHold
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
         Chapter chapter = chapters.get(position);
-        holder.bind(chapter);
+        holder.bind(chapter, position == currentChapter);
     }
 
     @Override
@@ -55,13 +74,17 @@ public class CatalogAdapter extends RecyclerView.Adapter<CatalogAdapter.ViewHold
             itemView.setOnClickListener(v -> {
                 int position = getAdapterPosition();
                 if (position != RecyclerView.NO_POSITION) {
-                    listener.onChapterClick(chapters.get(position));
+                    listener.onChapterClick(position, chapters.get(position));
                 }
             });
         }
 
-        void bind(Chapter chapter) {
+        void bind(Chapter chapter, boolean isCurrent) {
             chapterTitle.setText(chapter.getTitle());
+            chapterTitle.setTypeface(null, isCurrent ? Typeface.BOLD : Typeface.NORMAL);
+            chapterTitle.setBackgroundColor(isCurrent
+                    ? itemView.getContext().getResources().getColor(R.color.highlight_color)
+                    : Color.TRANSPARENT);
         }
     }
 } 
\ No newline at end of file
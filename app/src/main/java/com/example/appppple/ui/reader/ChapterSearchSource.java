@@ -0,0 +1,149 @@
+package com.example.appppple.ui.reader;
+
+import com.example.appppple.domain.model.Chapter;
+import com.example.appppple.domain.model.PageIndex;
+import com.example.appppple.domain.pagination.ShardedPaginator;
+import com.example.appppple.domain.search.KeywordMatcher;
+import com.example.appppple.domain.search.PinyinIndex;
+import com.example.appppple.domain.search.PinyinMatcher;
+import com.example.appppple.domain.search.SearchIndex;
+
+import java.util.List;
+
+/**
+ * 分片模式下的搜索结果来源
+ * 有检索索引时由索引一次给出命中位置，否则逐章扫描，每次最多扫完一个章节，长章节分段并行扫描；
+ * 每处命中都是一个结果，记录章节和在分片正文中的准确位置，点击时再排版对应的章节。
+ * 拼音搜索时改用首字母索引，索引尚未建立时同样逐章扫描
+ */
+class ChapterSearchSource implements SearchEngine.Source {
+    private final ShardedPaginator paginator;
+    private final List<Chapter> chapters;
+    private final SearchIndex index;
+    private final String keyword;
+    private final KeywordMatcher matcher;
+    // 拼音搜索时的首字母索引和匹配器，按关键词搜索时匹配器为 null
+    private final PinyinIndex pinyinIndex;
+    private final PinyinMatcher pinyinMatcher;
+    private final int charsPerPage;
+    private final int maxHits;
+    private final SearchIndex.TextSource texts;
+
+    // 索引给出的命中位置，索引无法回答时为 null
+    private List<SearchIndex.Hit> hits;
+    private boolean indexQueried;
+    private int hitCursor;
+    // 逐章扫描的位置：正在输出的章节及其全部命中位置
+    private int chapter;
+    private int[] chapterHits;
+    private int chapterHitCursor;
+    private int found;
+    // 最近取得的分片正文，相邻的命中大多在同一章节中
+    private int textChapter = -1;
+    private String text;
+
+    /**
+     * @param index 检索索引，尚未建立时为 null
+     * @param charsPerPage 估算的每页字符数，用于估算未排版章节中命中所在的页
+     * @param maxHits 最多返回的结果数
+     */
+    ChapterSearchSource(ShardedPaginator paginator, List<Chapter> chapters, SearchIndex index,
+                        String keyword, int charsPerPage, int maxHits) {
+        this(paginator, chapters, index, null, null, keyword, charsPerPage, maxHits);
+    }
+
+    /**
+     * 拼音搜索
+     * @param pinyinIndex 首字母索引，尚未建立时为 null
+     */
+    ChapterSearchSource(ShardedPaginator paginator, List<Chapter> chapters, PinyinIndex pinyinIndex,
+                        PinyinMatcher pinyinMatcher, String keyword, int charsPerPage, int maxHits) {
+        this(paginator, chapters, null, pinyinIndex, pinyinMatcher, keyword, charsPerPage, maxHits);
+    }
+
+    private ChapterSearchSource(ShardedPaginator paginator, List<Chapter> chapters, SearchIndex index,
+                                PinyinIndex pinyinIndex, PinyinMatcher pinyinMatcher, String keyword,
+                                int charsPerPage, int maxHits) {
+        this.paginator = paginator;
+        this.chapters = chapters;
+        this.index = index;
+        this.pinyinIndex = pinyinIndex;
+        this.pinyinMatcher = pinyinMatcher;
+        this.keyword = keyword;
+        this.matcher = new KeywordMatcher(keyword);
+        this.charsPerPage = Math.max(1, charsPerPage);
+        this.maxHits = maxHits;
+        this.texts = chapter -> ShardedPaginator.shardText(chapters.get(chapter));
+    }
+
+    @Override
+    public boolean next(List<GlobalSearchAdapter.SearchResult> out, int max) {
+        if (!indexQueried) {
+            indexQueried = true;
+            if (pinyinMatcher != null) {
+                hits = pinyinIndex != null ? pinyinIndex.search(pinyinMatcher, texts, maxHits) : null;
+            } else {
+                hits = index != null ? index.search(keyword, texts, maxHits) : null;
+            }
+        }
+        if (hits != null) {
+            while (max-- > 0 && hitCursor < hits.size()) {
+                SearchIndex.Hit hit = hits.get(hitCursor++);
+                out.add(createResult(hit.getChapter(), hit.getPosition()));
+            }
+            return hitCursor < hits.size();
+        }
+        return scan(out, max);
+    }
+
+    private boolean scan(List<GlobalSearchAdapter.SearchResult> out, int max) {
+        if (chapterHits == null) {
+            if (chapter >= chapters.size() || found >= maxHits) {
+                return false;
+            }
+            chapterHits = pinyinMatcher != null ? pinyinMatcher.findAll(getText(chapter), maxHits - found)
+                    : matcher.findAll(getText(chapter), maxHits - found);
+            chapterHitCursor = 0;
+            found += chapterHits.length;
+        }
+        while (max-- > 0 && chapterHitCursor < chapterHits.length) {
+            out.add(createResult(chapter, chapterHits[chapterHitCursor++]));
+        }
+        if (chapterHitCursor >= chapterHits.length) {
+            // 本章输出完，下一次从下一章开始
+            chapterHits = null;
+            chapter++;
+            return chapter < chapters.size() && found < maxHits;
+        }
+        return true;
+    }
+
+    private GlobalSearchAdapter.SearchResult createResult(int chapter, int position) {
+        String chapterText = getText(chapter);
+        // 获取包含关键词的上下文
+        int start = Math.max(0, position - 20);
+        int end = Math.min(chapterText.length(), start + 60);
+        String snippet = chapterText.substring(start, end);
+        if (start > 0) snippet = "..." + snippet;
+        if (end < chapterText.length()) snippet = snippet + "...";
+
+        // 已排版的章节按分页取页号，未排版的章节按估算的每页字符数换算
+        PageIndex shard = paginator.getShard(chapter);
+        int localPage = shard != null ? ShardedPaginator.findPage(shard, position) : position / charsPerPage;
+        GlobalSearchAdapter.SearchResult result = new GlobalSearchAdapter.SearchResult(
+                chapters.get(chapter).getTitle(), snippet, paginator.getPageBase(chapter) + localPage,
+                chapter, position);
+        result.setKeyword(keyword);
+        int length = pinyinMatcher != null ? pinyinMatcher.matchAt(chapterText, position) : matcher.length();
+        result.setHighlight(position - start + (start > 0 ? 3 : 0), Math.max(0, length));
+        return result;
+    }
+
+    private String getText(int chapter) {
+        if (chapter != textChapter) {
+            text = texts.getText(chapter);
+            textChapter = chapter;
+        }
+        return text;
+    }
+}
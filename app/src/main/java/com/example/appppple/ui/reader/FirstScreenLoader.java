@@ -0,0 +1,78 @@
+package com.example.appppple.ui.reader;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.appppple.domain.manager.ReadingProgressManager.ReadingProgress;
+import com.example.appppple.domain.pagination.PageBreaker;
+import com.example.appppple.domain.parser.FileProbe;
+import com.example.appppple.domain.parser.MappedTextSource;
+import com.example.appppple.domain.parser.TxtToc;
+
+import java.io.IOException;
+
+/**
+ * 首屏快速加载
+ * 在完整解析和分页之前，只映射文件并解码保存位置附近的一小段文本，排出当前页先行显示
+ */
+class FirstScreenLoader {
+    private static final String TAG = "FirstScreenLoader";
+    private static final int FIRST_SCREEN_BYTES = 32 * 1024; // 首屏解码的字节数
+
+    private FirstScreenLoader() {
+    }
+
+    /**
+     * 加载保存位置所在的一页文本，只支持 TXT
+     * @param context 上下文
+     * @param probe 文件信息
+     * @param progress 保存的阅读进度，可以为 null
+     * @param pageBreaker 分页断点计算，与完整分页保持一致
+     * @return 页面文本，无法快速定位时返回 null
+     */
+    static String loadPage(Context context, FileProbe probe, ReadingProgress progress, PageBreaker pageBreaker) {
+        if (!"text/plain".equals(probe.getMimeType())) {
+            return null;
+        }
+
+        long startTime = System.currentTimeMillis();
+        try (MappedTextSource source = MappedTextSource.open(context, probe.getUri())) {
+            long byteOffset = source.getDataStart();
+            long charOffset = -1;
+            if (progress != null && progress.getByteOffset() > 0) {
+                // 流式模式保存的字节位置
+                byteOffset = progress.getByteOffset();
+            } else if (progress != null && progress.getCharOffset() > 0) {
+                // 普通模式保存的字符位置，借助缓存目录中的检查点换算为字节位置
+                TxtToc toc = TxtToc.readFrom(TxtToc.cacheFile(context, probe), TxtToc.cacheKey(probe));
+                if (toc == null) {
+                    return null;
+                }
+                source.setCheckpoints(toc.getCheckpoints(), toc.getTotalChars());
+                charOffset = progress.getCharOffset();
+                byteOffset = source.byteOffsetAt(charOffset);
+            } else if (progress != null && progress.getCurrentPage() > 0) {
+                // 只有页码的旧进度无法在分页前定位
+                return null;
+            }
+
+            MappedTextSource.Window window = source.readWindowFrom(byteOffset, FIRST_SCREEN_BYTES);
+            String text = window.getText();
+            if (charOffset >= 0) {
+                // 窗口从行首开始，跳到保存的字符位置
+                long skip = charOffset - source.charOffsetAt(window.getByteStart());
+                text = text.substring((int) Math.max(0, Math.min(skip, text.length())));
+            }
+            if (text.trim().isEmpty()) {
+                return null;
+            }
+
+            String page = text.substring(0, pageBreaker.findPageEnd(text, 0)).trim();
+            Log.d(TAG, String.format("首屏加载完成，耗时 %dms", System.currentTimeMillis() - startTime));
+            return page;
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "首屏加载失败", e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.appppple.ui.reader;
+
+import com.example.appppple.util.FrameCoalescer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按显示帧合并的进度通道
+ * 后台线程随时写入进度，只保留最新的一个值；主线程每帧最多收到一次，中间的值直接丢弃
+ */
+class FrameProgressChannel {
+    private static final long EMPTY = -1L;
+
+    /**
+     * 在主线程中接收进度
+     */
+    interface Receiver {
+        void onProgress(int current, int total);
+    }
+
+    // 高 32 位为 current，低 32 位为 total，没有新进度时为 EMPTY
+    private final AtomicLong latest = new AtomicLong(EMPTY);
+    private final Receiver receiver;
+    private final FrameCoalescer coalescer = new FrameCoalescer(this::deliver);
+
+    FrameProgressChannel(Receiver receiver) {
+        this.receiver = receiver;
+    }
+
+    /**
+     * 写入最新进度，可以在任意线程中调用
+     * @param current 当前进度，不能为负数
+     * @param total 总量，不能为负数
+     */
+    void publish(int current, int total) {
+        latest.set(((long) current << 32) | (total & 0xFFFFFFFFL));
+        coalescer.request();
+    }
+
+    /**
+     * 丢弃尚未投递的进度，之后的进度不再投递
+     */
+    void close() {
+        coalescer.cancel();
+        latest.set(EMPTY);
+    }
+
+    private void deliver() {
+        long value = latest.getAndSet(EMPTY);
+        if (value != EMPTY) {
+            receiver.onProgress((int) (value >>> 32), (int) value);
+        }
+    }
+}
@@ -13,6 +13,7 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.appppple.R;
+import com.example.appppple.domain.search.KeywordMatcher;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -22,6 +23,9 @@ public class GlobalSearchAdapter extends RecyclerView.Adapter<GlobalSearchAdapte
     private List<SearchResult> searchResults;
     private Context context;
     private OnItemClickListener listener;
+    // 高亮用的匹配器，关键词变化时重建
+    private KeywordMatcher highlightMatcher;
+    private String highlightKeyword;
 
     public GlobalSearchAdapter(Context context) {
         this.context = context;
@@ -39,7 +43,9 @@ public class GlobalSearchAdapter extends RecyclerView.Adapter<GlobalSearchAdapte
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
         SearchResult result = searchResults.get(position);
         holder.chapterTitle.setText(result.getChapterTitle());
-        holder.contentSnippet.setText(highlightKeyword(result.getContentSnippet(), result.getKeyword()));
+        holder.contentSnippet.setText(result.getHighlightStart() >= 0
+                ? highlightRange(result.getContentSnippet(), result.getHighlightStart(), result.getHighlightLength())
+                : highlightKeyword(result.getContentSnippet(), result.getKeyword()));
         holder.pageNumber.setText(String.format("第 %d 页", result.getPageNumber()));
 
         holder.itemView.setOnClickListener(v -> {
@@ -79,7 +85,14 @@ public class GlobalSearchAdapter extends RecyclerView.Adapter<GlobalSearchAdapte
 
     private SpannableString highlightKeyword(String content, String keyword) {
         SpannableString spannableString = new SpannableString(content);
-        int startIndex = content.toLowerCase().indexOf(keyword.toLowerCase());
+        if (keyword == null || keyword.isEmpty()) {
+            return spannableString;
+        }
+        if (!keyword.equals(highlightKeyword)) {
+            highlightMatcher = new KeywordMatcher(keyword);
+            highlightKeyword = keyword;
+        }
+        int startIndex = highlightMatcher.indexOf(content, 0);
         if (startIndex >= 0) {
             spannableString.setSpan(new BackgroundColorSpan(context.getResources().getColor(R.color.highlight_color)),
                     startIndex, startIndex + keyword.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
@@ -87,6 +100,16 @@ public class GlobalSearchAdapter extends RecyclerView.Adapter<GlobalSearchAdapte
         return spannableString;
     }
 
+    private SpannableString highlightRange(String content, int start, int length) {
+        SpannableString spannableString = new SpannableString(content);
+        int end = Math.min(content.length(), start + length);
+        if (start < end) {
+            spannableString.setSpan(new BackgroundColorSpan(context.getResources().getColor(R.color.highlight_color)),
+                    start, end, Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+        }
+        return spannableString;
+    }
+
     public void setOnItemClickListener(OnItemClickListener listener) {
         this.listener = listener;
     }
@@ -113,6 +136,12 @@ public class GlobalSearchAdapter extends RecyclerView.Adapter<GlobalSearchAdapte
         private String contentSnippet;
         private int pageNumber;
         private String keyword;
+        // 结果所在的章节及其在章节分片正文中的位置；按页搜索时章节为 -1，位置为页内位置
+        private int chapterIndex = -1;
+        private int position = -1;
+        // 命中在摘要中的范围；拼音搜索时摘要中没有关键词，按范围高亮，未设置时为 -1
+        private int highlightStart = -1;
+        private int highlightLength;
 
         public SearchResult(String chapterTitle, String contentSnippet, int pageNumber) {
             this.chapterTitle = chapterTitle;
@@ -120,6 +149,21 @@ public class GlobalSearchAdapter extends RecyclerView.Adapter<GlobalSearchAdapte
             this.pageNumber = pageNumber;
         }
 
+        public SearchResult(String chapterTitle, String contentSnippet, int pageNumber,
+                            int chapterIndex, int position) {
+            this(chapterTitle, contentSnippet, pageNumber);
+            this.chapterIndex = chapterIndex;
+            this.position = position;
+        }
+
+        public int getChapterIndex() {
+            return chapterIndex;
+        }
+
+        public int getPosition() {
+            return position;
+        }
+
         public String getChapterTitle() {
             return chapterTitle;
         }
@@ -139,5 +183,18 @@ public class GlobalSearchAdapter extends RecyclerView.Adapter<GlobalSearchAdapte
         public void setKeyword(String keyword) {
             this.keyword = keyword;
         }
+
+        public int getHighlightStart() {
+            return highlightStart;
+        }
+
+        public int getHighlightLength() {
+            return highlightLength;
+        }
+
+        public void setHighlight(int start, int length) {
+            this.highlightStart = start;
+            this.highlightLength = length;
+        }
     }
 } 
\ No newline at end of file
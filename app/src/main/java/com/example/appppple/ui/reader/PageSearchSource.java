@@ -0,0 +1,75 @@
+package com.example.appppple.ui.reader;
+
+import com.example.appppple.domain.search.KeywordMatcher;
+import com.example.appppple.domain.search.PinyinMatcher;
+
+import java.util.List;
+
+/**
+ * 流式模式下的搜索结果来源，逐页扫描当前窗口，每次最多扫完一页
+ * 每处命中都是一个结果，记录页码和在页内的准确位置；拼音搜索时逐字核对读音
+ */
+class PageSearchSource implements SearchEngine.Source {
+    private final List<String> pages;
+    private final int pageBase;
+    private final String keyword;
+    private final KeywordMatcher matcher;
+    // 拼音搜索时的匹配器，按关键词搜索时为 null
+    private final PinyinMatcher pinyinMatcher;
+    private int page;
+    private int position;
+
+    /**
+     * @param pages 窗口中的页，搜索期间不再修改
+     * @param pageBase 窗口首页的全书页码
+     */
+    PageSearchSource(List<String> pages, int pageBase, String keyword) {
+        this(pages, pageBase, keyword, null);
+    }
+
+    /**
+     * @param pinyinMatcher 拼音搜索时的匹配器，按关键词搜索时为 null
+     */
+    PageSearchSource(List<String> pages, int pageBase, String keyword, PinyinMatcher pinyinMatcher) {
+        this.pages = pages;
+        this.pageBase = pageBase;
+        this.keyword = keyword;
+        this.matcher = new KeywordMatcher(keyword);
+        this.pinyinMatcher = pinyinMatcher;
+    }
+
+    @Override
+    public boolean next(List<GlobalSearchAdapter.SearchResult> out, int max) {
+        if (page >= pages.size()) {
+            return false;
+        }
+        String pageContent = pages.get(page);
+        int added = 0;
+        while (added < max) {
+            int hit = pinyinMatcher != null ? pinyinMatcher.indexOf(pageContent, position)
+                    : matcher.indexOf(pageContent, position);
+            if (hit < 0) {
+                page++;
+                position = 0;
+                break;
+            }
+
+            // 获取包含关键词的上下文
+            int start = Math.max(0, hit - 20);
+            int end = Math.min(pageContent.length(), start + 60);
+            String snippet = pageContent.substring(start, end);
+            if (start > 0) snippet = "..." + snippet;
+            if (end < pageContent.length()) snippet = snippet + "...";
+
+            GlobalSearchAdapter.SearchResult result = new GlobalSearchAdapter.SearchResult(
+                    "第" + (pageBase + page + 1) + "页", snippet, pageBase + page, -1, hit);
+            result.setKeyword(keyword);
+            int length = pinyinMatcher != null ? pinyinMatcher.matchAt(pageContent, hit) : matcher.length();
+            result.setHighlight(hit - start + (start > 0 ? 3 : 0), Math.max(0, length));
+            out.add(result);
+            position = hit + 1;
+            added++;
+        }
+        return page < pages.size();
+    }
+}
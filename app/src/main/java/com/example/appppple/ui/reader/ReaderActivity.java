@@ -23,8 +23,12 @@ import android.view.Window;
 import android.view.WindowManager;
 import android.graphics.Color;
 import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
 import android.text.Editable;
+import android.text.Layout;
 import android.text.TextWatcher;
+import android.widget.CheckBox;
 import android.widget.EditText;
 
 import androidx.appcompat.app.AppCompatActivity;
@@ -35,20 +39,38 @@ import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
 import com.example.appppple.R;
+import com.example.appppple.data.repository.LibrarySearchRepository;
 import com.example.appppple.domain.manager.BookmarkManager;
 import com.example.appppple.domain.manager.ReadingProgressManager;
 import com.example.appppple.domain.model.Book;
 import com.example.appppple.domain.model.Chapter;
+import com.example.appppple.domain.model.PageIndex;
+import com.example.appppple.domain.pagination.PageBreaker;
+import com.example.appppple.domain.pagination.PaginationManager;
+import com.example.appppple.domain.pagination.ShardedPaginator;
+import com.example.appppple.domain.search.PinyinIndex;
+import com.example.appppple.domain.search.PinyinMatcher;
+import com.example.appppple.domain.search.PinyinTable;
+import com.example.appppple.domain.search.SearchIndex;
 import com.example.appppple.domain.parser.BookParser;
+import com.example.appppple.domain.parser.BookCache;
+import com.example.appppple.domain.parser.PageOffsetCache;
+import com.example.appppple.domain.parser.FileProbe;
+import com.example.appppple.domain.parser.MappedTextSource;
 import com.example.appppple.domain.parser.ParserFactory;
 import com.example.appppple.domain.parser.TxtParser;
 import com.example.appppple.domain.model.Bookmark;
 
+import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 public class ReaderActivity extends AppCompatActivity {
     private static final int AUTO_SAVE_INTERVAL = 60 * 1000; // 1分钟
@@ -57,8 +79,17 @@ public class ReaderActivity extends AppCompatActivity {
     private static final String TAG = "ReaderActivity";
     private static final String EXTRA_BOOK_URI = "book_uri";
     private static final String EXTRA_BOOK_NAME = "book_name";
-    private static final int CHARS_PER_PAGE = 1000; // 每页显示的字符数
+    private static final String EXTRA_CHAPTER_INDEX = "chapter_index";
+    private static final String EXTRA_POSITION = "position";
+    private static final String STATE_CHAR_OFFSET = "char_offset";
+    private static final int CHARS_PER_PAGE = 1000; // 无法测量显示区域时每页的字符数
+    private static final long LAYOUT_TIMEOUT_MS = 3000; // 等待内容区域完成布局的最长时间
     private static final float SWIPE_THRESHOLD = 100; // 滑动阈值
+    private static final int STREAMING_WINDOW_BYTES = 2 * 1024 * 1024; // 流式模式下每个窗口的字节数
+    private static final int MAX_SEARCH_HITS = 2000; // 单次搜索最多处理的命中数
+    private static final long SEARCH_DEBOUNCE_MS = 300; // 输入停顿多久后开始搜索
+    private static final int SEARCH_PAGE_SIZE = 100; // 每次找到多少个结果后暂停，滚动到末尾时继续
+    private static final int SEARCH_BATCH_SIZE = 20; // 每批追加显示的结果数
 
     private TextView contentTextView;
     private TextView progressTextView;
@@ -72,6 +103,10 @@ public class ReaderActivity extends AppCompatActivity {
     private ReadingProgressManager progressManager;
     private BookmarkManager bookmarkManager;
     private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    // 建立检索索引耗时较长，单独使用一个线程，不阻塞分页
+    private final ExecutorService indexExecutor = Executors.newSingleThreadExecutor();
+    // 书内搜索单独使用一个线程，不阻塞分页，新的搜索开始前旧的搜索已经取消
+    private final ExecutorService searchExecutor = Executors.newSingleThreadExecutor();
     private Uri currentBookUri;
     private String currentBookName;
     private GestureDetector gestureDetector;
@@ -79,9 +114,59 @@ public class ReaderActivity extends AppCompatActivity {
     private boolean isBookmarkHintVisible = false;
     private BookmarkAdapter bookmarkAdapter;
     private Dialog bookmarkDialog;
+    // 搜索对话框打开期间的搜索，界面关闭时取消
+    private SearchEngine activeSearch;
     private Book book;
     private List<Bookmark> bookmarks;
 
+    // 流式模式：pages 只保存当前窗口的页，windowPageBase 为窗口首页对应的全书页码（估算）
+    private MappedTextSource.Window currentWindow;
+    // 窗口起点在正文中的字符位置，源文件还没有检查点时为 -1
+    private long currentWindowCharStart = -1;
+    private int windowPageBase = 0;
+    private long bytesPerPage = 0;
+    private boolean isWindowLoading = false;
+
+    // 按内容区域实际尺寸和字体分页，布局完成后创建；charsPerPage 为每页字符数的估算值
+    private final CountDownLatch pageBreakerReady = new CountDownLatch(1);
+    private volatile PageBreaker pageBreaker;
+    private volatile int charsPerPage = CHARS_PER_PAGE;
+
+    // 渐进式打开：完整分页完成之前先显示保存位置所在的一页
+    private boolean isFirstScreenShown = false;
+    private volatile ReadingProgressManager.ReadingProgress savedProgress;
+
+    // 按章节分片分页：pages 为当前章节的页，windowPageBase 为该章节首页的全书页码（含未分页章节的估算值）
+    private ShardedPaginator shards;
+    // 分页结果缓存，离开界面时保存新排好的章节
+    private volatile PageOffsetCache pageCache;
+    // 书内检索索引，建立完成前搜索逐章扫描
+    private volatile SearchIndex searchIndex;
+    // 拼音搜索的首字母索引，在后台建立，完成前拼音搜索逐章扫描
+    private volatile PinyinIndex pinyinIndex;
+    // 拼音表，第一次使用拼音搜索时加载
+    private PinyinTable pinyinTable;
+    // 后台解析和分页的进度，按显示帧合并后更新加载提示
+    private final FrameProgressChannel parseProgress = new FrameProgressChannel((loaded, total) ->
+            showLoading(String.format("正在解析... %d%%", total > 0 ? (int) (100L * loaded / total) : 0)));
+    private final FrameProgressChannel paginationProgress = new FrameProgressChannel((current, total) -> {
+        // 合并的进度可能晚于分页完成才到达，窗口已经显示时不再显示加载提示
+        if (isWindowLoading) {
+            showLoading(String.format("正在分页... %d/%d", current, Math.max(current, total)));
+        }
+    });
+    private int currentChapter = 0;
+    private boolean isShardLoading = false;
+
+    // 锚点分页：很长的章节排完之前 pages 只包含阅读位置附近的页，页码按估算值显示
+    private boolean isAnchorWindow = false;
+    private int estimatedAnchorPage = 0;
+    // 旋转屏幕等重建界面时保存的阅读位置，重新分页以它为锚点
+    private long restoredCharOffset = -1;
+    // 从书库搜索打开时要显示的位置（章节和在章节分片正文中的位置），优先于保存的阅读进度
+    private int targetChapter = -1;
+    private int targetPosition = 0;
+
     private Handler autoSaveHandler = new Handler();
     private Runnable autoSaveRunnable = new Runnable() {
         @Override
@@ -101,10 +186,27 @@ public class ReaderActivity extends AppCompatActivity {
         context.startActivity(intent);
     }
 
+    /**
+     * 打开书籍并显示指定位置
+     * @param chapter 章节索引
+     * @param position 在章节分片正文中的位置
+     */
+    public static void start(Context context, Uri bookUri, String bookName, int chapter, int position) {
+        Intent intent = new Intent(context, ReaderActivity.class);
+        intent.putExtra(EXTRA_BOOK_URI, bookUri);
+        intent.putExtra(EXTRA_BOOK_NAME, bookName);
+        intent.putExtra(EXTRA_CHAPTER_INDEX, chapter);
+        intent.putExtra(EXTRA_POSITION, position);
+        context.startActivity(intent);
+    }
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_reader);
+        if (savedInstanceState != null) {
+            restoredCharOffset = savedInstanceState.getLong(STATE_CHAR_OFFSET, -1);
+        }
         
         initViews();
         initGestureDetector();
@@ -114,6 +216,10 @@ public class ReaderActivity extends AppCompatActivity {
         // 获取传递的书籍信息
         currentBookUri = getIntent().getParcelableExtra(EXTRA_BOOK_URI);
         currentBookName = getIntent().getStringExtra(EXTRA_BOOK_NAME);
+        if (savedInstanceState == null) {
+            targetChapter = getIntent().getIntExtra(EXTRA_CHAPTER_INDEX, -1);
+            targetPosition = getIntent().getIntExtra(EXTRA_POSITION, 0);
+        }
 
         if (currentBookUri == null || currentBookName == null) {
             Toast.makeText(this, "书籍信息不完整", Toast.LENGTH_SHORT).show();
@@ -143,6 +249,13 @@ public class ReaderActivity extends AppCompatActivity {
         autoSaveHandler.postDelayed(autoSaveRunnable, AUTO_SAVE_INTERVAL);
     }
 
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        long charOffset = getCurrentCharOffset();
+        outState.putLong(STATE_CHAR_OFFSET, charOffset >= 0 ? charOffset : restoredCharOffset);
+    }
+
 
 
 
@@ -153,6 +266,20 @@ public class ReaderActivity extends AppCompatActivity {
         loadingText = findViewById(R.id.loadingText);
         bookmarkHintOverlay = findViewById(R.id.bookmarkHintOverlay);
 
+        // 与 PaginationManager 的换行规则保持一致
+        contentTextView.setBreakStrategy(Layout.BREAK_STRATEGY_SIMPLE);
+        contentTextView.setHyphenationFrequency(Layout.HYPHENATION_FREQUENCY_NONE);
+        contentTextView.addOnLayoutChangeListener(new View.OnLayoutChangeListener() {
+            @Override
+            public void onLayoutChange(View v, int left, int top, int right, int bottom,
+                                       int oldLeft, int oldTop, int oldRight, int oldBottom) {
+                if (right - left > 0 && bottom - top > 0) {
+                    v.removeOnLayoutChangeListener(this);
+                    createPageBreaker();
+                }
+            }
+        });
+
         // 设置内容区域的触摸监听
         contentTextView.setOnTouchListener((v, event) -> {
             if (gestureDetector != null) {
@@ -328,6 +455,10 @@ public class ReaderActivity extends AppCompatActivity {
     }
 
     private void showLoading(String message) {
+        if (isFirstScreenShown && pages == null) {
+            // 首屏已经显示，后台解析时不再遮挡内容
+            return;
+        }
         loadingLayout.setVisibility(View.VISIBLE);
         loadingText.setText(message);
     }
@@ -336,10 +467,55 @@ public class ReaderActivity extends AppCompatActivity {
         loadingLayout.setVisibility(View.GONE);
     }
 
+    /**
+     * 按内容区域的实际尺寸、字体和行距创建分页器，需要在布局完成后于主线程调用
+     */
+    private void createPageBreaker() {
+        // 书签图标显示在文字右侧，始终为它预留宽度，避免添加书签后页面溢出
+        int reservedWidth = 0;
+        Drawable bookmarkIcon = getDrawable(R.drawable.ic_bookmark);
+        if (bookmarkIcon != null && contentTextView.getCompoundDrawables()[2] == null) {
+            reservedWidth = bookmarkIcon.getIntrinsicWidth() + contentTextView.getCompoundDrawablePadding();
+        }
+        int width = contentTextView.getWidth() - contentTextView.getCompoundPaddingLeft()
+                - contentTextView.getCompoundPaddingRight() - reservedWidth;
+        int height = contentTextView.getHeight() - contentTextView.getCompoundPaddingTop()
+                - contentTextView.getCompoundPaddingBottom();
+        if (width > 0 && height > 0) {
+            boolean fallbackLineSpacing = Build.VERSION.SDK_INT >= Build.VERSION_CODES.P
+                    && contentTextView.isFallbackLineSpacing();
+            PaginationManager manager = new PaginationManager(contentTextView.getPaint(), width, height,
+                    contentTextView.getLineSpacingExtra(), contentTextView.getLineSpacingMultiplier(),
+                    contentTextView.getIncludeFontPadding(), fallbackLineSpacing);
+            charsPerPage = manager.estimateCharsPerPage();
+            pageBreaker = manager;
+            Log.d(TAG, String.format("分页器: 宽=%d, 高=%d, 每页行数=%d, 估算每页字符数=%d",
+                    width, height, manager.getLinesPerPage(), charsPerPage));
+        }
+        pageBreakerReady.countDown();
+    }
+
+    /**
+     * 在后台线程中等待分页器创建完成，无法测量显示区域时按固定字符数分页
+     */
+    private PageBreaker awaitPageBreaker() throws InterruptedException {
+        if (!pageBreakerReady.await(LAYOUT_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+            Log.w(TAG, "等待布局超时，按字符数分页");
+        }
+        PageBreaker breaker = pageBreaker;
+        if (breaker == null) {
+            breaker = (text, start) -> Book.findPageEnd(text, start, CHARS_PER_PAGE);
+            pageBreaker = breaker;
+        }
+        return breaker;
+    }
+
     private void loadBookContentAsync(Uri uri, String fileName) {
         executor.execute(() -> {
             try {
-                BookParser parser = ParserFactory.createParser(this, uri);
+                // 一次探测得到文件大小、类型和名称，解析器不再重复读取文件
+                FileProbe probe = FileProbe.probe(this, uri);
+                BookParser parser = ParserFactory.createParser(probe);
                 if (parser == null) {
                     runOnUiThread(() -> {
                         Toast.makeText(this, "不支持的文件格式", Toast.LENGTH_SHORT).show();
@@ -349,7 +525,40 @@ public class ReaderActivity extends AppCompatActivity {
                 }
 
                 Log.d(TAG, "创建解析器成功: " + parser.getClass().getSimpleName());
-                Book book = parser.parse(this, uri);
+
+                // 先读取保存的位置，只解码该位置附近的内容显示首屏，完整解析和分页在之后进行
+                savedProgress = progressManager.getProgressSync(uri);
+                PageBreaker breaker = awaitPageBreaker();
+                // 要显示指定位置时首屏不是保存的阅读位置，不再预先显示
+                String firstPage = targetChapter < 0
+                        ? FirstScreenLoader.loadPage(this, probe, savedProgress, breaker) : null;
+                if (firstPage != null) {
+                    runOnUiThread(() -> showFirstScreen(firstPage));
+                }
+
+                // 同一本书再次打开时直接加载上次的解析结果
+                final String cacheKey = BookCache.fingerprint(this, probe);
+                final File cacheFile = BookCache.cacheFile(this, probe);
+                Book cachedBook = cacheKey != null ? loadCachedBook(cacheFile, cacheKey) : null;
+                final boolean fromCache = cachedBook != null;
+                if (!fromCache && parser instanceof TxtParser) {
+                    ((TxtParser) parser).addChunkLoadListener(new TxtParser.ChunkLoadListener() {
+                        @Override
+                        public void onChunkLoaded(int loadedBytes, int totalBytes) {
+                            parseProgress.publish(loadedBytes, totalBytes);
+                        }
+
+                        @Override
+                        public void onLoadComplete() {
+                        }
+
+                        @Override
+                        public void onLoadError(Exception e) {
+                        }
+                    });
+                }
+                Book book = fromCache ? cachedBook : parser.parse(this, uri, probe);
+                parseProgress.close();
                 if (book == null) {
                     runOnUiThread(() -> {
                         Toast.makeText(this, "解析文件失败", Toast.LENGTH_SHORT).show();
@@ -362,65 +571,506 @@ public class ReaderActivity extends AppCompatActivity {
                 book.setUri(uri);
                 book.setFileName(fileName);
 
-                // 分页处理
+                if (book.isStreaming()) {
+                    this.book = book;
+                    runOnUiThread(this::openStreamingBook);
+                    return;
+                }
+
+                if (book.getChapters() == null || book.getChapters().isEmpty()) {
+                    runOnUiThread(() -> {
+                        Toast.makeText(this, "分页失败：内容为空", Toast.LENGTH_SHORT).show();
+                        finish();
+                    });
+                    return;
+                }
+
+                // 按章节分片分页，只排阅读位置所在的章节，其余章节在翻到附近时再排
                 runOnUiThread(() -> showLoading("正在分页..."));
+                final ReadingProgressManager.ReadingProgress progress = savedProgress;
                 this.book = book; // 先设置 book 对象
-                book.paginate(CHARS_PER_PAGE, new Book.PaginationListener() {
+                final ShardedPaginator paginator = new ShardedPaginator(book.getChapters(), breaker, charsPerPage);
+                if (cacheKey != null) {
+                    // 书籍和排版参数都没有变化时沿用上次的分页结果
+                    String layoutKey = breaker instanceof PaginationManager
+                            ? ((PaginationManager) breaker).getLayoutKey() : "chars=" + CHARS_PER_PAGE;
+                    PageOffsetCache cache = PageOffsetCache.open(PageOffsetCache.cacheFile(this, probe, layoutKey),
+                            ShardedPaginator.cacheKey(cacheKey, layoutKey), book.getChapters().size());
+                    paginator.setOffsetCache(cache);
+                    pageCache = cache;
+                }
+                runOnUiThread(() -> shards = paginator);
+                long anchorOffset = restoredCharOffset >= 0 ? restoredCharOffset
+                        : progress != null ? progress.getCharOffset() : -1;
+                ShardedPaginator.Position start = restoredCharOffset < 0 && targetChapter >= 0
+                        && targetChapter < book.getChapters().size()
+                        ? new ShardedPaginator.Position(targetChapter, targetPosition)
+                        : paginator.locateSourceCharOffset(anchorOffset);
+                final boolean anchored = start != null;
+                if (start == null) {
+                    // 只保存了页码时依次排版之前的章节，直到找到该页
+                    start = progress != null && progress.getCurrentPage() > 0
+                            ? paginator.locatePage(progress.getCurrentPage()) : new ShardedPaginator.Position(0, 0);
+                }
+                final ShardedPaginator.Position position = start;
+                // 以阅读位置为锚点分页，章节很长时先试排该位置附近的页即可翻页
+                PageIndex shard = paginator.paginate(position.getChapter(), anchored ? position.getOffset() : 0,
+                        anchored ? (windowPages, anchorIndex, anchorPage, estimatedTotal) -> runOnUiThread(() ->
+                                showAnchorPages(position.getChapter(), windowPages, anchorIndex, anchorPage)) : null);
+                runOnUiThread(() -> {
+                    hideLoading();
+                    int localPage = ShardedPaginator.findPage(shard, position.getOffset());
+                    if (isAnchorWindow) {
+                        // 保持用户在锚点附近已经翻过的页数
+                        localPage += currentPage - estimatedAnchorPage;
+                    }
+                    showShard(position.getChapter(), shard, localPage);
+                    setupBookmarkObserver();
+                });
+                if (!fromCache && cacheKey != null && !book.isLazy()) {
+                    // 在后台逐章读取内容写入缓存，下次打开时不再解析；
+                    // 延迟加载的书籍本身可以按章随机读取，缓存需要先解压全部章节，得不偿失
+                    saveBookCacheAsync(book, cacheFile, cacheKey);
+                }
+                if (cacheKey != null) {
+                    buildSearchIndexesAsync(book, probe, cacheKey);
+                }
+
+            } catch (CancellationException e) {
+                Log.d(TAG, "界面已关闭，停止分页");
+            } catch (Exception e) {
+                Log.e(TAG, "加载书籍失败", e);
+                runOnUiThread(() -> {
+                    Toast.makeText(this, "加载书籍失败: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                    finish();
+                });
+            }
+        });
+    }
+
+    /**
+     * 显示长章节中锚点附近已排好的页，页码为估算值，章节排完后再校正
+     */
+    private void showAnchorPages(int chapter, PageIndex windowPages, int anchorIndex, int anchorPage) {
+        if (pages != null && !isAnchorWindow) {
+            return;
+        }
+        // 已经在显示试排的页时，保持用户相对锚点已经翻过的页数
+        int offset = isAnchorWindow ? currentPage - estimatedAnchorPage : 0;
+        hideLoading();
+        pages = windowPages;
+        currentChapter = chapter;
+        isAnchorWindow = true;
+        estimatedAnchorPage = shards.getPageBase(chapter) + anchorPage;
+        windowPageBase = estimatedAnchorPage - anchorIndex;
+        currentPage = estimatedAnchorPage + offset;
+        totalPages = Math.max(shards.getTotalPages(), windowPageBase + windowPages.size());
+        updatePageDisplay();
+    }
+
+    /**
+     * 显示章节分片中的一页
+     * @param localPage 章节内的页号，超出范围时取最近的一页
+     */
+    private void showShard(int chapter, PageIndex shard, int localPage) {
+        if (shard.isEmpty()) {
+            Toast.makeText(this, "章节内容为空", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        switchShard(chapter, shard, localPage);
+        updatePageDisplay();
+    }
+
+    private void switchShard(int chapter, PageIndex shard, int localPage) {
+        pages = shard;
+        currentChapter = chapter;
+        isAnchorWindow = false;
+        windowPageBase = shards.getPageBase(chapter);
+        currentPage = windowPageBase + Math.max(0, Math.min(localPage, shard.size() - 1));
+        totalPages = shards.getTotalPages();
+        shards.retain(chapter);
+        prefetchNeighbours(chapter);
+    }
+
+    /**
+     * 在后台预先排版相邻的章节，翻到章节边界时可以直接切换
+     */
+    private void prefetchNeighbours(int chapter) {
+        final ShardedPaginator paginator = shards;
+        for (int neighbour : new int[]{chapter + 1, chapter - 1}) {
+            if (neighbour < 0 || neighbour >= paginator.getChapterCount() || paginator.getShard(neighbour) != null) {
+                continue;
+            }
+            try {
+                executor.execute(() -> {
+                    try {
+                        paginator.paginate(neighbour, 0, null);
+                    } catch (CancellationException e) {
+                        Log.d(TAG, "界面已关闭，停止预排相邻章节");
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                Log.d(TAG, "界面已关闭，不再预排相邻章节");
+                return;
+            }
+        }
+    }
+
+    /**
+     * 在后台排版章节分片，完成后显示其中的一页
+     * @param position 分片正文中要显示的位置，为 -1 时按 localPage 定位
+     * @param localPage 章节内的页号，超出范围时取最近的一页
+     */
+    private void loadShard(int chapter, int position, int localPage) {
+        if (isShardLoading) {
+            return;
+        }
+        isShardLoading = true;
+        showLoading("正在分页...");
+
+        final ShardedPaginator paginator = shards;
+        executor.execute(() -> {
+            try {
+                PageIndex shard = paginator.paginate(chapter, 0, null);
+                runOnUiThread(() -> {
+                    isShardLoading = false;
+                    hideLoading();
+                    showShard(chapter, shard, position >= 0 ? ShardedPaginator.findPage(shard, position) : localPage);
+                    saveReadingProgress();
+                });
+            } catch (CancellationException e) {
+                Log.d(TAG, "界面已关闭，停止章节分页");
+            } catch (RuntimeException e) {
+                Log.e(TAG, "章节分页失败", e);
+                runOnUiThread(() -> {
+                    isShardLoading = false;
+                    hideLoading();
+                    Toast.makeText(this, "分页失败：" + e.getMessage(), Toast.LENGTH_SHORT).show();
+                });
+            }
+        });
+    }
+
+    /**
+     * 跳转到章节分片中的位置，章节尚未排版时在后台排版
+     * @param position 分片正文中的位置
+     */
+    private void jumpToShardPosition(int chapter, int position) {
+        PageIndex shard = shards.getShard(chapter);
+        if (shard == null) {
+            loadShard(chapter, position, 0);
+            return;
+        }
+        showShard(chapter, shard, ShardedPaginator.findPage(shard, position));
+        saveReadingProgress();
+    }
+
+    /**
+     * 分片模式下确认当前页位于已排版的章节中，否则切换到相邻章节或在后台排版目标章节
+     * @return 当前页是否可以直接显示
+     */
+    private boolean ensureShardForCurrentPage() {
+        if (isAnchorWindow) {
+            return true;
+        }
+        if (pages == null || isShardLoading) {
+            return false;
+        }
+
+        // 之前章节的页数可能已从估算值变为精确值，按章节内的页号重新计算全书页码
+        int local = currentPage - windowPageBase;
+        windowPageBase = shards.getPageBase(currentChapter);
+        currentPage = windowPageBase + local;
+        totalPages = shards.getTotalPages();
+        if (local >= 0 && local < pages.size()) {
+            return true;
+        }
+
+        int chapter;
+        int targetLocal;
+        if (local >= pages.size()) {
+            if (currentChapter + 1 >= shards.getChapterCount()) {
+                // 已经是最后一章
+                currentPage = windowPageBase + pages.size() - 1;
+                return true;
+            }
+            chapter = local == pages.size() ? currentChapter + 1 : shards.findChapterByPage(currentPage);
+            targetLocal = local == pages.size() ? 0 : currentPage - shards.getPageBase(chapter);
+        } else {
+            if (currentChapter == 0) {
+                currentPage = windowPageBase;
+                return true;
+            }
+            chapter = local == -1 ? currentChapter - 1 : shards.findChapterByPage(currentPage);
+            targetLocal = local == -1 ? Integer.MAX_VALUE : currentPage - shards.getPageBase(chapter);
+        }
+
+        PageIndex shard = shards.getShard(chapter);
+        if (shard != null && !shard.isEmpty()) {
+            switchShard(chapter, shard, targetLocal);
+            return true;
+        }
+        loadShard(chapter, -1, targetLocal);
+        return false;
+    }
+
+    /**
+     * 非流式模式下当前页在源文件正文中的字符位置，无法换算时返回 -1
+     */
+    private long getCurrentCharOffset() {
+        if (book == null || book.isStreaming() || shards == null || !(pages instanceof PageIndex)) {
+            return -1;
+        }
+        int index = currentPage - windowPageBase;
+        return index >= 0 && index < pages.size()
+                ? shards.getSourceCharOffset(currentChapter, (PageIndex) pages, index) : -1;
+    }
+
+    private Book loadCachedBook(File cacheFile, String cacheKey) {
+        long startTime = System.currentTimeMillis();
+        try {
+            Book book = BookCache.load(cacheFile, cacheKey);
+            if (book != null) {
+                Log.d(TAG, String.format("从缓存加载书籍，耗时 %dms", System.currentTimeMillis() - startTime));
+            }
+            return book;
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "读取书籍缓存失败，重新解析", e);
+            cacheFile.delete();
+            return null;
+        }
+    }
+
+    private void savePageCacheAsync() {
+        final PageOffsetCache cache = pageCache;
+        if (cache == null) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    cache.save();
+                } catch (IOException e) {
+                    Log.w(TAG, "保存分页缓存失败", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            Log.d(TAG, "界面已关闭，不再保存分页缓存");
+        }
+    }
+
+    private void saveBookCacheAsync(Book book, File cacheFile, String cacheKey) {
+        try {
+            executor.execute(() -> {
+                try {
+                    BookCache.save(book, cacheFile, cacheKey);
+                } catch (IOException e) {
+                    Log.w(TAG, "保存书籍缓存失败", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            Log.d(TAG, "界面已关闭，不再保存书籍缓存");
+        }
+    }
+
+    /**
+     * 显示首屏，此时还没有完整的分页，翻页操作在分页完成前不可用
+     */
+    private void showFirstScreen(String firstPage) {
+        if (pages != null) {
+            return;
+        }
+        isFirstScreenShown = true;
+        hideLoading();
+        contentTextView.setText(firstPage);
+        int page = savedProgress != null ? savedProgress.getCurrentPage() : 0;
+        progressTextView.setText(String.format("%d/...", page + 1));
+        setTitle(currentBookName);
+    }
+
+    /**
+     * 流式模式：使用打开时读取的字节位置，只加载该位置所在的窗口
+     */
+    private void openStreamingBook() {
+        long byteOffset = 0;
+        int page = 0;
+        if (savedProgress != null) {
+            byteOffset = savedProgress.getByteOffset();
+            page = savedProgress.getCurrentPage();
+            Log.d(TAG, "加载保存的流式进度: 页码=" + page + ", 字节位置=" + byteOffset);
+        }
+        loadWindow(byteOffset, page, false);
+        setupBookmarkObserver();
+    }
+
+    /**
+     * 流式模式下解码一个窗口并分页
+     * @param byteOffset 向后加载时为窗口起点，向前加载时为窗口终点；为 -1 时按 pageBase 定位
+     * @param pageBase 向后加载时为窗口首页的页码，向前加载时为原窗口首页的页码
+     * @param backward 是否向前加载（加载完成后显示窗口最后一页）
+     */
+    private void loadWindow(long byteOffset, int pageBase, boolean backward) {
+        if (isWindowLoading) {
+            return;
+        }
+        isWindowLoading = true;
+        showLoading("正在加载...");
+
+        final Book streamingBook = book;
+        final long knownBytesPerPage = bytesPerPage;
+        executor.execute(() -> {
+            try {
+                MappedTextSource source = streamingBook.getTextSource();
+                long estimatedBytesPerPage = knownBytesPerPage > 0 ? knownBytesPerPage
+                        : Math.max(1, Math.round(source.estimateBytesPerChar() * charsPerPage));
+                long start = byteOffset >= 0 ? byteOffset : byteOffsetForPage(source, pageBase, estimatedBytesPerPage);
+                MappedTextSource.Window window = backward
+                        ? source.readWindowBefore(start, STREAMING_WINDOW_BYTES)
+                        : source.readWindowFrom(start, STREAMING_WINDOW_BYTES);
+                Log.d(TAG, String.format("加载窗口: %d-%d", window.getByteStart(), window.getByteEnd()));
+                // 保存进度时由窗口起点的字符位置加上页起点换算精确的字节位置
+                long windowCharStart = source.charOffsetAt(window.getByteStart());
+
+                streamingBook.setWindow(window);
+                streamingBook.paginate(pageBreaker, new Book.PaginationListener() {
                     @Override
                     public void onPaginationProgress(int currentPage, int totalPages) {
-                        runOnUiThread(() -> {
-                            showLoading(String.format("正在分页... %d/%d", currentPage, totalPages));
-                        });
+                        paginationProgress.publish(currentPage, totalPages);
                     }
 
                     @Override
-                    public void onPaginationComplete(List<String> pages) {
-                        runOnUiThread(() -> {
-                            hideLoading();
-                            if (pages != null && !pages.isEmpty()) {
-                                ReaderActivity.this.pages = pages;
-                                totalPages = pages.size();
-                                
-                                // 新增：加载保存的阅读进度
-                                progressManager.getProgress(book.getUri()).observe(ReaderActivity.this, progress -> {
-                                    if (progress != null) {
-                                        currentPage = progress.getCurrentPage();
-                                        Log.d(TAG, "加载保存的进度: 页码=" + currentPage);
-                                    } else {
-                                        currentPage = 0;
-                                    }
-                                    updatePageDisplay();
-                                });
-                                // 新增结束
-                                
-                                setupBookmarkObserver();
-                            } else {
-                                Toast.makeText(ReaderActivity.this, "分页失败：内容为空", Toast.LENGTH_SHORT).show();
-                                finish();
-                            }
-                        });
+                    public void onPaginationComplete(List<String> windowPages) {
+                        runOnUiThread(() -> onWindowReady(window, windowCharStart, windowPages, pageBase, backward,
+                                estimatedBytesPerPage));
                     }
 
                     @Override
                     public void onPaginationError(Exception e) {
-                        runOnUiThread(() -> {
-                            hideLoading();
-                            Toast.makeText(ReaderActivity.this, "分页失败：" + e.getMessage(), Toast.LENGTH_SHORT).show();
-                            finish();
-                        });
+                        runOnUiThread(() -> onWindowError(e));
                     }
                 });
-
-            } catch (Exception e) {
-                Log.e(TAG, "加载书籍失败", e);
-                runOnUiThread(() -> {
-                    Toast.makeText(this, "加载书籍失败: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                    finish();
-                });
+            } catch (IOException e) {
+                Log.e(TAG, "加载窗口失败", e);
+                runOnUiThread(() -> onWindowError(e));
             }
         });
     }
 
+    /**
+     * 估算页码对应的字节位置，有检查点时按字符位置换算，只解码最近检查点之后的内容
+     */
+    private long byteOffsetForPage(MappedTextSource source, int page, long estimatedBytesPerPage) throws IOException {
+        if (source.hasCheckpoints()) {
+            return source.byteOffsetAt((long) page * charsPerPage);
+        }
+        return page * estimatedBytesPerPage;
+    }
+
+    private void onWindowReady(MappedTextSource.Window window, long windowCharStart, List<String> windowPages,
+                               int pageBase, boolean backward, long estimatedBytesPerPage) {
+        isWindowLoading = false;
+        hideLoading();
+        if (windowPages == null || windowPages.isEmpty()) {
+            Toast.makeText(this, "书籍内容为空", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        bytesPerPage = estimatedBytesPerPage;
+        currentWindow = window;
+        currentWindowCharStart = windowCharStart;
+        pages = windowPages;
+        MappedTextSource source = book.getTextSource();
+        if (backward) {
+            windowPageBase = window.getByteStart() <= source.getDataStart()
+                    ? 0 : Math.max(0, pageBase - windowPages.size());
+            currentPage = windowPageBase + windowPages.size() - 1;
+        } else {
+            windowPageBase = pageBase;
+            currentPage = pageBase;
+        }
+
+        // 总页数按字节估算，到达文件末尾后改为精确值
+        boolean atEnd = window.getByteEnd() >= source.length();
+        int loadedPages = windowPageBase + windowPages.size();
+        if (atEnd) {
+            totalPages = loadedPages;
+        } else {
+            int estimated = source.getTotalChars() > 0
+                    ? (int) Math.ceil((double) source.getTotalChars() / charsPerPage)
+                    : (int) Math.ceil((double) source.length() / bytesPerPage);
+            totalPages = Math.max(estimated, loadedPages + 1);
+        }
+        updatePageDisplay();
+    }
+
+    private void onWindowError(Exception e) {
+        isWindowLoading = false;
+        hideLoading();
+        Toast.makeText(this, "加载失败：" + e.getMessage(), Toast.LENGTH_SHORT).show();
+    }
+
+    /**
+     * 流式模式下确认当前页位于已加载的窗口中，否则触发窗口加载
+     * @return 当前页是否可以直接显示
+     */
+    private boolean ensureWindowForCurrentPage() {
+        if (currentWindow == null || pages == null || isWindowLoading) {
+            return false;
+        }
+
+        MappedTextSource source = book.getTextSource();
+        int index = currentPage - windowPageBase;
+        if (index >= pages.size()) {
+            if (currentWindow.getByteEnd() >= source.length()) {
+                // 已经到达文件末尾
+                currentPage = windowPageBase + pages.size() - 1;
+                totalPages = currentPage + 1;
+                return true;
+            }
+            if (index == pages.size()) {
+                loadWindow(currentWindow.getByteEnd(), currentPage, false);
+            } else {
+                loadWindow(-1, currentPage, false);
+            }
+            return false;
+        }
+        if (index < 0) {
+            if (index == -1 && currentWindow.getByteStart() > source.getDataStart()) {
+                loadWindow(currentWindow.getByteStart(), windowPageBase, true);
+            } else if (index == -1) {
+                currentPage = windowPageBase;
+                return true;
+            } else {
+                loadWindow(-1, currentPage, false);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 流式模式下当前页起点的字节偏移
+     * 有检查点时按页起点的字符位置换算，只解码最近检查点之后的内容；否则按当前页在窗口中的位置估算
+     */
+    private long getCurrentByteOffset() {
+        if (book == null || !book.isStreaming() || currentWindow == null || pages == null || pages.isEmpty()) {
+            return 0;
+        }
+        int index = Math.max(0, Math.min(currentPage - windowPageBase, pages.size() - 1));
+        if (currentWindowCharStart >= 0 && pages instanceof PageIndex) {
+            try {
+                long byteOffset = book.getTextSource().byteOffsetAt(
+                        currentWindowCharStart + ((PageIndex) pages).getStart(index));
+                if (byteOffset >= 0) {
+                    return byteOffset;
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "换算字节位置失败，改为估算", e);
+            }
+        }
+        return currentWindow.getByteStart() + currentWindow.getByteLength() * index / pages.size();
+    }
+
     private void setupBookmarkObserver() {
         if (book != null) {
             bookmarkManager.getBookmarksForBook(book.getUri())
@@ -467,8 +1117,14 @@ public class ReaderActivity extends AppCompatActivity {
     }
 
     private void saveReadingProgress() {
+        if (isShardLoading) {
+            // 目标章节排版完成后再保存
+            return;
+        }
         if (book != null && book.getUri() != null) {
-            progressManager.saveProgress(book.getFileName(), book.getUri(), currentPage, totalPages)
+            long charOffset = getCurrentCharOffset();
+            progressManager.saveProgress(book.getFileName(), book.getUri(), currentPage, totalPages,
+                    getCurrentByteOffset(), charOffset)
                 .observe(this, success -> {
                     if (success) {
                         Log.d(TAG, String.format("保存阅读进度 - 书名: %s, 当前页: %d/%d",
@@ -611,7 +1267,7 @@ public class ReaderActivity extends AppCompatActivity {
     }
 
     private void showCatalogDialog() {
-        if (book == null || book.getChapters() == null) {
+        if (book == null || book.getChapters() == null || book.getChapters().isEmpty()) {
             Toast.makeText(this, "目录信息不可用", Toast.LENGTH_SHORT).show();
             return;
         }
@@ -623,27 +1279,56 @@ public class ReaderActivity extends AppCompatActivity {
         RecyclerView recyclerView = dialog.findViewById(R.id.catalogRecyclerView);
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
 
-        CatalogAdapter adapter = new CatalogAdapter(book.getChapters(), chapter -> {
-            // 计算章节对应的页码
-            int targetPage = calculatePageForChapter(chapter);
-            if (targetPage >= 0) {
-                currentPage = targetPage;
-                updatePageDisplay();
-                saveReadingProgress();
+        CatalogAdapter adapter = new CatalogAdapter(book.getChapters(), (index, chapter) -> {
+            if (book.isStreaming()) {
+                // 流式模式直接从章节的字节位置加载窗口
+                jumpToByteOffset(chapter.getByteOffset(), chapter.getCharOffset());
+                dialog.dismiss();
+                return;
+            }
+
+            if (isAnchorWindow) {
+                Toast.makeText(this, "正在分页，请稍候", Toast.LENGTH_SHORT).show();
+                return;
             }
+            // 章节首页即该章节分片的第一页
+            jumpToShardPosition(index, 0);
             dialog.dismiss();
         });
 
         recyclerView.setAdapter(adapter);
+        int chapterIndex = getCurrentChapterIndex();
+        if (chapterIndex >= 0) {
+            adapter.setCurrentChapter(chapterIndex);
+            if (chapterIndex > 0) {
+                recyclerView.scrollToPosition(chapterIndex);
+            }
+        }
         dialog.show();
     }
 
+    /**
+     * 流式模式下跳转到指定字节位置，页码优先按字符位置估算
+     * @param charOffset 对应的字符位置，未知时为 -1
+     */
+    private void jumpToByteOffset(long byteOffset, long charOffset) {
+        if (byteOffset < 0) {
+            return;
+        }
+        int pageBase = charOffset >= 0
+                ? (int) (charOffset / charsPerPage)
+                : (int) (byteOffset / Math.max(1, bytesPerPage));
+        currentWindow = null;
+        loadWindow(byteOffset, pageBase, false);
+    }
+
     private void showSearchDialog() {
         Dialog dialog = new Dialog(this);
         dialog.requestWindowFeature(Window.FEATURE_NO_TITLE);
         dialog.setContentView(R.layout.dialog_global_search);
 
         EditText searchInput = dialog.findViewById(R.id.searchInput);
+        CheckBox pinyinSearch = dialog.findViewById(R.id.pinyinSearch);
         TextView resultCount = dialog.findViewById(R.id.resultCount);
         RecyclerView searchResults = dialog.findViewById(R.id.searchResults);
         searchResults.setLayoutManager(new LinearLayoutManager(this));
@@ -651,6 +1336,29 @@ public class ReaderActivity extends AppCompatActivity {
         GlobalSearchAdapter adapter = new GlobalSearchAdapter(this);
         searchResults.setAdapter(adapter);
 
+        SearchEngine searchEngine = new SearchEngine(searchExecutor,
+                keyword -> createSearchSource(keyword, pinyinSearch.isChecked()),
+                new SearchEngine.Listener() {
+                    @Override
+                    public void onSearchStarted(String keyword) {
+                        adapter.clearResults();
+                        resultCount.setText("正在搜索...");
+                    }
+
+                    @Override
+                    public void onResults(String keyword, List<GlobalSearchAdapter.SearchResult> results) {
+                        adapter.addResults(results);
+                        resultCount.setText(String.format("已找到 %d 个结果...", adapter.getItemCount()));
+                    }
+
+                    @Override
+                    public void onSearchPaused(String keyword, int total, boolean hasMore) {
+                        resultCount.setText(hasMore
+                                ? String.format("找到 %d+ 个结果", total)
+                                : String.format("找到 %d 个结果", total));
+                    }
+                }, SEARCH_DEBOUNCE_MS, SEARCH_PAGE_SIZE, SEARCH_BATCH_SIZE);
+
         // 设置搜索监听
         searchInput.addTextChangedListener(new TextWatcher() {
             @Override
@@ -662,66 +1370,237 @@ public class ReaderActivity extends AppCompatActivity {
             @Override
             public void afterTextChanged(Editable s) {
                 String keyword = s.toString().trim();
-                if (keyword.length() > 0) {
-                    searchInBook(keyword, adapter, resultCount);
-                } else {
+                searchEngine.setQuery(keyword);
+                if (keyword.isEmpty()) {
                     adapter.clearResults();
                     resultCount.setText("");
                 }
             }
         });
 
-        // 设置搜索结果点击事件
+        // 切换拼音搜索后按新的方式重新搜索
+        pinyinSearch.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            if (isChecked && loadPinyinTable() == null) {
+                Toast.makeText(this, "拼音表加载失败", Toast.LENGTH_SHORT).show();
+                buttonView.setChecked(false);
+                return;
+            }
+            searchInput.setHint(isChecked ? "输入拼音或首字母，如 zgr" : "输入搜索关键词");
+            String keyword = searchInput.getText().toString().trim();
+            searchEngine.setQuery(keyword);
+        });
+
+        // 滚动到接近末尾时继续查找
+        searchResults.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+                if (layoutManager != null
+                        && layoutManager.findLastVisibleItemPosition() >= adapter.getItemCount() - SEARCH_BATCH_SIZE) {
+                    searchEngine.loadMore();
+                }
+            }
+        });
+
+        // 设置搜索结果点击事件，按命中的准确位置跳转
         adapter.setOnItemClickListener(result -> {
+            if (shards != null && result.getChapterIndex() >= 0) {
+                jumpToShardPosition(result.getChapterIndex(), result.getPosition());
+                dialog.dismiss();
+                return;
+            }
             currentPage = result.getPageNumber();
             updatePageDisplay();
             saveReadingProgress();
             dialog.dismiss();
         });
+        activeSearch = searchEngine;
+        dialog.setOnDismissListener(d -> {
+            searchEngine.cancel();
+            if (activeSearch == searchEngine) {
+                activeSearch = null;
+            }
+        });
 
         dialog.show();
     }
 
-    private void searchInBook(String keyword, GlobalSearchAdapter adapter, TextView resultCount) {
-        if (pages == null || pages.isEmpty()) return;
-
-        List<GlobalSearchAdapter.SearchResult> results = new ArrayList<>();
-        for (int i = 0; i < pages.size(); i++) {
-            String pageContent = pages.get(i);
-            if (pageContent.toLowerCase().contains(keyword.toLowerCase())) {
-                // 获取包含关键词的上下文
-                int start = Math.max(0, pageContent.toLowerCase().indexOf(keyword.toLowerCase()) - 20);
-                int end = Math.min(pageContent.length(), start + 60);
-                String snippet = pageContent.substring(start, end);
-                if (start > 0) snippet = "..." + snippet;
-                if (end < pageContent.length()) snippet = snippet + "...";
+    /**
+     * 为关键词创建搜索结果来源：分片模式下按章节查找，流式模式下只查找当前窗口
+     * @param pinyin 是否按拼音或首字母搜索
+     */
+    private SearchEngine.Source createSearchSource(String keyword, boolean pinyin) {
+        if (pinyin) {
+            PinyinMatcher pinyinMatcher = pinyinTable != null ? new PinyinMatcher(keyword, pinyinTable) : null;
+            if (pinyinMatcher == null || pinyinMatcher.isEmpty()) {
+                return (out, max) -> false;
+            }
+            if (shards != null) {
+                return new ChapterSearchSource(shards, book.getChapters(), pinyinIndex, pinyinMatcher, keyword,
+                        charsPerPage, MAX_SEARCH_HITS);
+            }
+            if (pages == null || pages.isEmpty()) {
+                return (out, max) -> false;
+            }
+            return new PageSearchSource(pages, windowPageBase, keyword, pinyinMatcher);
+        }
+        if (shards != null) {
+            return new ChapterSearchSource(shards, book.getChapters(), searchIndex, keyword,
+                    charsPerPage, MAX_SEARCH_HITS);
+        }
+        if (pages == null || pages.isEmpty()) {
+            return (out, max) -> false;
+        }
+        return new PageSearchSource(pages, windowPageBase, keyword);
+    }
 
-                results.add(new GlobalSearchAdapter.SearchResult(
-                    "第" + (i + 1) + "页",
-                    snippet,
-                    i
-                ));
+    /**
+     * 加载拼音表，只映射文件，不读取各字的读音
+     * @return 拼音表，加载失败时返回 null
+     */
+    private PinyinTable loadPinyinTable() {
+        if (pinyinTable == null) {
+            try {
+                pinyinTable = PinyinTable.getInstance(this);
+            } catch (IOException e) {
+                Log.e(TAG, "加载拼音表失败", e);
             }
         }
+        return pinyinTable;
+    }
 
-        adapter.setResults(results);
-        adapter.setKeyword(keyword);
-        resultCount.setText(String.format("找到 %d 个结果", results.size()));
+    /**
+     * 在后台加载书内检索索引和拼音首字母索引，并把文本写入书库全文检索表。
+     * 已经建立的直接加载；需要建立的共用同一遍逐章读取，每章只读取和排版一次分片正文
+     */
+    private void buildSearchIndexesAsync(Book book, FileProbe probe, String bookKey) {
+        final File indexFile = SearchIndex.indexFile(this, probe);
+        final File pinyinFile = PinyinIndex.indexFile(this, probe);
+        try {
+            indexExecutor.execute(() -> {
+                try {
+                    buildSearchIndexes(book, indexFile, pinyinFile, bookKey);
+                } catch (CancellationException e) {
+                    Log.d(TAG, "界面已关闭，停止建立检索索引");
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            Log.d(TAG, "界面已关闭，不再建立检索索引");
+        }
     }
 
-    private int calculatePageForChapter(Chapter chapter) {
-        if (pages == null || pages.isEmpty()) return -1;
+    private void buildSearchIndexes(Book book, File indexFile, File pinyinFile, String bookKey) {
+        List<Chapter> chapters = book.getChapters();
+        SearchIndex.Builder searchBuilder = null;
+        try {
+            SearchIndex index = SearchIndex.load(indexFile, bookKey);
+            if (index != null && index.getChapterCount() == chapters.size()) {
+                searchIndex = index;
+            } else {
+                searchBuilder = new SearchIndex.Builder();
+            }
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "加载检索索引失败，重新建立", e);
+            searchBuilder = new SearchIndex.Builder();
+        }
 
-        // 遍历所有页面，查找包含章节标题的页面
-        for (int i = 0; i < pages.size(); i++) {
-            if (pages.get(i).contains(chapter.getTitle())) {
-                return i;
+        PinyinIndex.Builder pinyinBuilder = null;
+        try {
+            PinyinIndex index = PinyinIndex.load(pinyinFile, bookKey);
+            if (index != null && index.getChapterCount() == chapters.size()) {
+                pinyinIndex = index;
+            } else {
+                pinyinBuilder = new PinyinIndex.Builder(PinyinTable.getInstance(this));
             }
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "加载拼音索引失败", e);
+            pinyinFile.delete();
+        }
+
+        LibrarySearchRepository.BookTextWriter libraryWriter = null;
+        try {
+            String bookName = book.getFileName() != null ? book.getFileName() : book.getTitle();
+            libraryWriter = LibrarySearchRepository.getInstance(this)
+                    .openWriter(book.getUri(), bookName, bookKey, chapters.size());
+        } catch (RuntimeException e) {
+            Log.w(TAG, "写入书库检索失败", e);
         }
-        return -1;
+
+        if (searchBuilder == null && pinyinBuilder == null && libraryWriter == null) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        // 只需写入书库检索时从未写完的章节开始
+        int first = searchBuilder == null && pinyinBuilder == null ? libraryWriter.getIndexedChapters() : 0;
+        for (int chapter = first; chapter < chapters.size(); chapter++) {
+            if (isDestroyed()) {
+                throw new CancellationException("界面已关闭");
+            }
+            // 读取失败的章节不能当作空章节写入索引，本次不再建立，下次打开时重试
+            String text = ShardedPaginator.readShardText(chapters.get(chapter));
+            if (text == null) {
+                Log.w(TAG, "读取章节失败，停止建立检索索引: " + chapters.get(chapter).getTitle());
+                return;
+            }
+            if (searchBuilder != null) {
+                searchBuilder.addChapter(text);
+            }
+            if (pinyinBuilder != null) {
+                pinyinBuilder.addChapter(text);
+            }
+            if (libraryWriter != null) {
+                try {
+                    libraryWriter.addChapter(chapter, chapters.get(chapter).getTitle(), text);
+                } catch (RuntimeException e) {
+                    // 已提交的章节保留，下次从失败的章节继续
+                    Log.w(TAG, "写入书库检索失败", e);
+                    libraryWriter = null;
+                }
+            }
+        }
+
+        if (searchBuilder != null) {
+            try {
+                SearchIndex index = searchBuilder.build();
+                index.save(indexFile, bookKey);
+                searchIndex = index;
+            } catch (IOException | RuntimeException e) {
+                Log.w(TAG, "保存检索索引失败", e);
+                indexFile.delete();
+            }
+        }
+        if (pinyinBuilder != null) {
+            try {
+                // 保存后重新映射，不在堆中保留
+                pinyinBuilder.build().save(pinyinFile, bookKey);
+                pinyinIndex = PinyinIndex.load(pinyinFile, bookKey);
+            } catch (IOException | RuntimeException e) {
+                Log.w(TAG, "保存拼音索引失败", e);
+                pinyinFile.delete();
+            }
+        }
+        Log.d(TAG, String.format("建立检索索引，耗时 %dms", System.currentTimeMillis() - startTime));
+    }
+
+    /**
+     * 当前页所属的章节
+     * @return 章节索引，无法确定时返回 -1
+     */
+    private int getCurrentChapterIndex() {
+        if (book.isStreaming()) {
+            return book.findChapterIndexByByteOffset(getCurrentByteOffset());
+        }
+        return shards != null ? currentChapter : -1;
     }
 
     private void updatePageDisplay() {
+        if (book != null && book.isStreaming() && !ensureWindowForCurrentPage()) {
+            return;
+        }
+        if (shards != null && !ensureShardForCurrentPage()) {
+            return;
+        }
+
         if (pages == null || pages.isEmpty()) {
             Log.e(TAG, "页面列表为空");
             Toast.makeText(this, "书籍内容为空", Toast.LENGTH_SHORT).show();
@@ -729,12 +1608,19 @@ public class ReaderActivity extends AppCompatActivity {
             return;
         }
 
-        if (currentPage < 0 || currentPage >= pages.size()) {
+        int index = currentPage - windowPageBase;
+        if (isAnchorWindow && (index < 0 || index >= pages.size())) {
+            // 长章节中锚点附近以外的页还没有排好
+            Toast.makeText(this, "正在分页，请稍候", Toast.LENGTH_SHORT).show();
+            index = Math.max(0, Math.min(index, pages.size() - 1));
+            currentPage = windowPageBase + index;
+        } else if (index < 0 || index >= pages.size()) {
             Log.e(TAG, "当前页码无效: " + currentPage);
-            currentPage = 0;
+            currentPage = windowPageBase;
+            index = 0;
         }
 
-        contentTextView.setText(pages.get(currentPage));
+        contentTextView.setText(pages.get(index));
         progressTextView.setText(String.format("%d/%d", 
             currentPage + 1, 
             totalPages));
@@ -760,10 +1646,24 @@ public class ReaderActivity extends AppCompatActivity {
         }
     }
 
+    @Override
+    protected void onStop() {
+        super.onStop();
+        savePageCacheAsync();
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        executor.shutdown();
+        if (activeSearch != null) {
+            activeSearch.cancel();
+        }
+        parseProgress.close();
+        paginationProgress.close();
+        // 立即停止分页，关闭书籍前同时取消书籍自身的分页任务
+        if (shards != null) {
+            shards.cancel();
+        }
         if (bookmarkDialog != null && bookmarkDialog.isShowing()) {
             bookmarkDialog.dismiss();
         }
@@ -773,9 +1673,39 @@ public class ReaderActivity extends AppCompatActivity {
         if (currentPage != lastSavedPage) {
             saveReadingProgress();
         }
+
+        // 保存进度时可能还要读取书籍文件，之后再关闭
+        if (book != null) {
+            book.cancelPagination();
+            closeBookAfterTasks(book);
+        }
+        executor.shutdown();
+        indexExecutor.shutdown();
+        searchExecutor.shutdown();
         
         sendExitRecord();
     }
+
+    /**
+     * 等后台任务结束后再关闭书籍文件，建立缓存和索引的任务在界面关闭后的下一章处停止，
+     * 提前关闭会使它们读到的章节内容失败。各后台线程池都只有一个线程，按提交顺序执行，
+     * 在每个线程池的最后排入一个空任务，全部执行完时由最后完成的线程关闭书籍，必须在线程池关闭前调用
+     */
+    private void closeBookAfterTasks(Book book) {
+        ExecutorService[] pools = {executor, indexExecutor, searchExecutor};
+        CompletableFuture<?>[] drained = new CompletableFuture<?>[pools.length];
+        for (int i = 0; i < pools.length; i++) {
+            drained[i] = CompletableFuture.runAsync(() -> { }, pools[i]);
+        }
+        CompletableFuture.allOf(drained).whenComplete((result, error) -> {
+            try {
+                book.close();
+            } catch (IOException e) {
+                Log.e(TAG, "关闭书籍文件失败", e);
+            }
+        });
+    }
+
     // 新增退出记录方法
     private void sendExitRecord() {
         if (book == null) return;
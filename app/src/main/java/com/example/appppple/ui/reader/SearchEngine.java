@@ -0,0 +1,230 @@
+package com.example.appppple.ui.reader;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 书内搜索的后台执行
+ * 输入停顿一段时间后才开始搜索，新的关键词立即取消仍在进行的搜索；结果在搜索线程中分批产生，
+ * 每批投递到主线程追加显示，找到前若干个后暂停，滚动到末尾时调用 loadMore 从暂停处继续。
+ * 除 Source.next 外的方法和回调都在主线程中执行
+ */
+class SearchEngine {
+    private static final String TAG = "SearchEngine";
+    // 结果不足一批时，距上次投递超过该时间也先投递已找到的结果
+    private static final long FLUSH_INTERVAL_MS = 100;
+
+    /**
+     * 可以分段继续的结果来源，在主线程中创建，在搜索线程中查找
+     */
+    interface Source {
+        /**
+         * 从上次停下的位置继续查找，结果追加到 out
+         * 可以在找到 max 个之前返回（例如扫完一个章节时），搜索线程借此及时响应取消
+         * @param max 本次最多追加的结果数
+         * @return 是否还有未查找的部分
+         */
+        boolean next(List<GlobalSearchAdapter.SearchResult> out, int max);
+    }
+
+    interface SourceFactory {
+        /**
+         * 为关键词创建结果来源，在主线程中调用，应只记录当前的书籍状态，不做耗时的查找
+         */
+        Source create(String keyword);
+    }
+
+    /**
+     * 搜索进度监听器，在主线程中回调，被取消的搜索不再回调
+     */
+    interface Listener {
+        /**
+         * 新关键词的搜索开始，此时应清空旧的结果
+         */
+        void onSearchStarted(String keyword);
+
+        /**
+         * 找到一批新的结果
+         */
+        void onResults(String keyword, List<GlobalSearchAdapter.SearchResult> results);
+
+        /**
+         * 搜索暂停或结束
+         * @param total 已找到的结果数
+         * @param hasMore 是否还可以继续查找
+         */
+        void onSearchPaused(String keyword, int total, boolean hasMore);
+    }
+
+    private final ExecutorService executor;
+    private final SourceFactory sourceFactory;
+    private final Listener listener;
+    private final long debounceMillis;
+    private final int pageSize;
+    private final int batchSize;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable startTask = this::start;
+
+    // 每次更换关键词或取消时加一，搜索线程发现代数变化后立即退出，主线程丢弃旧代数的结果
+    private volatile int generation;
+    private String pendingKeyword;
+    private Query query;
+
+    /**
+     * @param executor 搜索线程
+     * @param debounceMillis 输入停顿多久后开始搜索
+     * @param pageSize 每次找到多少个结果后暂停
+     * @param batchSize 每批投递的结果数
+     */
+    SearchEngine(ExecutorService executor, SourceFactory sourceFactory, Listener listener,
+                 long debounceMillis, int pageSize, int batchSize) {
+        this.executor = executor;
+        this.sourceFactory = sourceFactory;
+        this.listener = listener;
+        this.debounceMillis = debounceMillis;
+        this.pageSize = pageSize;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * 更换关键词，取消正在进行的搜索，输入停顿后开始新的搜索
+     * @param keyword 关键词，为空时只取消
+     */
+    void setQuery(String keyword) {
+        cancel();
+        if (keyword == null || keyword.isEmpty()) {
+            return;
+        }
+        pendingKeyword = keyword;
+        mainHandler.postDelayed(startTask, debounceMillis);
+    }
+
+    /**
+     * 搜索已暂停且还有未查找的部分时继续查找下一批
+     */
+    void loadMore() {
+        if (query != null && !query.running && query.hasMore) {
+            submit(query);
+        }
+    }
+
+    /**
+     * 取消等待中和正在进行的搜索
+     */
+    void cancel() {
+        mainHandler.removeCallbacks(startTask);
+        generation++;
+        pendingKeyword = null;
+        if (query != null && query.future != null) {
+            // 尚未开始的任务不再执行，正在执行的任务在下一次检查代数时退出
+            query.future.cancel(false);
+        }
+        query = null;
+    }
+
+    private void start() {
+        String keyword = pendingKeyword;
+        pendingKeyword = null;
+        if (keyword == null) {
+            return;
+        }
+        query = new Query(keyword, generation, sourceFactory.create(keyword));
+        listener.onSearchStarted(keyword);
+        submit(query);
+    }
+
+    private void submit(Query query) {
+        query.running = true;
+        try {
+            query.future = executor.submit(query::run);
+        } catch (RejectedExecutionException e) {
+            Log.d(TAG, "搜索线程已关闭");
+            query.running = false;
+            query.hasMore = false;
+        }
+    }
+
+    /**
+     * 一个关键词的搜索状态；source 和 total 只在搜索线程中访问，running、hasMore 和 future 只在主线程中访问
+     */
+    private class Query {
+        final String keyword;
+        final int generation;
+        final Source source;
+        int total;
+        boolean running;
+        boolean hasMore = true;
+        Future<?> future;
+
+        Query(String keyword, int generation, Source source) {
+            this.keyword = keyword;
+            this.generation = generation;
+            this.source = source;
+        }
+
+        boolean isCancelled() {
+            return generation != SearchEngine.this.generation;
+        }
+
+        void run() {
+            long startTime = SystemClock.uptimeMillis();
+            long lastFlush = startTime;
+            // 本次找到的结果数，找到 pageSize 个后暂停
+            int startTotal = total;
+            int found = 0;
+            boolean more = true;
+            List<GlobalSearchAdapter.SearchResult> batch = new ArrayList<>();
+            try {
+                while (more && found < pageSize) {
+                    if (isCancelled()) {
+                        return;
+                    }
+                    more = source.next(batch, Math.min(batchSize - batch.size(), pageSize - found));
+                    found = total - startTotal + batch.size();
+                    long now = SystemClock.uptimeMillis();
+                    if (batch.size() >= batchSize || (!batch.isEmpty() && now - lastFlush >= FLUSH_INTERVAL_MS)) {
+                        flush(batch);
+                        batch = new ArrayList<>();
+                        lastFlush = now;
+                    }
+                }
+            } catch (RuntimeException e) {
+                Log.e(TAG, "搜索失败: " + keyword, e);
+                more = false;
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+            }
+            Log.d(TAG, String.format("搜索 %s: 共 %d 个结果，本次耗时 %dms", keyword, total,
+                    SystemClock.uptimeMillis() - startTime));
+
+            final int count = total;
+            final boolean hasMore = more;
+            mainHandler.post(() -> {
+                if (isCancelled()) {
+                    return;
+                }
+                running = false;
+                this.hasMore = hasMore;
+                listener.onSearchPaused(keyword, count, hasMore);
+            });
+        }
+
+        private void flush(List<GlobalSearchAdapter.SearchResult> batch) {
+            total += batch.size();
+            mainHandler.post(() -> {
+                if (!isCancelled()) {
+                    listener.onResults(keyword, batch);
+                }
+            });
+        }
+    }
+}
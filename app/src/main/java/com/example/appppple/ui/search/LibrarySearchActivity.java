@@ -0,0 +1,199 @@
+package com.example.appppple.ui.search;
+
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.OperationCanceledException;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.util.Log;
+import android.widget.EditText;
+import android.widget.TextView;
+
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.appppple.R;
+import com.example.appppple.data.repository.LibrarySearchRepository;
+import com.example.appppple.ui.reader.ReaderActivity;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 书库全文搜索
+ * 在打开过的全部书籍中查找关键词，每本书列出第一处命中，点击后在该处打开书籍。
+ * 输入停顿后才开始查询，查询在后台执行，新的输入使之前的结果作废。
+ * 结果直接取自检索表，列表项显示时才在后台核对所在的书籍是否已经变化，已变化的书从结果中移除
+ */
+public class LibrarySearchActivity extends AppCompatActivity {
+    private static final String TAG = "LibrarySearchActivity";
+    private static final long SEARCH_DEBOUNCE_MS = 300; // 输入停顿多久后开始搜索
+    private static final int MAX_RESULTS = 500; // 最多列出的书籍数
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final ExecutorService checkExecutor = Executors.newSingleThreadExecutor();
+    // 已经提交核对的书籍，只在主线程中访问
+    private final Set<Uri> checkedBooks = new HashSet<>();
+    // 已经变化或无法读取的书籍，之后的结果中也不再列出
+    private final Set<Uri> staleBooks = new HashSet<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable searchTask = this::search;
+    private LibrarySearchRepository repository;
+    private LibrarySearchAdapter adapter;
+    private TextView resultCount;
+    private String pendingKeyword;
+    // 每次输入变化时加一，后台查询开始前和结果返回时比较，过期的查询直接丢弃
+    private volatile int generation;
+    // 正在进行的查询，输入变化时取消，查询在核对下一本书或读取下一页候选块前退出
+    private CancellationSignal searchSignal;
+
+    public static void start(Context context) {
+        context.startActivity(new Intent(context, LibrarySearchActivity.class));
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_library_search);
+        setTitle("全文搜索");
+        repository = LibrarySearchRepository.getInstance(this);
+
+        EditText searchInput = findViewById(R.id.searchInput);
+        resultCount = findViewById(R.id.resultCount);
+        RecyclerView searchResults = findViewById(R.id.searchResults);
+        searchResults.setLayoutManager(new LinearLayoutManager(this));
+        adapter = new LibrarySearchAdapter(this);
+        searchResults.setAdapter(adapter);
+
+        searchInput.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {}
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                onKeywordChanged(s.toString().trim());
+            }
+        });
+
+        // 在命中的准确位置打开书籍
+        adapter.setOnItemClickListener(hit -> ReaderActivity.start(this, hit.getBookUri(), hit.getBookName(),
+                hit.getChapterIndex(), hit.getPosition()));
+        adapter.setOnItemBoundListener(this::checkBook);
+    }
+
+    /**
+     * 在后台核对显示出来的结果所在的书籍，每本书只核对一次
+     */
+    private void checkBook(LibrarySearchRepository.Hit hit) {
+        final Uri bookUri = hit.getBookUri();
+        if (!checkedBooks.add(bookUri)) {
+            return;
+        }
+        try {
+            checkExecutor.execute(() -> {
+                if (repository.isCurrent(hit)) {
+                    return;
+                }
+                runOnUiThread(() -> {
+                    staleBooks.add(bookUri);
+                    adapter.removeBook(bookUri);
+                    if (pendingKeyword != null) {
+                        showResultCount();
+                    }
+                });
+            });
+        } catch (RejectedExecutionException e) {
+            Log.d(TAG, "界面已关闭，不再核对书籍");
+        }
+    }
+
+    private void showResultCount() {
+        resultCount.setText(String.format("%d 本书中找到", adapter.getItemCount()));
+    }
+
+    private void onKeywordChanged(String keyword) {
+        mainHandler.removeCallbacks(searchTask);
+        generation++;
+        cancelSearch();
+        if (keyword.isEmpty()) {
+            pendingKeyword = null;
+            adapter.clearResults();
+            resultCount.setText("");
+            return;
+        }
+        pendingKeyword = keyword;
+        mainHandler.postDelayed(searchTask, SEARCH_DEBOUNCE_MS);
+    }
+
+    private void cancelSearch() {
+        if (searchSignal != null) {
+            searchSignal.cancel();
+            searchSignal = null;
+        }
+    }
+
+    private void search() {
+        final String keyword = pendingKeyword;
+        final int searchGeneration = generation;
+        if (keyword == null) {
+            return;
+        }
+        final CancellationSignal signal = new CancellationSignal();
+        searchSignal = signal;
+        resultCount.setText("正在搜索...");
+        try {
+            executor.execute(() -> {
+                if (searchGeneration != generation) {
+                    return;
+                }
+                List<LibrarySearchRepository.Hit> hits;
+                try {
+                    hits = repository.search(keyword, MAX_RESULTS, signal);
+                } catch (OperationCanceledException e) {
+                    Log.d(TAG, "搜索已取消: " + keyword);
+                    return;
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "书库检索失败", e);
+                    runOnUiThread(() -> {
+                        if (searchGeneration == generation) {
+                            resultCount.setText("搜索失败：" + e.getMessage());
+                        }
+                    });
+                    return;
+                }
+                runOnUiThread(() -> {
+                    if (searchGeneration != generation) {
+                        return;
+                    }
+                    hits.removeIf(hit -> staleBooks.contains(hit.getBookUri()));
+                    adapter.setResults(hits, keyword);
+                    showResultCount();
+                });
+            });
+        } catch (RejectedExecutionException e) {
+            Log.d(TAG, "界面已关闭，不再搜索");
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        mainHandler.removeCallbacks(searchTask);
+        cancelSearch();
+        executor.shutdownNow();
+        checkExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.appppple.ui.search;
+
+import android.content.Context;
+import android.net.Uri;
+import android.text.Spannable;
+import android.text.SpannableString;
+import android.text.style.BackgroundColorSpan;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.appppple.R;
+import com.example.appppple.data.repository.LibrarySearchRepository;
+import com.example.appppple.domain.search.KeywordMatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 书库检索结果列表，每本书一项，显示书名、命中处的上下文和所在章节
+ * 列表项显示时通知 OnItemBoundListener，由其核对书籍是否已经变化
+ */
+public class LibrarySearchAdapter extends RecyclerView.Adapter<LibrarySearchAdapter.ViewHolder> {
+
+    private final Context context;
+    private List<LibrarySearchRepository.Hit> hits = new ArrayList<>();
+    private String keyword = "";
+    private KeywordMatcher matcher = new KeywordMatcher("");
+    private OnItemClickListener listener;
+    private OnItemBoundListener boundListener;
+
+    public LibrarySearchAdapter(Context context) {
+        this.context = context;
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_search_result, parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        LibrarySearchRepository.Hit hit = hits.get(position);
+        holder.bookName.setText(hit.getBookName());
+        holder.contentSnippet.setText(highlightKeyword(hit.getSnippet()));
+        holder.chapterTitle.setText(hit.getChapterTitle());
+
+        holder.itemView.setOnClickListener(v -> {
+            if (listener != null) {
+                listener.onItemClick(hit);
+            }
+        });
+        if (boundListener != null) {
+            boundListener.onItemBound(hit);
+        }
+    }
+
+    @Override
+    public int getItemCount() {
+        return hits.size();
+    }
+
+    public void setResults(List<LibrarySearchRepository.Hit> hits, String keyword) {
+        this.hits = hits;
+        this.keyword = keyword;
+        this.matcher = new KeywordMatcher(keyword);
+        notifyDataSetChanged();
+    }
+
+    public void clearResults() {
+        this.hits = new ArrayList<>();
+        notifyDataSetChanged();
+    }
+
+    /**
+     * 移除某本书的结果
+     */
+    public void removeBook(Uri bookUri) {
+        for (int i = 0; i < hits.size(); i++) {
+            if (hits.get(i).getBookUri().equals(bookUri)) {
+                hits.remove(i);
+                notifyItemRemoved(i);
+                return;
+            }
+        }
+    }
+
+    private SpannableString highlightKeyword(String content) {
+        SpannableString spannableString = new SpannableString(content);
+        int startIndex = matcher.indexOf(content, 0);
+        if (startIndex >= 0) {
+            spannableString.setSpan(new BackgroundColorSpan(context.getResources().getColor(R.color.highlight_color)),
+                    startIndex, startIndex + keyword.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+        }
+        return spannableString;
+    }
+
+    public void setOnItemClickListener(OnItemClickListener listener) {
+        this.listener = listener;
+    }
+
+    public void setOnItemBoundListener(OnItemBoundListener boundListener) {
+        this.boundListener = boundListener;
+    }
+
+    public interface OnItemClickListener {
+        void onItemClick(LibrarySearchRepository.Hit hit);
+    }
+
+    public interface OnItemBoundListener {
+        void onItemBound(LibrarySearchRepository.Hit hit);
+    }
+
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        TextView bookName;
+        TextView contentSnippet;
+        TextView chapterTitle;
+
+        ViewHolder(View itemView) {
+            super(itemView);
+            // 沿用书内搜索的列表项，标题行显示书名，末行显示章节
+            bookName = itemView.findViewById(R.id.chapterTitle);
+            contentSnippet = itemView.findViewById(R.id.contentSnippet);
+            chapterTitle = itemView.findViewById(R.id.pageNumber);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.appppple.util;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 全应用共用的计算线程池
+ * 并行解码、分页和关键词查找都在这里切分任务，线程数与 CPU 核数相同，几项工作同时进行时也不会超出核数
+ */
+public final class ComputePool {
+    private static final ForkJoinPool POOL =
+            new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors()));
+
+    private ComputePool() {
+    }
+
+    public static ForkJoinPool get() {
+        return POOL;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.appppple.util;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 按显示帧合并向主线程的投递
+ * 任意线程都可以请求执行，同一帧内的多次请求只在下一帧开始时于主线程执行一次，
+ * 后台任务频繁汇报时主线程的消息队列中最多只有一条待处理的消息
+ */
+public class FrameCoalescer {
+    private final Runnable task;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // 已请求但尚未执行
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    private volatile boolean cancelled = false;
+    private final Choreographer.FrameCallback frameCallback = frameTimeNanos -> runTask();
+    // Choreographer 按线程区分，只能在主线程中取得
+    private final Runnable postFrame = () -> Choreographer.getInstance().postFrameCallback(frameCallback);
+
+    /**
+     * @param task 在主线程中执行的任务，执行时应读取最新的状态
+     */
+    public FrameCoalescer(Runnable task) {
+        this.task = task;
+    }
+
+    /**
+     * 请求在下一帧执行任务，已有未执行的请求时直接返回
+     */
+    public void request() {
+        if (cancelled || !scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            postFrame.run();
+        } else {
+            mainHandler.post(postFrame);
+        }
+    }
+
+    /**
+     * 不再执行任务，之后的请求被忽略
+     */
+    public void cancel() {
+        cancelled = true;
+        mainHandler.removeCallbacks(postFrame);
+    }
+
+    private void runTask() {
+        // 先清除标记再执行，执行期间的新请求会在下一帧处理
+        scheduled.set(false);
+        if (!cancelled) {
+            task.run();
+        }
+    }
+}
@@ -1,19 +1,24 @@
 package com.example.appppple;
 
-import android.os.Handler;
-import android.os.Looper;
+import com.example.appppple.domain.model.Book;
+import com.example.appppple.domain.model.Chapter;
+import com.example.appppple.domain.model.PageIndex;
+import com.example.appppple.domain.pagination.ConcurrentPaginator;
+import com.example.appppple.domain.pagination.LinePageBreaker;
+import com.example.appppple.domain.pagination.PageBreaker;
 
-import com.example.appppple.ui.reader.ConcurrentPaginator;
-
-import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -22,15 +27,6 @@ import static org.junit.Assert.assertTrue;
 @RunWith(RobolectricTestRunner.class)
 @Config(sdk = 28)
 public class ConcurrentPaginatorTest {
-    private ConcurrentPaginator paginator;
-    private Handler mainHandler;
-    private CountDownLatch latch;
-
-    @Before
-    public void setup() {
-        mainHandler = new Handler(Looper.getMainLooper());
-        latch = new CountDownLatch(1);
-    }
 
     @Test
     public void testPagination() throws InterruptedException {
@@ -39,83 +35,200 @@ public class ConcurrentPaginatorTest {
                 "这是第二页的内容。\n这是第二页的第二行。\n\n" +
                 "这是第三页的内容。\n这是第三页的第二行。";
 
-        // 创建分页器
-        paginator = new ConcurrentPaginator(testText, 100, 50, 2, 0);
+        PageIndex expected = paginateSequentially(testText, 15);
+
+        // 创建分页器，块很小，保证分页跨越多个块
+        ConcurrentPaginator paginator = new ConcurrentPaginator(expected.getText(), 15, 20);
+        assertTrue(paginator.getBlockCount() > 1);
 
-        // 设置回调
+        List<String> blockPages = new ArrayList<>();
+        List<Integer> blockIndexes = new ArrayList<>();
+        AtomicReference<List<String>> allPages = new AtomicReference<>();
         paginator.setOnBlockReadyListener(new ConcurrentPaginator.OnBlockReadyListener() {
             @Override
-            public void onBlockReady(List<String> pages) {
+            public void onBlockReady(int blockIndex, List<String> pages) {
                 assertNotNull(pages);
-                assertTrue(pages.size() > 0);
-                latch.countDown();
+                blockIndexes.add(blockIndex);
+                blockPages.addAll(pages);
             }
 
             @Override
-            public void onAllBlocksReady(List<String> allPages) {
-                assertNotNull(allPages);
-                assertTrue(allPages.size() > 0);
+            public void onAllBlocksReady(List<String> pages) {
+                allPages.set(pages);
             }
         });
 
         // 开始分页
         paginator.startPaging();
 
-        // 等待分页完成
-        boolean completed = latch.await(5, TimeUnit.SECONDS);
-        assertTrue("分页未在预期时间内完成", completed);
+        // 等待分页完成，回调投递到主线程
+        assertTrue("分页未在预期时间内完成", awaitMainLooper(allPages));
+        assertTrue(allPages.get().size() > 0);
+        assertEquals(allPages.get(), blockPages);
+        for (int i = 0; i < blockIndexes.size(); i++) {
+            assertEquals(i, (int) blockIndexes.get(i));
+        }
+        assertEquals(paginator.getBlockCount(), blockIndexes.size());
+        assertEquals(expected, allPages.get());
     }
 
     @Test
     public void testEmptyText() throws InterruptedException {
-        paginator = new ConcurrentPaginator("", 100, 50, 2, 0);
+        ConcurrentPaginator paginator = new ConcurrentPaginator("", 100, 50);
+        assertEquals(0, paginator.getBlockCount());
+        assertEquals(0, paginator.paginate().size());
 
+        AtomicReference<List<String>> allPages = new AtomicReference<>();
         paginator.setOnBlockReadyListener(new ConcurrentPaginator.OnBlockReadyListener() {
             @Override
-            public void onBlockReady(List<String> pages) {
-                assertNotNull(pages);
-                assertEquals(0, pages.size());
-                latch.countDown();
+            public void onBlockReady(int blockIndex, List<String> pages) {
             }
 
             @Override
-            public void onAllBlocksReady(List<String> allPages) {
-                assertNotNull(allPages);
-                assertEquals(0, allPages.size());
+            public void onAllBlocksReady(List<String> pages) {
+                allPages.set(pages);
             }
         });
 
         paginator.startPaging();
-        boolean completed = latch.await(5, TimeUnit.SECONDS);
-        assertTrue("分页未在预期时间内完成", completed);
+        assertTrue("分页未在预期时间内完成", awaitMainLooper(allPages));
+        assertNotNull(allPages.get());
+        assertEquals(0, allPages.get().size());
     }
 
     @Test
     public void testLargeText() throws InterruptedException {
-        StringBuilder largeText = new StringBuilder();
-        for (int i = 0; i < 1000; i++) {
-            largeText.append("这是第").append(i).append("行测试文本。\n");
+        String text = buildText(20000);
+
+        // 每页字符数与块大小互质，块的接缝几乎都落在页的中间
+        for (int charsPerPage : new int[]{100, 333, 1000, 4099}) {
+            PageIndex expected = paginateSequentially(text, charsPerPage);
+            PageIndex pages = new ConcurrentPaginator(expected.getText(), charsPerPage, 8 * 1024).paginate();
+            assertPagesEqual(expected, pages);
         }
+    }
 
-        paginator = new ConcurrentPaginator(largeText.toString(), 100, 50, 4, 0);
+    @Test
+    public void testLineBreakerMatchesSequential() throws InterruptedException {
+        String text = buildText(20000);
+
+        for (int linesPerPage : new int[]{1, 7, 23}) {
+            LinePageBreaker breaker = new FixedWidthLineBreaker(17, linesPerPage);
+            PageIndex expected = paginateSequentially(text, breaker);
+            PageIndex pages = new ConcurrentPaginator(expected.getText(), breaker, 8 * 1024).paginate();
+            assertPagesEqual(expected, pages);
+        }
+    }
 
-        paginator.setOnBlockReadyListener(new ConcurrentPaginator.OnBlockReadyListener() {
+    private static void assertPagesEqual(PageIndex expected, PageIndex pages) {
+        assertEquals(expected.size(), pages.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals("第" + i + "页起点不同", expected.getStart(i), pages.getStart(i));
+            assertEquals("第" + i + "页终点不同", expected.getEnd(i), pages.getEnd(i));
+        }
+    }
+
+    /**
+     * 主线程回调在下一帧投递到暂停的主 Looper 中，轮询执行（含延时的帧回调）直到得到结果
+     */
+    private static boolean awaitMainLooper(AtomicReference<?> result) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+            if (result.get() != null) {
+                return true;
+            }
+            Thread.sleep(10);
+        }
+        return false;
+    }
+
+    private static PageIndex paginateSequentially(String text, int charsPerPage) throws InterruptedException {
+        return paginateSequentially(text, (content, start) -> Book.findPageEnd(content, start, charsPerPage));
+    }
+
+    /**
+     * 用 Book.paginate 顺序分页作为对照，并行分页针对同一份正文（Book.getContent() 的结果）
+     */
+    private static PageIndex paginateSequentially(String text, PageBreaker breaker) throws InterruptedException {
+        Book book = new Book();
+        book.setChapters(Collections.singletonList(new Chapter("", text)));
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<PageIndex> result = new AtomicReference<>();
+        book.paginate(breaker, new Book.PaginationListener() {
             @Override
-            public void onBlockReady(List<String> pages) {
-                assertNotNull(pages);
-                assertTrue(pages.size() > 0);
+            public void onPaginationProgress(int currentPage, int totalPages) {
+            }
+
+            @Override
+            public void onPaginationComplete(List<String> pages) {
+                result.set(book.getPages());
                 latch.countDown();
             }
 
             @Override
-            public void onAllBlocksReady(List<String> allPages) {
-                assertNotNull(allPages);
-                assertTrue(allPages.size() > 0);
+            public void onPaginationError(Exception e) {
+                latch.countDown();
             }
         });
+        assertTrue("顺序分页未在预期时间内完成", latch.await(30, TimeUnit.SECONDS));
+        assertNotNull(result.get());
+        return result.get();
+    }
 
-        paginator.startPaging();
-        boolean completed = latch.await(5, TimeUnit.SECONDS);
-        assertTrue("分页未在预期时间内完成", completed);
+    static String buildText(int lines) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            // 段落长短不一，并夹杂空行和空格
+            text.append("这是第").append(i).append("行测试文本");
+            for (int j = 0; j < i % 7; j++) {
+                text.append("，some words ").append(j);
+            }
+            text.append("。\n");
+            if (i % 13 == 0) {
+                text.append('\n');
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * 每行固定字符数的按行分页，用于在不依赖字体测量的情况下验证按行拼接
+     */
+    static class FixedWidthLineBreaker implements LinePageBreaker {
+        private final int mLineChars;
+        private final int mLinesPerPage;
+
+        FixedWidthLineBreaker(int lineChars, int linesPerPage) {
+            this.mLineChars = lineChars;
+            this.mLinesPerPage = linesPerPage;
+        }
+
+        @Override
+        public int getLinesPerPage() {
+            return mLinesPerPage;
+        }
+
+        @Override
+        public int findLineEnd(String text, int start) {
+            int paragraphEnd = text.indexOf('\n', start);
+            if (paragraphEnd < 0) {
+                paragraphEnd = text.length();
+            }
+            int end = Math.min(paragraphEnd, start + mLineChars);
+            if (end == paragraphEnd && end < text.length()) {
+                end++;
+            }
+            return end;
+        }
+
+        @Override
+        public int findPageEnd(String text, int start) {
+            int position = start;
+            for (int i = 0; i < mLinesPerPage && position < text.length(); i++) {
+                position = findLineEnd(text, position);
+            }
+            return position;
+        }
     }
-} 
\ No newline at end of file
+}
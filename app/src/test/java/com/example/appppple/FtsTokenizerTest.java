@@ -0,0 +1,52 @@
+package com.example.appppple;
+
+import com.example.appppple.domain.search.FtsTokenizer;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 书库全文检索分词：查询中的每个词都必须出现在含有关键词的文本块的检索列中
+ */
+public class FtsTokenizerTest {
+
+    @Test
+    public void testIndexTerms() {
+        assertEquals("天下 下大 大势 势 hello world", FtsTokenizer.indexTerms("天下大势，Hello WORLD hello"));
+        assertEquals("", FtsTokenizer.indexTerms("，。！ "));
+    }
+
+    @Test
+    public void testMatchQuery() {
+        assertEquals("天下 下大 大势", FtsTokenizer.matchQuery("天下大势"));
+        assertEquals("天*", FtsTokenizer.matchQuery("天"));
+        assertEquals("hello wor*", FtsTokenizer.matchQuery("Hello Wor"));
+        assertEquals("说* hello", FtsTokenizer.matchQuery("说hello "));
+        assertNull(FtsTokenizer.matchQuery("……"));
+    }
+
+    @Test
+    public void testQueryTermsCoveredByChunk() {
+        String chunk = "话说天下大势，分久必合，合久必分。He said HELLO world to everyone.";
+        Set<String> indexed = new HashSet<>(Arrays.asList(FtsTokenizer.indexTerms(chunk).split(" ")));
+        for (String keyword : new String[]{"天下大势", "分。", "合", "分", "said hello", "every", "话"}) {
+            for (String term : FtsTokenizer.matchQuery(keyword).split(" ")) {
+                boolean found;
+                if (term.endsWith("*")) {
+                    String prefix = term.substring(0, term.length() - 1);
+                    found = indexed.stream().anyMatch(t -> t.startsWith(prefix));
+                } else {
+                    found = indexed.contains(term);
+                }
+                assertTrue(keyword + ": " + term, found);
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.appppple;
+
+import com.example.appppple.domain.model.Book;
+import com.example.appppple.domain.model.PageIndex;
+import com.example.appppple.domain.pagination.IncrementalPaginator;
+import com.example.appppple.domain.pagination.PageBreaker;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class IncrementalPaginatorTest {
+
+    @Test
+    public void testCharBreakerIgnoresAnchor() {
+        String text = ConcurrentPaginatorTest.buildText(20000);
+        assertMatchesSequential(text, (content, start) -> Book.findPageEnd(content, start, 333));
+    }
+
+    @Test
+    public void testLineBreakerIgnoresAnchor() {
+        String text = ConcurrentPaginatorTest.buildText(20000);
+        assertMatchesSequential(text, new ConcurrentPaginatorTest.FixedWidthLineBreaker(17, 23));
+    }
+
+    /**
+     * 锚点落在不同位置时，完整结果都与从头顺序分页相同，试排的页包含锚点
+     */
+    private static void assertMatchesSequential(String text, PageBreaker breaker) {
+        PageIndex expected = paginateSequentially(text, breaker);
+        for (int anchor : new int[]{0, 1, text.length() / 3 + 7, text.length() / 2, text.length() - 5}) {
+            AtomicReference<PageIndex> preview = new AtomicReference<>();
+            AtomicReference<Integer> previewAnchor = new AtomicReference<>();
+            PageIndex pages = new IncrementalPaginator(text, breaker, anchor).run(
+                    (windowPages, anchorIndex, estimatedAnchorPage, estimatedTotalPages) -> {
+                        preview.set(windowPages);
+                        previewAnchor.set(anchorIndex);
+                    });
+
+            assertEquals("锚点 " + anchor, expected.size(), pages.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals("锚点 " + anchor + " 第" + i + "页起点不同", expected.getStart(i), pages.getStart(i));
+                assertEquals("锚点 " + anchor + " 第" + i + "页终点不同", expected.getEnd(i), pages.getEnd(i));
+            }
+            assertNotNull(preview.get());
+            int anchorPage = previewAnchor.get();
+            assertTrue(preview.get().getStart(anchorPage) <= anchor);
+            assertTrue(anchor < preview.get().getEnd(anchorPage) || anchorPage == preview.get().size() - 1);
+        }
+    }
+
+    private static PageIndex paginateSequentially(String text, PageBreaker breaker) {
+        PageIndex.Builder builder = new PageIndex.Builder(text, 16);
+        int start = 0;
+        while (start < text.length()) {
+            int end = Math.max(start + 1, breaker.findPageEnd(text, start));
+            builder.add(start, end);
+            start = end;
+        }
+        return builder.build();
+    }
+}
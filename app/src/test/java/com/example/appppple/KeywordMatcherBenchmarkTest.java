@@ -0,0 +1,170 @@
+package com.example.appppple;
+
+import com.example.appppple.domain.search.KeywordMatcher;
+import com.example.appppple.domain.search.SearchIndex;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 不区分大小写的关键词匹配与逐页 toLowerCase().contains() 的对比基准
+ * 不使用 Robolectric，避免字节码插桩影响计时；断言两者命中一致。
+ * 计时部分默认忽略，需要时手动运行，断言逐页匹配不慢于 toLowerCase().contains()，失败信息中带有耗时
+ */
+public class KeywordMatcherBenchmarkTest {
+    private static final int CORPUS_CHARS = 25 * 1024 * 1024; // 约 50MB（UTF-16）
+    private static final int PAGE_CHARS = 1000;
+    private static final int MEASURE_ROUNDS = 3;
+    private static final String[] KEYWORDS = {"Hello World", "天下大势", "分久必合"};
+
+    @Test
+    public void testMatchesNaiveScan() {
+        String text = buildCorpus(3 * 1024 * 1024);
+        String[] keywords = {"Hello", "WORLD", "天下", "大势所趋", "aa", "o w", "不存在的关键词", "x"};
+        for (String keyword : keywords) {
+            KeywordMatcher matcher = new KeywordMatcher(keyword);
+            // 超过并行阈值，分段边界上的命中也要找到
+            assertArrayEquals(keyword, naiveFindAll(text, keyword), matcher.findAll(text, Integer.MAX_VALUE));
+        }
+
+        KeywordMatcher matcher = new KeywordMatcher("hello");
+        int[] all = matcher.findAll(text, Integer.MAX_VALUE);
+        int[] first = matcher.findAll(text, 10);
+        assertEquals(10, first.length);
+        for (int i = 0; i < first.length; i++) {
+            assertEquals(all[i], first[i]);
+        }
+    }
+
+    @Test
+    public void testRanges() {
+        KeywordMatcher matcher = new KeywordMatcher("AbA");
+        String text = "xabababaX";
+        assertEquals(1, matcher.indexOf(text, 0));
+        assertEquals(3, matcher.indexOf(text, 2));
+        // 命中必须完整位于区间内
+        assertEquals(-1, matcher.indexOf(text, 5, 7));
+        assertEquals(5, matcher.indexOf(text.toCharArray(), 4, 8));
+        assertArrayEquals(new int[]{1, 3, 5}, matcher.findAll(text, 100));
+        assertEquals(-1, new KeywordMatcher("").indexOf(text, 0));
+    }
+
+    @Test
+    public void testMatchesLowerCaseContains() {
+        List<String> pages = buildPages(buildCorpus(1024 * 1024));
+        for (String keyword : KEYWORDS) {
+            KeywordMatcher matcher = new KeywordMatcher(keyword);
+            // 原来的做法：逐页转为小写后查找，记录含有关键词的页
+            int lowerCasePages = 0;
+            int matcherPages = 0;
+            for (String page : pages) {
+                if (page.toLowerCase().contains(keyword.toLowerCase())) {
+                    lowerCasePages++;
+                }
+                if (matcher.indexOf(page, 0) >= 0) {
+                    matcherPages++;
+                }
+            }
+            assertEquals(keyword, lowerCasePages, matcherPages);
+            assertTrue(keyword, matcherPages > 0);
+        }
+    }
+
+    @Ignore("基准测试，需要时手动运行")
+    @Test
+    public void benchmarkLargeCorpus() {
+        String text = buildCorpus(CORPUS_CHARS);
+        List<String> pages = buildPages(text);
+        for (String keyword : KEYWORDS) {
+            KeywordMatcher matcher = new KeywordMatcher(keyword);
+            long lowerCaseTime = measure(() -> {
+                int count = 0;
+                for (String page : pages) {
+                    if (page.toLowerCase().contains(keyword.toLowerCase())) {
+                        count++;
+                    }
+                }
+                return count;
+            });
+            long matcherTime = measure(() -> {
+                int count = 0;
+                for (String page : pages) {
+                    if (matcher.indexOf(page, 0) >= 0) {
+                        count++;
+                    }
+                }
+                return count;
+            });
+            long parallelTime = measure(() -> matcher.findAll(text, Integer.MAX_VALUE).length);
+            assertTrue(String.format("查找 \"%s\" (%d 字符, %d 页): toLowerCase().contains() %dms, "
+                            + "逐页匹配 %dms, 全文并行查找全部命中 %dms",
+                    keyword, text.length(), pages.size(), lowerCaseTime, matcherTime, parallelTime),
+                    matcherTime <= lowerCaseTime);
+        }
+    }
+
+    private static List<String> buildPages(String text) {
+        List<String> pages = new ArrayList<>(text.length() / PAGE_CHARS + 1);
+        for (int start = 0; start < text.length(); start += PAGE_CHARS) {
+            pages.add(text.substring(start, Math.min(text.length(), start + PAGE_CHARS)));
+        }
+        return pages;
+    }
+
+    private interface Scan {
+        int run();
+    }
+
+    private static long measure(Scan scan) {
+        // 预热
+        scan.run();
+        long startTime = System.nanoTime();
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            scan.run();
+        }
+        return (System.nanoTime() - startTime) / MEASURE_ROUNDS / 1_000_000;
+    }
+
+    private static int[] naiveFindAll(String text, String keyword) {
+        String folded = SearchIndex.fold(keyword);
+        List<Integer> hits = new ArrayList<>();
+        int index = SearchIndex.indexOf(text, folded, 0);
+        while (index >= 0) {
+            hits.add(index);
+            index = SearchIndex.indexOf(text, folded, index + 1);
+        }
+        int[] result = new int[hits.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = hits.get(i);
+        }
+        return result;
+    }
+
+    private static String buildCorpus(int chars) {
+        String[] sentences = {
+                "话说天下大势，分久必合，合久必分。",
+                "天色渐渐暗了下来，街上的行人越来越少。",
+                "“你回来了？”她从厨房里探出头，手里还拿着一把葱。",
+                "He said HELLO world to everyone, aaa. ",
+                "窗外的雨下得更大了，远处传来几声沉闷的雷鸣……",
+        };
+        StringBuilder text = new StringBuilder(chars + 64);
+        int i = 0;
+        while (text.length() < chars) {
+            text.append(sentences[i % sentences.length]);
+            if (i % 7 == 0) {
+                text.append('\n');
+            }
+            i++;
+        }
+        text.setLength(chars);
+        return text.toString();
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.appppple;
+
+import android.text.TextPaint;
+
+import com.example.appppple.domain.pagination.PaginationManager;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 字形宽度缓存的分页基准
+ * 使用 Robolectric 的原生图形模式得到真实的字体测量结果，断言开启缓存前后分页结果一致；
+ * 计时部分默认忽略，需要时手动运行，断言缓存不慢于逐行测量，失败信息中带有耗时
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class PaginationBenchmarkTest {
+    private static final int ROUNDS = 5;
+
+    @Test
+    public void testCacheMatchesPaint() {
+        String text = buildNovel(3000);
+        List<Integer> cachedEnds = paginate(createManager(true), text);
+        List<Integer> uncachedEnds = paginate(createManager(false), text);
+        assertTrue(cachedEnds.size() > 1);
+        assertEquals(uncachedEnds, cachedEnds);
+    }
+
+    @Ignore("基准测试，需要时手动运行")
+    @Test
+    public void benchmarkChineseNovel() {
+        String text = buildNovel(3000);
+        long uncachedTime = measure(createManager(false), text);
+        long cachedTime = measure(createManager(true), text);
+        assertTrue(String.format("分页 %d 字符: Paint 逐行测量 %dms, 字形宽度缓存 %dms",
+                text.length(), uncachedTime, cachedTime), cachedTime <= uncachedTime);
+    }
+
+    private static PaginationManager createManager(boolean advanceCache) {
+        TextPaint paint = new TextPaint(TextPaint.ANTI_ALIAS_FLAG);
+        paint.setTextSize(48);
+        PaginationManager manager = new PaginationManager(paint, 1000, 1800, 24, 1.0f);
+        manager.setAdvanceCacheEnabled(advanceCache);
+        return manager;
+    }
+
+    private static long measure(PaginationManager manager, String text) {
+        // 预热
+        paginate(manager, text);
+        long startTime = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            paginate(manager, text);
+        }
+        return (System.nanoTime() - startTime) / ROUNDS / 1_000_000;
+    }
+
+    private static List<Integer> paginate(PaginationManager manager, String text) {
+        List<Integer> ends = new ArrayList<>();
+        int start = 0;
+        while (start < text.length()) {
+            start = manager.findPageEnd(text, start);
+            ends.add(start);
+        }
+        return ends;
+    }
+
+    private static String buildNovel(int paragraphs) {
+        String[] sentences = {
+                "天色渐渐暗了下来，街上的行人越来越少。",
+                "他推开门，屋里一片寂静，只有墙上的挂钟还在滴答作响。",
+                "“你回来了？”她从厨房里探出头，手里还拿着一把葱。",
+                "窗外的雨下得更大了，远处传来几声沉闷的雷鸣……",
+                "这一夜，谁也没有睡着。",
+        };
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < paragraphs; i++) {
+            if (i % 200 == 0) {
+                text.append("第").append(i / 200 + 1).append("章　风起\n\n");
+            }
+            text.append("　　");
+            for (int j = 0; j <= i % 4; j++) {
+                text.append(sentences[(i + j) % sentences.length]);
+            }
+            text.append('\n');
+        }
+        return text.toString();
+    }
+}
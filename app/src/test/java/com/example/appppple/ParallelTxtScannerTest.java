@@ -0,0 +1,91 @@
+package com.example.appppple;
+
+import com.example.appppple.domain.parser.ParallelTxtScanner;
+import com.example.appppple.domain.parser.TxtLineScanner;
+import com.example.appppple.domain.parser.TxtToc;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class ParallelTxtScannerTest {
+
+    @Test
+    public void testGbk() throws IOException {
+        assertParallelEqualsSequential("GBK");
+    }
+
+    @Test
+    public void testUtf8() throws IOException {
+        assertParallelEqualsSequential("UTF-8");
+    }
+
+    @Test
+    public void testBig5() throws IOException {
+        assertParallelEqualsSequential("Big5");
+    }
+
+    private void assertParallelEqualsSequential(String encoding) throws IOException {
+        Charset charset = Charset.forName(encoding);
+        byte[] bytes = buildSample().getBytes(charset);
+
+        // 顺序解码
+        StringBuilder sequentialText = new StringBuilder();
+        List<Long> sequentialTitles = new ArrayList<>();
+        TxtLineScanner scanner = new TxtLineScanner(charset);
+        scanner.setTextOutput(sequentialText);
+        long sequentialChars = scanner.scan(new ByteArrayInputStream(bytes), (line, byteOffset, charOffset) -> {
+            if (line.toString().startsWith("第")) {
+                sequentialTitles.add(charOffset);
+            }
+        });
+
+        // 并行解码
+        ParallelTxtScanner.Result result = new ParallelTxtScanner(charset)
+                .scan(ByteBuffer.wrap(bytes), 0, bytes.length, true, null);
+
+        assertEquals(new String(bytes, charset), sequentialText.toString());
+        assertEquals(sequentialText.toString(), result.getText());
+
+        TxtToc toc = result.getToc();
+        assertEquals(sequentialChars, toc.getTotalChars());
+        assertEquals(sequentialTitles.size(), toc.size());
+        for (int i = 0; i < toc.size(); i++) {
+            long charOffset = toc.getCharOffset(i);
+            assertEquals((long) sequentialTitles.get(i), charOffset);
+            assertTrue(result.getText().startsWith(toc.getTitle(i), (int) charOffset));
+            // 字节位置解码后同样以标题开头
+            String fromBytes = new String(bytes, (int) toc.getByteOffset(i), 64, charset);
+            assertTrue(fromBytes.startsWith(toc.getTitle(i)));
+        }
+    }
+
+    /**
+     * 构造数 MB 的样本，保证会被切分为多个分段
+     */
+    private String buildSample() {
+        StringBuilder sample = new StringBuilder();
+        int chapter = 1;
+        while (sample.length() < 2 * 1024 * 1024) {
+            sample.append("第").append(chapter++).append("章 測試章節\n");
+            for (int i = 0; i < 40; i++) {
+                sample.append("這是一段用於測試的內容，包含標點符號。Mixed ASCII text 123.\r\n");
+            }
+            sample.append("\n");
+        }
+        return sample.toString();
+    }
+}
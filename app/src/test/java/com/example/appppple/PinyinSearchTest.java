@@ -0,0 +1,133 @@
+package com.example.appppple;
+
+import android.icu.text.Transliterator;
+
+import com.example.appppple.domain.search.PinyinIndex;
+import com.example.appppple.domain.search.PinyinMatcher;
+import com.example.appppple.domain.search.PinyinTable;
+import com.example.appppple.domain.search.SearchIndex;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class PinyinSearchTest {
+    private static final File TABLE_FILE = new File("src/main/assets/pinyin.dat");
+
+    @Test
+    public void testTableMatchesIcu() throws IOException {
+        // 拼音表由 ICU 的 Han-Latin 转写生成，去掉声调，ü 写作 v
+        PinyinTable table = loadTable();
+        Transliterator han = Transliterator.getInstance("Han-Latin");
+        Transliterator ascii = Transliterator.getInstance("Latin-ASCII");
+        for (char c = 0x4E00; c <= 0x9FFF; c++) {
+            String expected = han.transliterate(String.valueOf(c));
+            expected = ascii.transliterate(expected.replace('ü', 'v')).toLowerCase(Locale.ROOT).trim();
+            if (!expected.matches("[a-z]+")) {
+                expected = null;
+            }
+            assertEquals(Integer.toHexString(c), expected, table.getPinyin(c));
+        }
+        assertNull(table.getPinyin('a'));
+        assertEquals(0, table.getInitial('，'));
+    }
+
+    @Test
+    public void testMatcher() throws IOException {
+        PinyinTable table = loadTable();
+        String text = "我是主角人，他是配角。";
+        for (String query : new String[]{"zjr", "ZJR", "zhujr", "zhujiaoren", "zhu jiao r", "zhu'j'ren", "zhujiaore"}) {
+            PinyinMatcher matcher = new PinyinMatcher(query, table);
+            assertEquals(query, 2, matcher.indexOf(text, 0));
+            assertEquals(query, 3, matcher.matchAt(text, 2));
+        }
+        PinyinMatcher matcher = new PinyinMatcher("jiao", table);
+        assertArrayEquals(new int[]{3, 9}, matcher.findAll(text, 100));
+        assertEquals(-1, new PinyinMatcher("zjs", table).indexOf(text, 0));
+        // 不是拼音或无法切分的查询不匹配任何文本
+        assertTrue(new PinyinMatcher("主角", table).isEmpty());
+        assertTrue(new PinyinMatcher("iu", table).isEmpty());
+        assertTrue(new PinyinMatcher("' ", table).isEmpty());
+    }
+
+    @Test
+    public void testIndexMatchesScan() throws IOException {
+        PinyinTable table = loadTable();
+        List<String> chapters = buildChapters();
+        PinyinIndex index = PinyinIndex.build(chapters::get, chapters.size(), table);
+        File file = File.createTempFile("pinyin", ".pyx");
+        try {
+            index.save(file, "book");
+            assertNull(PinyinIndex.load(file, "other"));
+            PinyinIndex loaded = PinyinIndex.load(file, "book");
+            assertNotNull(loaded);
+            for (String query : new String[]{"tx", "txds", "tianxia", "tianxds", "fjbh", "hjbf", "d", "xiang", "zgr"}) {
+                PinyinMatcher matcher = new PinyinMatcher(query, table);
+                List<SearchIndex.Hit> expected = scan(chapters, matcher);
+                assertHitsEqual(query, expected, index.search(matcher, chapters::get, Integer.MAX_VALUE));
+                assertHitsEqual(query, expected, loaded.search(matcher, chapters::get, Integer.MAX_VALUE));
+                if (expected.size() > 3) {
+                    assertHitsEqual(query, expected.subList(0, 3), loaded.search(matcher, chapters::get, 3));
+                }
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static PinyinTable loadTable() throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(TABLE_FILE, "r")) {
+            FileChannel channel = file.getChannel();
+            return PinyinTable.load(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    private static List<SearchIndex.Hit> scan(List<String> chapters, PinyinMatcher matcher) {
+        List<SearchIndex.Hit> hits = new ArrayList<>();
+        for (int chapter = 0; chapter < chapters.size(); chapter++) {
+            for (int position : matcher.findAll(chapters.get(chapter), Integer.MAX_VALUE)) {
+                hits.add(new SearchIndex.Hit(chapter, position));
+            }
+        }
+        return hits;
+    }
+
+    private static void assertHitsEqual(String query, List<SearchIndex.Hit> expected, List<SearchIndex.Hit> actual) {
+        assertEquals(query, expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(query, expected.get(i).getChapter(), actual.get(i).getChapter());
+            assertEquals(query, expected.get(i).getPosition(), actual.get(i).getPosition());
+        }
+    }
+
+    private static List<String> buildChapters() {
+        List<String> chapters = new ArrayList<>();
+        chapters.add("第一回\n\n话说天下大势，分久必合，合久必分。");
+        chapters.add("");
+        chapters.add("第二回\n\n天下太平，想象中的故乡。Hello 天下！");
+        for (int i = 0; i < 20; i++) {
+            chapters.add("第" + (i + 3) + "回\n\n主角人走在大街上，想起天下大势，合久必分。");
+        }
+        // 首字母跨越章节的位置不算命中
+        chapters.add("天");
+        chapters.add("下大势");
+        return chapters;
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.appppple;
+
+import com.example.appppple.domain.search.SearchIndex;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class SearchIndexTest {
+
+    @Test
+    public void testMatchesScan() throws IOException {
+        List<String> chapters = buildChapters();
+        SearchIndex index = SearchIndex.build(chapters::get, chapters.size());
+
+        // 纯中文、西文词的任意部分、混合及跨越标点的查询，结果应与逐字扫描一致
+        String[] queries = {"天下", "天下大势", "合久必分", "Hello", "hel", "ell", "lo", "LLO W", "WORLD 3",
+                "第7回", "o 2，oth", "ld 1，othe"};
+        for (String query : queries) {
+            List<SearchIndex.Hit> hits = index.search(query, chapters::get, Integer.MAX_VALUE);
+            assertNotNull(query, hits);
+            assertHitsEqual(query, scan(chapters, query), hits);
+        }
+    }
+
+    @Test
+    public void testUnindexableQuery() throws IOException {
+        List<String> chapters = buildChapters();
+        SearchIndex index = SearchIndex.build(chapters::get, chapters.size());
+        // 单个汉字或被标点隔开的汉字没有二元组，交给调用方扫描
+        assertNull(index.search("天", chapters::get, 100));
+        assertNull(index.search("势，分", chapters::get, 100));
+        assertEquals(0, index.search("不存在的词", chapters::get, 100).size());
+    }
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        List<String> chapters = buildChapters();
+        SearchIndex index = SearchIndex.build(chapters::get, chapters.size());
+        File file = File.createTempFile("search", ".idx");
+        try {
+            index.save(file, "book");
+            assertNull(SearchIndex.load(file, "other"));
+            SearchIndex loaded = SearchIndex.load(file, "book");
+            assertNotNull(loaded);
+            for (String query : new String[]{"天下大势", "hello", "world 3"}) {
+                assertHitsEqual(query, index.search(query, chapters::get, 1000),
+                        loaded.search(query, chapters::get, 1000));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static void assertHitsEqual(String query, List<SearchIndex.Hit> expected, List<SearchIndex.Hit> hits) {
+        assertEquals(query, expected.size(), hits.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(query, expected.get(i).getChapter(), hits.get(i).getChapter());
+            assertEquals(query, expected.get(i).getPosition(), hits.get(i).getPosition());
+        }
+    }
+
+    /**
+     * 逐字扫描作为对照
+     */
+    private static List<SearchIndex.Hit> scan(List<String> chapters, String query) {
+        String folded = SearchIndex.fold(query);
+        List<SearchIndex.Hit> hits = new ArrayList<>();
+        for (int i = 0; i < chapters.size(); i++) {
+            String text = chapters.get(i);
+            int index = SearchIndex.indexOf(text, folded, 0);
+            while (index >= 0) {
+                hits.add(new SearchIndex.Hit(i, index));
+                index = SearchIndex.indexOf(text, folded, index + 1);
+            }
+        }
+        return hits;
+    }
+
+    private static List<String> buildChapters() {
+        List<String> chapters = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            StringBuilder text = new StringBuilder("第" + i + "回\n\n");
+            for (int j = 0; j < 50; j++) {
+                text.append("话说天下大势，分久必合，合久必分。");
+                if ((i + j) % 5 == 0) {
+                    text.append("Hello World ").append(j % 4).append("，othello helium。");
+                }
+                text.append('\n');
+            }
+            // 空章节
+            chapters.add(i == 10 ? "" : text.toString());
+        }
+        return chapters;
+    }
+}
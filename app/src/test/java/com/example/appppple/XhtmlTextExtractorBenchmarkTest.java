@@ -0,0 +1,126 @@
+package com.example.appppple;
+
+import com.example.appppple.domain.parser.XhtmlTextExtractor;
+
+import org.jsoup.Jsoup;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 流式提取器与 Jsoup 的对比基准
+ * 不使用 Robolectric，避免字节码插桩影响计时；断言两者输出一致。
+ * 计时部分默认忽略，需要时手动运行，断言流式提取不慢于 Jsoup，失败信息中带有吞吐量和分配量
+ */
+public class XhtmlTextExtractorBenchmarkTest {
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURE_ROUNDS = 10;
+
+    private interface Extraction {
+        String run(byte[] xhtml) throws Exception;
+    }
+
+    @Test
+    public void testEntitiesAndBreaks() throws Exception {
+        String xhtml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<html xmlns=\"http://www.w3.org/1999/xhtml\"><head><title>标题</title>"
+                + "<style>p { margin: 0 }</style></head><body>"
+                + "<h1>第一章</h1><p>他说&mdash;&ldquo;你好&rdquo;&amp;再见</p>"
+                + "<p>  多个   空白\n折叠 </p><div><p>嵌套<br/>换行</p></div></body></html>";
+
+        String text = new XhtmlTextExtractor().extract(
+                new ByteArrayInputStream(xhtml.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals("第一章\n他说—“你好”&再见\n多个 空白 折叠\n嵌套\n换行", text);
+    }
+
+    @Test
+    public void testGbkDeclaration() throws Exception {
+        String xhtml = "<?xml version=\"1.0\" encoding=\"GBK\"?><html><body><p>中文内容</p></body></html>";
+
+        String text = new XhtmlTextExtractor().extract(new ByteArrayInputStream(xhtml.getBytes("GBK")));
+
+        assertEquals("中文内容", text);
+    }
+
+    @Test
+    public void testMatchesJsoup() throws Exception {
+        byte[] xhtml = buildChapter(2000).getBytes(StandardCharsets.UTF_8);
+
+        String streamed = new XhtmlTextExtractor().extract(new ByteArrayInputStream(xhtml));
+        String jsoup = Jsoup.parse(new ByteArrayInputStream(xhtml), null, "").body().text();
+        // Jsoup 的 text() 把段落合并为一行，比较时统一空白；流式提取器不输出 head 中的标题
+        assertEquals(normalize(jsoup), normalize(streamed));
+        assertTrue(streamed.indexOf('\n') > 0);
+    }
+
+    @Ignore("基准测试，需要时手动运行")
+    @Test
+    public void benchmarkLargeChapter() throws Exception {
+        byte[] xhtml = buildChapter(20000).getBytes(StandardCharsets.UTF_8);
+        XhtmlTextExtractor extractor = new XhtmlTextExtractor();
+
+        double[] streamed = measure(xhtml, data -> extractor.extract(new ByteArrayInputStream(data)));
+        double[] jsoup = measure(xhtml, data -> Jsoup.parse(new ByteArrayInputStream(data), null, "").text());
+        assertTrue(String.format("kxml2 流式: %.1f MB/s, 每次分配 %.0f KB; Jsoup DOM: %.1f MB/s, 每次分配 %.0f KB",
+                streamed[0], streamed[1], jsoup[0], jsoup[1]), streamed[0] >= jsoup[0]);
+    }
+
+    /**
+     * @return 吞吐量（MB/s）和每次提取分配的 KB 数，JVM 不支持统计分配时后者为 -1
+     */
+    private static double[] measure(byte[] xhtml, Extraction extraction) throws Exception {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            extraction.run(xhtml);
+        }
+
+        long allocatedBefore = allocatedBytes();
+        long startTime = System.nanoTime();
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            extraction.run(xhtml);
+        }
+        long elapsed = System.nanoTime() - startTime;
+        long allocated = allocatedBytes() - allocatedBefore;
+
+        double megabytes = (double) xhtml.length * MEASURE_ROUNDS / (1024 * 1024);
+        return new double[]{megabytes / (elapsed / 1e9),
+                allocatedBefore >= 0 ? (double) allocated / MEASURE_ROUNDS / 1024 : -1};
+    }
+
+    /**
+     * 当前线程累计分配的字节数，JVM 不支持时返回 -1
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static String buildChapter(int paragraphs) {
+        StringBuilder xhtml = new StringBuilder();
+        xhtml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<html xmlns=\"http://www.w3.org/1999/xhtml\">\n<head><title>第一章</title></head>\n<body>\n")
+                .append("<h2 class=\"chapter\">第一章 开始</h2>\n");
+        for (int i = 0; i < paragraphs; i++) {
+            xhtml.append("<div class=\"section\">\n  <p class=\"text\">第").append(i)
+                    .append("段：他望着窗外&mdash;&mdash;雨还在下，<em>街上</em>空无一人&hellip;</p>\n")
+                    .append("  <p>&ldquo;明天再说吧，&rdquo;她轻声说。<br/>Tom &amp; Jerry&nbsp;were here.</p>\n")
+                    .append("</div>\n");
+        }
+        xhtml.append("</body>\n</html>\n");
+        return xhtml.toString();
+    }
+
+    private static String normalize(String text) {
+        return text.replace('\u00A0', ' ').replaceAll("\\s+", " ").trim();
+    }
+}